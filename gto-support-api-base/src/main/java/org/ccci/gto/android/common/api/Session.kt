@@ -43,6 +43,12 @@ open class Session protected constructor(
 
     open val isValid get() = id != null
 
+    /**
+     * Hint for when this session will expire, in milliseconds since the epoch, or `null` if the expiration is unknown.
+     * Session interceptors treat expired sessions as invalid and can establish a replacement session ahead of time.
+     */
+    open val expiresAt: Long? get() = null
+
     override fun equals(other: Any?) = when {
         this === other -> true
         !(other is Session && javaClass == other.javaClass) -> false
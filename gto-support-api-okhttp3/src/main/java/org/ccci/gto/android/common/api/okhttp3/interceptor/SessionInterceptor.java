@@ -2,6 +2,7 @@ package org.ccci.gto.android.common.api.okhttp3.interceptor;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -11,6 +12,13 @@ import org.ccci.gto.android.common.api.okhttp3.EstablishSessionApiException;
 import org.ccci.gto.android.common.api.okhttp3.InvalidSessionApiException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import okhttp3.Interceptor;
 import okhttp3.Request;
@@ -18,6 +26,8 @@ import okhttp3.Response;
 
 public abstract class SessionInterceptor<S extends Session> implements Interceptor {
     private static final boolean DEFAULT_RETURN_INVALID_SESSION_RESPONSES = false;
+    private static final long DEFAULT_SESSION_REFRESH_WINDOW = TimeUnit.MINUTES.toMillis(1);
+    private static final int DEFAULT_MAX_SESSION_REPLAYS = 1;
     protected final Object mLockSession = new Object();
 
     @NonNull
@@ -26,6 +36,16 @@ public abstract class SessionInterceptor<S extends Session> implements Intercept
     @NonNull
     private final String mPrefFile;
 
+    // in-memory snapshot of the persisted session, replaced with a new stale snapshot whenever it needs to be reloaded
+    private final AtomicReference<Snapshot<S>> mSession = new AtomicReference<>(new Snapshot<S>());
+    // SharedPreferences only holds a weak reference to change listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPrefsChangeListener =
+            (prefs, key) -> onPrefsChanged(prefs);
+    @Nullable
+    private FutureTask<S> mEstablishingSession;
+    @Nullable
+    private S mRefreshedSession;
+
     protected SessionInterceptor(@NonNull final Context context) {
         this(context, DEFAULT_RETURN_INVALID_SESSION_RESPONSES, null);
     }
@@ -43,6 +63,7 @@ public abstract class SessionInterceptor<S extends Session> implements Intercept
         mContext = context.getApplicationContext();
         mReturnInvalidSessionResponses = returnInvalidSessionResponses;
         mPrefFile = prefFile != null ? prefFile : getClass().getSimpleName();
+        getPrefs().registerOnSharedPreferenceChangeListener(mPrefsChangeListener);
     }
 
     @NonNull
@@ -52,74 +73,176 @@ public abstract class SessionInterceptor<S extends Session> implements Intercept
 
     @Override
     public final Response intercept(@NonNull final Chain chain) throws IOException {
-        // get the session, establish a session if one doesn't exist or if we have a stale session
-        S session;
-        synchronized (mLockSession) {
-            session = loadSession();
-            if (session == null) {
+        S session = requireSession();
+        int replays = 0;
+        while (true) {
+            final Response response = chain.proceed(attachSession(chain.request(), session));
+            final boolean invalid = isSessionInvalid(response);
+            if (invalid) {
+                resetSession(session);
+            }
+
+            // transparently replay the request with a fresh session if the session was rejected
+            if (invalid && replays < getMaxSessionReplays()) {
+                // only replay if we were able to establish a new session,
+                // otherwise process the response for the rejected session
+                final S replacement;
                 try {
-                    session = establishSession();
-                } catch (final IOException e) {
-                    // wrap establish session IOExceptions
-                    throw new EstablishSessionApiException(e);
+                    replacement = getSession();
+                } catch (final IOException | RuntimeException e) {
+                    response.close();
+                    throw e;
                 }
-
-                // save the newly established session
-                if (session != null && session.isValid()) {
-                    saveSession(session);
+                if (replacement != null) {
+                    replays++;
+                    response.close();
+                    session = replacement;
+                    continue;
                 }
             }
+
+            // process response
+            return processResponse(response, session, invalid);
         }
+    }
+
+    @NonNull
+    private S requireSession() throws IOException {
+        final S session = getSession();
 
         // throw an exception if we don't have a valid session
         if (session == null) {
             throw new InvalidSessionApiException();
         }
+        return session;
+    }
+
+    @Nullable
+    private S getSession() throws IOException {
+        // get the session, establish a session if one doesn't exist or if we have a stale session
+        S session = loadSession();
+        if (session == null) {
+            try {
+                session = establishSessionOnce();
+            } catch (final IOException e) {
+                // wrap establish session IOExceptions
+                throw new EstablishSessionApiException(e);
+            }
+        } else if (expiresWithin(session, getSessionRefreshWindow())) {
+            // refresh sessions that are about to expire before any requests fail
+            refreshSessionInBackground(session);
+        }
+        return session;
+    }
 
-        // process request & response
-        return processResponse(chain.proceed(attachSession(chain.request(), session)), session);
+    /**
+     * @return how long before a session's {@link Session#getExpiresAt() expiration} a replacement session should be
+     * established in the background.
+     */
+    protected long getSessionRefreshWindow() {
+        return DEFAULT_SESSION_REFRESH_WINDOW;
+    }
+
+    /**
+     * @return the maximum number of times a request is replayed with a new session after the response indicated the
+     * session was invalid.
+     */
+    protected int getMaxSessionReplays() {
+        return DEFAULT_MAX_SESSION_REPLAYS;
+    }
+
+    @NonNull
+    protected Executor getSessionRefreshExecutor() {
+        return AsyncTask.THREAD_POOL_EXECUTOR;
     }
 
     @NonNull
     protected abstract Request attachSession(@NonNull Request request, @NonNull S session);
 
+    /**
+     * @deprecated Since v3.6.2, override {@link #processResponse(Response, Session, boolean)} instead, this method is
+     * no longer called by {@link #intercept(Chain)}.
+     */
+    @Deprecated
     @CallSuper
     protected Response processResponse(@NonNull final Response response, @NonNull S session) throws IOException {
-        // make sure the response is valid
-        if (isSessionInvalid(response)) {
-            // reset the session
-            synchronized (mLockSession) {
-                // only reset if this is still the same session
-                final S active = loadSession();
-                if (active != null && active.equals(session)) {
-                    deleteSession(session);
-                }
-            }
+        final boolean invalid = isSessionInvalid(response);
+        if (invalid) {
+            resetSession(session);
+        }
+        return processResponse(response, session, invalid);
+    }
 
-            // throw an invalid session exception because our session was invalid
-            if (!mReturnInvalidSessionResponses) {
-                throw new InvalidSessionApiException();
-            }
+    /**
+     * @param sessionInvalid the result of {@link #isSessionInvalid(Response)} for this response. The session has
+     *                       already been reset when this is true.
+     */
+    @CallSuper
+    protected Response processResponse(@NonNull final Response response, @NonNull final S session,
+                                       final boolean sessionInvalid) throws IOException {
+        // throw an invalid session exception because our session was invalid
+        if (sessionInvalid && !mReturnInvalidSessionResponses) {
+            throw new InvalidSessionApiException();
         }
 
         return response;
     }
 
+    private void resetSession(@NonNull final S session) {
+        synchronized (mLockSession) {
+            // only reset if this is still the same session
+            final S active = loadSession();
+            if (active != null && active.equals(session)) {
+                deleteSession(session);
+            }
+        }
+    }
+
     protected boolean isSessionInvalid(@NonNull final Response response) throws IOException {
         return false;
     }
 
     @Nullable
     private S loadSession() {
-        // load a pre-existing session
-        final SharedPreferences prefs = this.getPrefs();
-        final S session;
-        synchronized (mLockSession) {
-            session = loadSession(prefs);
+        // load the pre-existing session if our snapshot is stale
+        Snapshot<S> snapshot = mSession.get();
+        if (!snapshot.mLoaded) {
+            final Snapshot<S> loaded = new Snapshot<>(loadSession(getPrefs()));
+
+            // only store the loaded session if the snapshot wasn't invalidated while we were loading it
+            mSession.compareAndSet(snapshot, loaded);
+            snapshot = loaded;
         }
 
         // only return valid sessions
-        return session != null && session.isValid() ? session : null;
+        final S session = snapshot.mSession;
+        return session != null && session.isValid() && !expiresWithin(session, 0) ? session : null;
+    }
+
+    private static boolean expiresWithin(@NonNull final Session session, final long window) {
+        final Long expiresAt = session.getExpiresAt();
+        return expiresAt != null && expiresAt - System.currentTimeMillis() <= window;
+    }
+
+    private void invalidateSnapshot() {
+        mSession.set(new Snapshot<S>());
+    }
+
+    private void onPrefsChanged(@NonNull final SharedPreferences prefs) {
+        final Snapshot<S> snapshot = mSession.get();
+        if (!snapshot.mLoaded) {
+            return;
+        }
+
+        // saveSession() triggers this listener for the session it just stored, so ignore changes that still match
+        // our snapshot instead of discarding it
+        final S session = loadSession(prefs);
+        if (snapshot.mSession != null ? snapshot.mSession.equals(session) : session == null) {
+            return;
+        }
+
+        // only invalidate the snapshot we compared against
+        mSession.compareAndSet(snapshot, new Snapshot<S>());
     }
 
     @Nullable
@@ -130,12 +253,96 @@ public abstract class SessionInterceptor<S extends Session> implements Intercept
         return null;
     }
 
+    /**
+     * Establish a new session, concurrent requests share the result of a single in-flight establishSession() call
+     * instead of each establishing their own session.
+     */
+    @Nullable
+    private S establishSessionOnce() throws IOException {
+        final FutureTask<S> task;
+        synchronized (mLockSession) {
+            // another request may have established a session since we last checked
+            final S session = loadSession();
+            if (session != null) {
+                return session;
+            }
+
+            if (mEstablishingSession == null) {
+                mEstablishingSession = newEstablishSessionTask();
+            }
+            task = mEstablishingSession;
+        }
+
+        // run the task on the calling thread, this is a no-op if another thread is already running it
+        task.run();
+
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void refreshSessionInBackground(@NonNull final S session) {
+        final FutureTask<S> task;
+        synchronized (mLockSession) {
+            // only attempt to refresh each session once
+            if (mEstablishingSession != null || session.equals(mRefreshedSession)) {
+                return;
+            }
+            mRefreshedSession = session;
+            task = newEstablishSessionTask();
+            mEstablishingSession = task;
+        }
+
+        try {
+            getSessionRefreshExecutor().execute(task);
+        } catch (final RejectedExecutionException ignored) {
+            // the task will be run by the next request that needs a session
+        }
+    }
+
+    // must be called while holding mLockSession
+    @NonNull
+    private FutureTask<S> newEstablishSessionTask() {
+        return new FutureTask<S>(() -> {
+            final S established = establishSession();
+
+            // save the newly established session
+            if (established != null && established.isValid()) {
+                saveSession(established);
+            }
+            return established;
+        }) {
+            @Override
+            protected void done() {
+                synchronized (mLockSession) {
+                    if (mEstablishingSession == this) {
+                        mEstablishingSession = null;
+                    }
+                }
+            }
+        };
+    }
+
     protected final void saveSession(@NonNull final S session) {
         final SharedPreferences.Editor prefs = this.getPrefs().edit();
         session.save(prefs);
 
         synchronized (mLockSession) {
             prefs.apply();
+            mSession.set(new Snapshot<>(session));
         }
     }
 
@@ -145,6 +352,23 @@ public abstract class SessionInterceptor<S extends Session> implements Intercept
 
         synchronized (mLockSession) {
             prefs.apply();
+            invalidateSnapshot();
+        }
+    }
+
+    private static final class Snapshot<S> {
+        final boolean mLoaded;
+        @Nullable
+        final S mSession;
+
+        Snapshot() {
+            mLoaded = false;
+            mSession = null;
+        }
+
+        Snapshot(@Nullable final S session) {
+            mLoaded = true;
+            mSession = session;
         }
     }
 }
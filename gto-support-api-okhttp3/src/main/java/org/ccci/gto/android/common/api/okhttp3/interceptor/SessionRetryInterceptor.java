@@ -43,6 +43,7 @@ public final class SessionRetryInterceptor implements Interceptor {
                 // retry request if the response indicates the session is invalid
                 if (tries < mAttempts && mSessionInterceptor != null &&
                         mSessionInterceptor.isSessionInvalid(response)) {
+                    response.close();
                     continue;
                 }
 
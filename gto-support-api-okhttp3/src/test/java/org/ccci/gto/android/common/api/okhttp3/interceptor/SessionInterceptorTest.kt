@@ -0,0 +1,190 @@
+package org.ccci.gto.android.common.api.okhttp3.interceptor
+
+import android.content.Context
+import android.content.SharedPreferences
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doAnswer
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import okhttp3.Interceptor
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import org.ccci.gto.android.common.api.Session
+import org.ccci.gto.android.common.api.okhttp3.InvalidSessionApiException
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+private const val HEADER_SESSION = "Session"
+private const val PREF_EXPIRES = "session.expires"
+
+@RunWith(AndroidJUnit4::class)
+class SessionInterceptorTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val request = Request.Builder().url("https://example.com/").build()
+    private val sessions = mutableListOf<String?>()
+
+    private fun chain(vararg codes: Int): Interceptor.Chain {
+        var i = 0
+        return mock {
+            on { request() } doReturn request
+            on { proceed(any()) } doAnswer {
+                val req = it.arguments[0] as Request
+                synchronized(sessions) { sessions += req.header(HEADER_SESSION) }
+                Response.Builder().request(req).protocol(Protocol.HTTP_1_1).message("")
+                    .code(codes[minOf(i++, codes.size - 1)])
+                    .build()
+            }
+        }
+    }
+
+    // region Replay
+    @Test
+    fun verifyReplayWithNewSession() {
+        val interceptor = TestSessionInterceptor(context) { TestSession("new") }
+        interceptor.store(TestSession("old"))
+
+        val response = interceptor.intercept(chain(401, 200))
+        assertEquals(200, response.code())
+        assertThat(sessions, contains("old", "new"))
+    }
+
+    @Test
+    fun verifyReplayLimit() {
+        val count = AtomicInteger()
+        val interceptor = TestSessionInterceptor(context, true) { TestSession("new${count.incrementAndGet()}") }
+        interceptor.store(TestSession("old"))
+
+        val response = interceptor.intercept(chain(401))
+        assertEquals(401, response.code())
+        assertThat(sessions, contains("old", "new1"))
+    }
+
+    @Test
+    fun verifyNoReplayWhenUnableToEstablishSession() {
+        val interceptor = TestSessionInterceptor(context, true) { null }
+        interceptor.store(TestSession("old"))
+
+        val response = interceptor.intercept(chain(401, 200))
+        assertEquals(401, response.code())
+        assertThat(sessions, contains("old"))
+        assertEquals("the rejected response is only checked once", 1, interceptor.invalidChecks.get())
+    }
+
+    @Test(expected = InvalidSessionApiException::class)
+    fun verifyNoReplayWhenUnableToEstablishSessionThrowsInvalidSession() {
+        val interceptor = TestSessionInterceptor(context) { null }
+        interceptor.store(TestSession("old"))
+
+        try {
+            interceptor.intercept(chain(401, 200))
+        } finally {
+            assertThat(sessions, contains("old"))
+        }
+    }
+    // endregion Replay
+
+    // region Refresh Window
+    @Test
+    fun verifyRefreshSessionWithinRefreshWindow() {
+        val count = AtomicInteger()
+        val interceptor = TestSessionInterceptor(context) { TestSession("new${count.incrementAndGet()}") }
+        interceptor.store(TestSession("old", System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30)))
+
+        interceptor.intercept(chain(200))
+        interceptor.intercept(chain(200))
+        assertEquals(1, count.get())
+        assertThat(sessions, contains("old", "new1"))
+    }
+
+    @Test
+    fun verifyNoRefreshOutsideRefreshWindow() {
+        val count = AtomicInteger()
+        val interceptor = TestSessionInterceptor(context) { TestSession("new${count.incrementAndGet()}") }
+        interceptor.store(TestSession("old", System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)))
+
+        interceptor.intercept(chain(200))
+        interceptor.intercept(chain(200))
+        assertEquals(0, count.get())
+        assertThat(sessions, contains("old", "old"))
+    }
+
+    @Test
+    fun verifyExpiredSessionIsReplaced() {
+        val interceptor = TestSessionInterceptor(context) { TestSession("new") }
+        interceptor.store(TestSession("old", System.currentTimeMillis() - 1))
+
+        interceptor.intercept(chain(200))
+        assertThat(sessions, contains("new"))
+    }
+    // endregion Refresh Window
+
+    @Test
+    fun verifyConcurrentRequestsEstablishSingleSession() {
+        val count = AtomicInteger()
+        val establishing = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val interceptor = TestSessionInterceptor(context) {
+            count.incrementAndGet()
+            establishing.countDown()
+            release.await()
+            TestSession("new")
+        }
+
+        val chain = chain(200)
+        val first = Thread { interceptor.intercept(chain) }.apply { start() }
+        assertTrue(establishing.await(5, TimeUnit.SECONDS))
+        val second = Thread { interceptor.intercept(chain) }.apply { start() }
+        release.countDown()
+        first.join(5000)
+        second.join(5000)
+
+        assertEquals(1, count.get())
+        assertThat(sessions, contains("new", "new"))
+    }
+
+    private class TestSession(id: String?, override val expiresAt: Long? = null) : Session(id) {
+        constructor(prefs: SharedPreferences) :
+            this(Session(prefs).id, prefs.getLong(PREF_EXPIRES, 0).takeIf { it > 0 })
+
+        override fun save(prefs: SharedPreferences.Editor) {
+            super.save(prefs)
+            if (expiresAt != null) prefs.putLong(PREF_EXPIRES, expiresAt) else prefs.remove(PREF_EXPIRES)
+        }
+
+        override fun delete(prefs: SharedPreferences.Editor) {
+            super.delete(prefs)
+            prefs.remove(PREF_EXPIRES)
+        }
+    }
+
+    private class TestSessionInterceptor(
+        context: Context,
+        returnInvalidSessionResponses: Boolean = false,
+        private val establish: () -> TestSession?
+    ) : SessionInterceptor<TestSession>(context, returnInvalidSessionResponses) {
+        val invalidChecks = AtomicInteger()
+
+        fun store(session: TestSession) = saveSession(session)
+
+        override fun attachSession(request: Request, session: TestSession) =
+            request.newBuilder().header(HEADER_SESSION, session.id!!).build()
+        override fun isSessionInvalid(response: Response): Boolean {
+            invalidChecks.incrementAndGet()
+            return response.code() == 401
+        }
+        override fun loadSession(prefs: SharedPreferences) = TestSession(prefs)
+        override fun establishSession() = establish()
+        override fun getSessionRefreshExecutor() = Executor { it.run() }
+    }
+}
@@ -3,6 +3,7 @@ package org.ccci.gto.android.common.api;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.Uri;
+import android.os.AsyncTask;
 
 import com.google.common.io.Closer;
 
@@ -11,6 +12,7 @@ import org.ccci.gto.android.common.api.AbstractApi.Request;
 import org.ccci.gto.android.common.api.AbstractApi.Request.MediaType;
 import org.ccci.gto.android.common.api.AbstractApi.Request.Parameter;
 import org.ccci.gto.android.common.util.IOUtils;
+import org.ccci.gto.android.common.util.IOUtils.ProgressCallback;
 import org.ccci.gto.android.common.util.UriUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -28,6 +30,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -39,6 +46,8 @@ import androidx.annotation.WorkerThread;
 @Deprecated
 public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionContext<S>, S extends Session> {
     private static final int DEFAULT_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_BACKOFF = 250;
+    private static final long MAX_RETRY_BACKOFF = 4000;
 
     protected final Object mLockSession = new Object();
 
@@ -49,6 +58,8 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
     protected final Uri mBaseUri;
     @NonNull
     private final String mPrefFile;
+    @NonNull
+    private volatile UrlConnectionFactory mConnectionFactory = UrlConnectionFactory.DEFAULT;
 
     protected AbstractApi(@NonNull final Context context, @NonNull final String baseUri) {
         this(context, baseUri, null);
@@ -74,6 +85,14 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
         return mContext.getSharedPreferences(mPrefFile, Context.MODE_PRIVATE);
     }
 
+    /**
+     * Set the transport used to open connections, e.g. an {@link OkHttpUrlConnectionFactory} to share a pooled
+     * OkHttpClient across requests.
+     */
+    public final void setConnectionFactory(@NonNull final UrlConnectionFactory factory) {
+        mConnectionFactory = factory;
+    }
+
     @NonNull
     @WorkerThread
     protected final HttpURLConnection sendRequest(@NonNull final R request) throws ApiException {
@@ -84,81 +103,196 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
     @WorkerThread
     protected final HttpURLConnection sendRequest(@NonNull final R request, final int attempts)
             throws ApiException {
-        try {
-            // create a new execution context for this request
-            request.context = newExecutionContext();
-
-            // process request
-            HttpURLConnection conn = null;
-            boolean successful = false;
+        int retry = 0;
+        while (true) {
             try {
-                // load/establish the session if we are using sessions
-                if (request.useSession) {
-                    // prepare for the session
-                    onPrepareSession(request);
-
-                    // get the session, establish a session if one doesn't exist or if we have a stale session
-                    synchronized (mLockSession) {
-                        request.context.session = loadSession(request);
-                        if (request.context.session == null) {
-                            request.context.session = establishSession(request);
-
-                            // save the newly established session
-                            if (request.context.session != null && request.context.session.isValid()) {
-                                saveSession(request.context.session);
-                            }
-                        }
+                return sendRequestOnce(request);
+            } catch (final ApiException e) {
+                // retry request on an API exception
+                if (retry >= attempts) {
+                    throw e;
+                }
+                retry++;
+
+                // back off before retrying
+                final long delay = getRetryBackoff(e, retry);
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
                     }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how many milliseconds to wait before the specified retry of a failed request. Only network failures are
+     * backed off by default.
+     */
+    protected long getRetryBackoff(@NonNull final ApiException e, final int retry) {
+        // other failures (e.g. an invalid session that was already reset) can be retried immediately
+        if (!(e instanceof ApiSocketException)) {
+            return 0;
+        }
+        return Math.min(DEFAULT_RETRY_BACKOFF << Math.min(retry - 1, 16), MAX_RETRY_BACKOFF);
+    }
+
+    @NonNull
+    private HttpURLConnection sendRequestOnce(@NonNull final R request) throws ApiException {
+        // create a new execution context for this request
+        request.context = newExecutionContext();
 
-                    // throw an exception if we don't have a valid session
+        // process request
+        HttpURLConnection conn = null;
+        boolean successful = false;
+        try {
+            // load/establish the session if we are using sessions
+            if (request.useSession) {
+                // prepare for the session
+                onPrepareSession(request);
+
+                // get the session, establish a session if one doesn't exist or if we have a stale session
+                synchronized (mLockSession) {
+                    request.context.session = loadSession(request);
                     if (request.context.session == null) {
-                        throw new InvalidSessionApiException();
+                        request.context.session = establishSession(request);
+
+                        // save the newly established session
+                        if (request.context.session != null && request.context.session.isValid()) {
+                            saveSession(request.context.session);
+                        }
                     }
                 }
 
-                // build the request uri
-                final Uri.Builder uri = mBaseUri.buildUpon();
-                onPrepareUri(uri, request);
-                try {
-                    request.context.url = new URL(uri.build().toString());
-                } catch (final MalformedURLException e) {
-                    throw new RuntimeException("invalid Request URL: " + uri.build().toString(), e);
+                // throw an exception if we don't have a valid session
+                if (request.context.session == null) {
+                    throw new InvalidSessionApiException();
                 }
+            }
+
+            // build the request uri
+            final Uri.Builder uri = mBaseUri.buildUpon();
+            onPrepareUri(uri, request);
+            try {
+                request.context.url = new URL(uri.build().toString());
+            } catch (final MalformedURLException e) {
+                throw new RuntimeException("invalid Request URL: " + uri.build().toString(), e);
+            }
 
-                // prepare the request
-                conn = (HttpURLConnection) request.context.url.openConnection();
-                onPrepareRequest(conn, request);
+            // prepare the request
+            conn = mConnectionFactory.open(request.context.url);
+            onPrepareRequest(conn, request);
 
-                // send any request data
-                onSendRequestData(conn, request);
+            // send any request data
+            onSendRequestData(conn, request);
 
-                // no need to explicitly execute, accessing the response triggers the execute
+            // no need to explicitly execute, accessing the response triggers the execute
 
-                // process the response
-                onProcessResponse(conn, request);
+            // process the response
+            onProcessResponse(conn, request);
 
-                // return the connection for method specific handling
-                successful = true;
-                return conn;
-            } catch (final IOException e) {
-                throw new ApiSocketException(e);
-            } finally {
-                // close a potentially open connection if we weren't successful
-                if (!successful) {
-                    IOUtils.closeQuietly(conn);
+            // return the connection for method specific handling
+            successful = true;
+            return conn;
+        } catch (final IOException e) {
+            throw new ApiSocketException(e);
+        } finally {
+            // close a potentially open connection if we weren't successful
+            if (!successful) {
+                IOUtils.closeQuietly(conn);
+            }
+
+            // cleanup any request specific data
+            onCleanupRequest(request);
+        }
+    }
+
+    /**
+     * Send a batch of requests concurrently, with at most maxInFlight requests running at a time. The calling thread
+     * participates in sending requests and this method blocks until every request has completed.
+     *
+     * Each request is delivered to the callback as soon as it completes. A failing request only affects its own
+     * callback. Concurrent requests share a single established session because session establishment is serialized
+     * through mLockSession. An unexpected exception thrown by the callback is rethrown once every request has
+     * completed.
+     */
+    @WorkerThread
+    protected final void sendRequests(@NonNull final Collection<R> requests, final int maxInFlight,
+                                      @NonNull final RequestCallback<R> callback) {
+        sendRequests(AsyncTask.THREAD_POOL_EXECUTOR, requests, maxInFlight, callback);
+    }
+
+    @WorkerThread
+    protected final void sendRequests(@NonNull final Executor executor, @NonNull final Collection<R> requests,
+                                      final int maxInFlight, @NonNull final RequestCallback<R> callback) {
+        final List<R> pending = new ArrayList<>(requests);
+        final int workers = Math.max(1, Math.min(maxInFlight, pending.size()));
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(workers);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        final Runnable worker = () -> {
+            try {
+                for (int i = next.getAndIncrement(); i < pending.size(); i = next.getAndIncrement()) {
+                    // an unexpected failure for one request shouldn't prevent sending the remaining requests
+                    try {
+                        sendBatchedRequest(pending.get(i), callback);
+                    } catch (final Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
                 }
+            } finally {
+                completed.countDown();
+            }
+        };
 
-                // cleanup any request specific data
-                onCleanupRequest(request);
+        // fork workers, the current thread will process any requests that don't get picked up
+        for (int i = 1; i < workers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (final RejectedExecutionException e) {
+                completed.countDown();
             }
-        } catch (final ApiException e) {
-            // retry request on an API exception
-            if (attempts > 0) {
-                return this.sendRequest(request, attempts - 1);
+        }
+        worker.run();
+
+        // wait for all in-flight requests to finish
+        boolean interrupted = false;
+        while (true) {
+            try {
+                completed.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
             }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
 
-            // propagate the exception
-            throw e;
+        // propagate the first unexpected failure to the calling thread
+        final Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+    }
+
+    private void sendBatchedRequest(@NonNull final R request, @NonNull final RequestCallback<R> callback) {
+        HttpURLConnection conn = null;
+        try {
+            conn = sendRequest(request);
+            callback.onResponse(request, conn);
+        } catch (final ApiException e) {
+            callback.onError(request, e);
+        } catch (final IOException e) {
+            callback.onError(request, new ApiSocketException(e));
+        } finally {
+            IOUtils.closeQuietly(conn);
         }
     }
 
@@ -307,22 +441,21 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
                 final String boundary = "-------" + UUID.randomUUID().toString() + "-------";
                 conn.setRequestProperty("Content-Type", request.mContentType.mType + "; boundary=" + boundary);
 
+                // stream the form instead of letting HttpURLConnection buffer it to determine the Content-Length
+                final MultipartFormOutputWriter writer =
+                        new MultipartFormOutputWriter(boundary, request.form, request.uploadProgress);
+                final long length = writer.getContentLength();
+                if (length <= Integer.MAX_VALUE) {
+                    conn.setFixedLengthStreamingMode((int) length);
+                } else {
+                    conn.setChunkedStreamingMode(0);
+                }
+
                 final Closer closer = Closer.create();
                 try {
                     final OutputStream out = closer.register(conn.getOutputStream());
                     final BufferedOutputStream buf = closer.register(new BufferedOutputStream(out));
-                    final MultipartFormOutputWriter writer =
-                            closer.register(new MultipartFormOutputWriter(buf, boundary));
-
-                    // write all parameters
-                    for (final Parameter param : request.form) {
-                        if (param != null) {
-                            writer.writeParameter(param);
-                        }
-                    }
-
-                    // finish the Output
-                    writer.finish();
+                    writer.writeTo(buf);
                 } catch (final Throwable t) {
                     throw closer.rethrow(t);
                 } finally {
@@ -391,6 +524,23 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
 
     /* END request lifecycle events */
 
+    /**
+     * Callback receiving the result of each request sent by {@link #sendRequests(Collection, int, RequestCallback)}.
+     * Callbacks are invoked on the thread that sent the request, so they may be called concurrently.
+     *
+     * @param <R> The Request type being sent
+     */
+    public interface RequestCallback<R extends Request<?, ?>> {
+        /**
+         * Called with the connection of a successful request, the connection is closed once this returns.
+         */
+        @WorkerThread
+        void onResponse(@NonNull R request, @NonNull HttpURLConnection conn) throws ApiException, IOException;
+
+        @WorkerThread
+        void onError(@NonNull R request, @NonNull ApiException e);
+    }
+
     /**
      * Object tracking the execution context data for processing a request.
      *
@@ -476,6 +626,9 @@ public abstract class AbstractApi<R extends Request<C, S>, C extends ExecutionCo
         @Nullable
         byte[] mContent = null;
         public final Collection<Parameter> form = new ArrayList<>();
+        // receives the number of bytes of a multipart form that have been sent so far
+        @Nullable
+        public ProgressCallback uploadProgress = null;
 
         // session attributes
         public boolean useSession = false;
@@ -190,7 +190,7 @@ public abstract class AbstractGtoSmxApi
             conn = this.sendRequest(request);
 
             if (conn.getResponseCode() == HTTP_OK) {
-                return IOUtils.readString(conn.getInputStream());
+                return IOUtils.readString(conn);
             }
         } catch (final InvalidSessionApiException e) {
             throw new RuntimeException("unexpected exception", e);
@@ -227,7 +227,7 @@ public abstract class AbstractGtoSmxApi
             // was this a valid login
             if (conn.getResponseCode() == HTTP_OK) {
                 // the sessionId is returned as the body of the response
-                return IOUtils.readString(conn.getInputStream());
+                return IOUtils.readString(conn);
             }
         } catch (final InvalidSessionApiException ignored) {
         } catch (final MalformedURLException e) {
@@ -260,7 +260,7 @@ public abstract class AbstractGtoSmxApi
             // was this a valid login
             if (conn.getResponseCode() == HTTP_OK) {
                 // the sessionId is returned as the body of the response
-                return IOUtils.readString(conn.getInputStream());
+                return IOUtils.readString(conn);
             }
         } catch (final InvalidSessionApiException ignored) {
         } catch (final MalformedURLException e) {
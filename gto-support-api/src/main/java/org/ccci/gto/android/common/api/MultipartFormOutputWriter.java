@@ -4,106 +4,170 @@ import com.google.common.io.Closer;
 
 import org.ccci.gto.android.common.api.AbstractApi.Request.MediaType;
 import org.ccci.gto.android.common.api.AbstractApi.Request.Parameter;
-import org.ccci.gto.android.common.util.IOUtils;
+import org.ccci.gto.android.common.util.IOUtils.ProgressCallback;
 
-import java.io.Closeable;
 import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * @deprecated Since v3.3.0, use gto-support-api-okhttp3 for building API clients instead.
  */
 @Deprecated
-final class MultipartFormOutputWriter implements Closeable {
+final class MultipartFormOutputWriter {
     private static final String PREFIX = "--";
     private static final String NEWLINE = "\r\n";
+    private static final long TRANSFER_CHUNK_SIZE = 64 * 1024;
 
-    @NonNull
-    private final DataOutputStream mOut;
     @NonNull
     private final String mBoundary;
+    @NonNull
+    private final List<Parameter> mParams = new ArrayList<>();
+    // file lengths are captured once so the Content-Length and the bytes written always agree
+    @NonNull
+    private final Map<Parameter, Long> mFileLengths = new IdentityHashMap<>();
+    private final long mContentLength;
+    @Nullable
+    private final ProgressCallback mProgress;
 
-    MultipartFormOutputWriter(@NonNull final OutputStream os, @NonNull final String boundary) {
-        mOut = new DataOutputStream(os);
+    private DataOutputStream mOut;
+    private WritableByteChannel mOutChannel;
+    private long mWritten = 0;
+
+    MultipartFormOutputWriter(@NonNull final String boundary, @NonNull final Iterable<Parameter> params) {
+        this(boundary, params, null);
+    }
+
+    MultipartFormOutputWriter(@NonNull final String boundary, @NonNull final Iterable<Parameter> params,
+                              @Nullable final ProgressCallback progress) {
         mBoundary = boundary;
+        mProgress = progress;
+
+        long length = 0;
+        for (final Parameter param : params) {
+            if (param != null) {
+                mParams.add(param);
+                length += parameterHeader(boundary, param).length();
+                if (param.mFile != null) {
+                    final long fileLength = param.mFile.length();
+                    mFileLengths.put(param, fileLength);
+                    length += fileLength;
+                } else if (param.mValue != null) {
+                    length += param.mValue.length();
+                }
+                length += NEWLINE.length();
+            }
+        }
+        mContentLength = length + finalBoundary(boundary).length();
     }
 
-    void writeParameter(@NonNull final Parameter param) throws IOException {
+    /**
+     * @return the exact number of bytes that {@link #writeTo(OutputStream)} will write, so that the body can be
+     * streamed instead of being buffered in memory to determine the Content-Length.
+     */
+    long getContentLength() {
+        return mContentLength;
+    }
+
+    void writeTo(@NonNull final OutputStream os) throws IOException {
+        mOut = new DataOutputStream(os);
+        mOutChannel = Channels.newChannel(mOut);
+        mWritten = 0;
+
+        for (final Parameter param : mParams) {
+            writeParameter(param);
+        }
+
+        // write final boundary
+        writeString(finalBoundary(mBoundary));
+        mOut.flush();
+        reportProgress();
+    }
+
+    private void writeParameter(@NonNull final Parameter param) throws IOException {
+        writeString(parameterHeader(mBoundary, param));
         if (param.mFile != null) {
-            writeFileParameter(param);
+            writeFile(param.mFile, mFileLengths.get(param));
         } else {
-            writeSimpleParameter(param);
+            writeString(param.mValue != null ? param.mValue : "");
         }
+        writeString(NEWLINE);
+        reportProgress();
     }
 
-    private void writeSimpleParameter(@NonNull final Parameter param) throws IOException {
-        // write boundary
-        mOut.writeBytes(PREFIX);
-        mOut.writeBytes(mBoundary);
-        mOut.writeBytes(NEWLINE);
+    @NonNull
+    private static String parameterHeader(@NonNull final String boundary, @NonNull final Parameter param) {
+        final StringBuilder header = new StringBuilder()
+                .append(PREFIX).append(boundary).append(NEWLINE)
+                .append("Content-Disposition: form-data; name=\"").append(param.mName).append("\"");
 
-        // write content header
-        mOut.writeBytes("Content-Disposition: form-data; name=\"" + param.mName + "\"");
-        mOut.writeBytes(NEWLINE);
-        mOut.writeBytes(NEWLINE);
+        if (param.mFile != null) {
+            String fileName = param.mFileName;
+            if (fileName == null) {
+                fileName = param.mFile.getName();
+            }
+            if (fileName == null) {
+                fileName = "";
+            }
+            final MediaType type = param.mType != null ? param.mType : MediaType.APPLICATION_OCTET_STREAM;
+            header.append("; filename=\"").append(fileName).append("\"").append(NEWLINE)
+                    .append("Content-Type: ").append(type.mType);
+        }
 
-        // write content
-        mOut.writeBytes(param.mValue != null ? param.mValue : "");
-        mOut.writeBytes(NEWLINE);
+        return header.append(NEWLINE).append(NEWLINE).toString();
     }
 
-    private void writeFileParameter(@NonNull final Parameter param) throws IOException {
-        // write boundary
-        mOut.writeBytes(PREFIX);
-        mOut.writeBytes(mBoundary);
-        mOut.writeBytes(NEWLINE);
+    @NonNull
+    private static String finalBoundary(@NonNull final String boundary) {
+        return PREFIX + boundary + PREFIX + NEWLINE;
+    }
 
-        // write content header
-        String fileName = param.mFileName;
-        if (fileName == null && param.mFile != null) {
-            fileName = param.mFile.getName();
-        }
-        if (fileName == null) {
-            fileName = "";
-        }
-        mOut.writeBytes("Content-Disposition: form-data; name=\"" + param.mName + "\"; filename=\"" + fileName + "\"");
-        mOut.writeBytes(NEWLINE);
-        final MediaType type = param.mType != null ? param.mType : MediaType.APPLICATION_OCTET_STREAM;
-        mOut.writeBytes("Content-Type: " + type.mType);
-        mOut.writeBytes(NEWLINE);
-        mOut.writeBytes(NEWLINE);
-
-        // write file content
-        if (param.mFile != null) {
-            final Closer closer = Closer.create();
-            try {
-                final InputStream in = closer.register(new FileInputStream(param.mFile));
-                IOUtils.copy(in, mOut);
-            } catch (final Throwable t) {
-                throw closer.rethrow(t);
-            } finally {
-                closer.close();
+    private void writeString(@NonNull final String data) throws IOException {
+        mOut.writeBytes(data);
+        mWritten += data.length();
+    }
+
+    private void writeFile(@NonNull final File file, final long size) throws IOException {
+        final Closer closer = Closer.create();
+        try {
+            // transfer the file directly from its FileChannel instead of copying it through an intermediate stream,
+            // only the length included in the Content-Length is sent even if the file has grown since
+            final FileChannel in = closer.register(new FileInputStream(file)).getChannel();
+            long position = 0;
+            while (position < size) {
+                final long count = in.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, size - position), mOutChannel);
+                if (count <= 0) {
+                    // the file was truncated after we calculated the Content-Length
+                    throw new EOFException("Unexpected end of file " + file);
+                }
+                position += count;
+                mWritten += count;
+                reportProgress();
             }
+        } catch (final Throwable t) {
+            throw closer.rethrow(t);
+        } finally {
+            closer.close();
         }
-        mOut.writeBytes(NEWLINE);
     }
 
-    void finish() throws IOException {
-        // write final boundary
-        mOut.writeBytes(PREFIX);
-        mOut.writeBytes(mBoundary);
-        mOut.writeBytes(PREFIX);
-        mOut.writeBytes(NEWLINE);
-        mOut.flush();
+    private void reportProgress() {
+        if (mProgress != null) {
+            mProgress.progress(mWritten);
+        }
     }
 
-    @Override
-    public void close() throws IOException {
-        mOut.close();
-    }
 }
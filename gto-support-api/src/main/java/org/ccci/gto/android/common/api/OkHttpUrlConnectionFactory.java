@@ -0,0 +1,31 @@
+package org.ccci.gto.android.common.api;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import androidx.annotation.NonNull;
+import okhttp3.OkHttpClient;
+import okhttp3.OkUrlFactory;
+
+/**
+ * UrlConnectionFactory that runs requests over a shared OkHttpClient, providing connection pooling, HTTP/2 and any
+ * response cache configured on the client. This requires the okhttp-urlconnection dependency.
+ *
+ * @deprecated Since v3.3.0, use gto-support-api-okhttp3 for building API clients instead.
+ */
+@Deprecated
+@SuppressWarnings("deprecation")
+public final class OkHttpUrlConnectionFactory implements UrlConnectionFactory {
+    @NonNull
+    private final OkUrlFactory mFactory;
+
+    public OkHttpUrlConnectionFactory(@NonNull final OkHttpClient client) {
+        mFactory = new OkUrlFactory(client);
+    }
+
+    @NonNull
+    @Override
+    public HttpURLConnection open(@NonNull final URL url) {
+        return mFactory.open(url);
+    }
+}
@@ -0,0 +1,20 @@
+package org.ccci.gto.android.common.api;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Transport used by {@link AbstractApi} to open the connection for each request.
+ *
+ * @deprecated Since v3.3.0, use gto-support-api-okhttp3 for building API clients instead.
+ */
+@Deprecated
+public interface UrlConnectionFactory {
+    UrlConnectionFactory DEFAULT = url -> (HttpURLConnection) url.openConnection();
+
+    @NonNull
+    HttpURLConnection open(@NonNull URL url) throws IOException;
+}
@@ -0,0 +1,290 @@
+package org.ccci.gto.android.common.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.ccci.gto.android.common.api.AbstractApi.ExecutionContext;
+import org.ccci.gto.android.common.api.AbstractApi.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(AndroidJUnit4.class)
+public class AbstractApiTest {
+    private FakeConnectionFactory mConnections;
+    private TestApi mApi;
+
+    @Before
+    public void setup() {
+        mConnections = new FakeConnectionFactory();
+        mApi = new TestApi(ApplicationProvider.getApplicationContext());
+        mApi.setConnectionFactory(mConnections);
+    }
+
+    // region Retries
+    @Test
+    public void verifySendRequestRetriesSocketFailures() throws Exception {
+        final HttpURLConnection conn = mock(HttpURLConnection.class);
+        mConnections.enqueue(new IOException(), new IOException(), conn);
+
+        assertThat(mApi.sendRequest(new TestRequest("path"), 3), sameInstance(conn));
+        assertEquals(3, mConnections.mOpened.size());
+        assertThat(mApi.mBackoffs, contains(250L, 500L));
+    }
+
+    @Test
+    public void verifySendRequestGivesUpAfterAttempts() {
+        mConnections.enqueue(new IOException(), new IOException(), new IOException(), new IOException());
+
+        try {
+            mApi.sendRequest(new TestRequest("path"), 2);
+            fail("Expected an ApiSocketException");
+        } catch (final ApiException e) {
+            assertThat(e, instanceOf(ApiSocketException.class));
+        }
+        assertEquals(3, mConnections.mOpened.size());
+        assertThat(mApi.mBackoffs, contains(250L, 500L));
+    }
+
+    @Test
+    public void verifySendRequestWithoutRetries() throws Exception {
+        final HttpURLConnection conn = mock(HttpURLConnection.class);
+        mConnections.enqueue(conn);
+
+        assertThat(mApi.sendRequest(new TestRequest("path"), 3), sameInstance(conn));
+        assertEquals(1, mConnections.mOpened.size());
+        assertThat(mApi.mBackoffs, empty());
+    }
+
+    @Test
+    public void verifyRetryBackoff() {
+        final ApiSocketException e = new ApiSocketException();
+        assertEquals(250, mApi.defaultRetryBackoff(e, 1));
+        assertEquals(500, mApi.defaultRetryBackoff(e, 2));
+        assertEquals(1000, mApi.defaultRetryBackoff(e, 3));
+        assertEquals(4000, mApi.defaultRetryBackoff(e, 10));
+        assertEquals(4000, mApi.defaultRetryBackoff(e, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void verifyNoRetryBackoffForNonSocketFailures() {
+        assertEquals(0, mApi.defaultRetryBackoff(new ApiException(), 1));
+        assertEquals(0, mApi.defaultRetryBackoff(new InvalidSessionApiException(), 2));
+    }
+    // endregion Retries
+
+    // region Batch Requests
+    @Test
+    public void verifySendRequestsDeliversEveryResult() throws Exception {
+        final HttpURLConnection a = mock(HttpURLConnection.class);
+        final HttpURLConnection b = mock(HttpURLConnection.class);
+        final HttpURLConnection c = mock(HttpURLConnection.class);
+        mConnections.respond("/a", a);
+        mConnections.respond("/b", b);
+        mConnections.respond("/c", c);
+        mConnections.respond("/d", new IOException());
+
+        final RecordingCallback callback = new RecordingCallback();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            mApi.sendRequests(executor, requests("a", "b", "c", "d"), 3, callback);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(callback.mResponses.keySet(), containsInAnyOrder("a", "b", "c"));
+        assertThat(callback.mErrors.keySet(), contains("d"));
+        assertThat(callback.mErrors.get("d"), instanceOf(ApiSocketException.class));
+        verify(a).disconnect();
+        verify(b).disconnect();
+        verify(c).disconnect();
+    }
+
+    @Test
+    public void verifySendRequestsLimitsRequestsInFlight() {
+        mConnections.respond(null, mock(HttpURLConnection.class));
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final RecordingCallback callback = new RecordingCallback() {
+            @Override
+            public void onResponse(@NonNull final TestRequest request, @NonNull final HttpURLConnection conn) {
+                final int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(current, Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                inFlight.decrementAndGet();
+                super.onResponse(request, conn);
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            mApi.sendRequests(executor, requests("a", "b", "c", "d", "e", "f"), 2, callback);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(6, callback.mResponses.size());
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(2));
+    }
+
+    @Test
+    public void verifySendRequestsContinuesAfterUnexpectedFailure() {
+        mConnections.respond(null, mock(HttpURLConnection.class));
+
+        final RuntimeException failure = new RuntimeException("expected");
+        final RecordingCallback callback = new RecordingCallback() {
+            @Override
+            public void onResponse(@NonNull final TestRequest request, @NonNull final HttpURLConnection conn) {
+                super.onResponse(request, conn);
+                if ("a".equals(request.mPath)) {
+                    throw failure;
+                }
+            }
+        };
+
+        try {
+            mApi.sendRequests(Runnable::run, requests("a", "b", "c"), 1, callback);
+            fail("Expected the unexpected failure to be rethrown");
+        } catch (final RuntimeException e) {
+            assertThat(e, sameInstance(failure));
+        }
+        assertThat(callback.mResponses.keySet(), containsInAnyOrder("a", "b", "c"));
+    }
+
+    @Test
+    public void verifySendRequestsRejectedExecution() {
+        mConnections.respond(null, mock(HttpURLConnection.class));
+
+        final RecordingCallback callback = new RecordingCallback();
+        mApi.sendRequests(r -> {
+            throw new RejectedExecutionException();
+        }, requests("a", "b", "c"), 3, callback);
+
+        assertThat(callback.mResponses.keySet(), containsInAnyOrder("a", "b", "c"));
+    }
+
+    @NonNull
+    private static List<TestRequest> requests(@NonNull final String... paths) {
+        final List<TestRequest> requests = new ArrayList<>();
+        for (final String path : paths) {
+            requests.add(new TestRequest(path));
+        }
+        return requests;
+    }
+
+    static class RecordingCallback implements AbstractApi.RequestCallback<TestRequest> {
+        final Map<String, HttpURLConnection> mResponses = new ConcurrentHashMap<>();
+        final Map<String, ApiException> mErrors = new ConcurrentHashMap<>();
+
+        @Override
+        public void onResponse(@NonNull final TestRequest request, @NonNull final HttpURLConnection conn) {
+            mResponses.put(request.mPath, conn);
+        }
+
+        @Override
+        public void onError(@NonNull final TestRequest request, @NonNull final ApiException e) {
+            mErrors.put(request.mPath, e);
+        }
+    }
+    // endregion Batch Requests
+
+    static final class FakeConnectionFactory implements UrlConnectionFactory {
+        private final Queue<Object> mResults = new LinkedList<>();
+        private final Map<String, Object> mResultsByPath = new HashMap<>();
+        final List<URL> mOpened = new ArrayList<>();
+
+        synchronized void enqueue(final Object... results) {
+            mResults.addAll(Arrays.asList(results));
+        }
+
+        /**
+         * Always respond to requests for the specified path with the specified result, a null path responds to any
+         * request that doesn't have a more specific result.
+         */
+        synchronized void respond(@Nullable final String path, @NonNull final Object result) {
+            mResultsByPath.put(path, result);
+        }
+
+        @NonNull
+        @Override
+        public synchronized HttpURLConnection open(@NonNull final URL url) throws IOException {
+            mOpened.add(url);
+            Object result = mResultsByPath.get(url.getPath());
+            if (result == null) {
+                result = mResultsByPath.containsKey(null) ? mResultsByPath.get(null) : mResults.remove();
+            }
+            if (result instanceof IOException) {
+                throw (IOException) result;
+            }
+            return (HttpURLConnection) result;
+        }
+    }
+
+    static final class TestRequest extends Request<ExecutionContext<Session>, Session> {
+        TestRequest(@NonNull final String path) {
+            super(path);
+        }
+    }
+
+    static final class TestApi extends AbstractApi<TestRequest, ExecutionContext<Session>, Session> {
+        final List<Long> mBackoffs = new ArrayList<>();
+
+        TestApi(@NonNull final Context context) {
+            super(context, "https://example.com/");
+        }
+
+        @Override
+        protected long getRetryBackoff(@NonNull final ApiException e, final int retry) {
+            // record the backoff instead of actually sleeping
+            synchronized (mBackoffs) {
+                mBackoffs.add(super.getRetryBackoff(e, retry));
+            }
+            return 0;
+        }
+
+        long defaultRetryBackoff(@NonNull final ApiException e, final int retry) {
+            return super.getRetryBackoff(e, retry);
+        }
+
+        @Nullable
+        @Override
+        protected Session loadSession(@NonNull final SharedPreferences prefs, @NonNull final TestRequest request) {
+            return null;
+        }
+    }
+}
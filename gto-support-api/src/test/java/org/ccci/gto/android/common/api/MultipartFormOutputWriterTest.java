@@ -0,0 +1,94 @@
+package org.ccci.gto.android.common.api;
+
+import org.ccci.gto.android.common.api.AbstractApi.Request.MediaType;
+import org.ccci.gto.android.common.api.AbstractApi.Request.Parameter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultipartFormOutputWriterTest {
+    private static final String BOUNDARY = "-------boundary-------";
+    // larger than a single transfer chunk
+    private static final int FILE_SIZE = 100 * 1024;
+
+    @Rule
+    public TemporaryFolder mTmp = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setupFile() throws IOException {
+        mFile = mTmp.newFile("upload.bin");
+        writeBytes(mFile, FILE_SIZE, false);
+    }
+
+    @Test
+    public void verifyContentLengthMatchesBytesWritten() throws IOException {
+        final AtomicLong progress = new AtomicLong();
+        final MultipartFormOutputWriter writer = new MultipartFormOutputWriter(BOUNDARY, Arrays.asList(
+                new Parameter("a", "value"),
+                null,
+                new Parameter("b", mFile, null, null),
+                new Parameter("c", mFile, "other.txt", MediaType.APPLICATION_OCTET_STREAM)
+        ), progress::set);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertEquals(writer.getContentLength(), out.size());
+        assertEquals(writer.getContentLength(), progress.get());
+    }
+
+    @Test
+    public void verifyContentLengthEmptyForm() throws IOException {
+        final MultipartFormOutputWriter writer =
+                new MultipartFormOutputWriter(BOUNDARY, Arrays.<Parameter>asList());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertEquals(writer.getContentLength(), out.size());
+    }
+
+    @Test
+    public void verifyFileGrowingAfterContentLengthIsCapped() throws IOException {
+        final MultipartFormOutputWriter writer =
+                new MultipartFormOutputWriter(BOUNDARY, Arrays.asList(new Parameter("a", mFile, null, null)));
+        writeBytes(mFile, 1024, true);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertEquals(writer.getContentLength(), out.size());
+    }
+
+    @Test(expected = EOFException.class)
+    public void verifyFileTruncatedAfterContentLengthFails() throws IOException {
+        final MultipartFormOutputWriter writer =
+                new MultipartFormOutputWriter(BOUNDARY, Arrays.asList(new Parameter("a", mFile, null, null)));
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(FILE_SIZE / 2);
+        }
+
+        writer.writeTo(new ByteArrayOutputStream());
+    }
+
+    private static void writeBytes(final File file, final int count, final boolean append) throws IOException {
+        final byte[] data = new byte[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = (byte) i;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, append)) {
+            out.write(data);
+        }
+    }
+}
@@ -2,33 +2,48 @@ package org.ccci.gto.android.common.app;
 
 import android.app.Service;
 import android.content.Intent;
+import android.os.Bundle;
 import android.os.IBinder;
+import android.os.SystemClock;
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import org.ccci.gto.android.common.concurrent.NamedThreadFactory;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class ThreadedIntentService extends Service {
     public static final String EXTRA_PRIORITY = ThreadedIntentService.class.getName() + ".EXTRA_PRIORITY";
+    /**
+     * Optional deadline for an intent, as a {@link SystemClock#elapsedRealtime()} timestamp in milliseconds. Intents
+     * with an earlier deadline are run first within the same priority, and intents that haven't started by their
+     * deadline are passed to {@link #onDeadlineExpired(Intent)} instead of {@link #onHandleIntent(Intent)}.
+     */
+    public static final String EXTRA_DEADLINE = ThreadedIntentService.class.getName() + ".EXTRA_DEADLINE";
 
     public static final int PRIORITY_LOW = 20;
     public static final int PRIORITY_DEFAULT = 10;
     public static final int PRIORITY_HIGH = 0;
 
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
     private boolean mRedelivery;
 
     @NonNull
@@ -37,15 +52,29 @@ public abstract class ThreadedIntentService extends Service {
 
     private ThreadPoolExecutor mDefaultExecutor = null;
     private Executor mExecutor = null;
-    private final BlockingQueue<Future<Integer>> mTasks = new LinkedBlockingQueue<>();
+
+    private final AtomicLong mSequence = new AtomicLong();
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final Map<IntentKey, IntentRunnable> mQueued = new HashMap<>();
+    @GuardedBy("mLock")
+    private final TreeSet<Integer> mOutstanding = new TreeSet<>();
+    @GuardedBy("mLock")
+    private int mLastStartId = 0;
+    @GuardedBy("mLock")
+    private int mStoppedStartId = 0;
 
     protected ThreadedIntentService(@NonNull final String name) {
         this(name, 10);
     }
 
+    /**
+     * @param poolSize the maximum number of threads used by the default executor. The executor starts with one thread
+     *                 per CPU (up to this limit) and only grows towards it while intents are backing up.
+     */
     protected ThreadedIntentService(@NonNull final String name, final int poolSize) {
         mName = name;
-        mPoolSize = poolSize;
+        mPoolSize = Math.max(1, poolSize);
     }
 
     /* BEGIN lifecycle */
@@ -70,15 +99,41 @@ public abstract class ThreadedIntentService extends Service {
 
     @Override
     public int onStartCommand(@Nullable final Intent intent, final int flags, final int startId) {
-        final RunnableFuture<Integer> task = new IntentRunnable(intent, startId);
-        mTasks.add(task);
+        final IntentKey key = intent != null && isCoalescable(intent) ? new IntentKey(intent) : null;
+
+        final IntentRunnable task;
+        synchronized (mLock) {
+            mLastStartId = startId;
+            mOutstanding.add(startId);
+
+            // coalesce this intent into an identical intent that is still waiting to run
+            final IntentRunnable queued = key != null ? mQueued.get(key) : null;
+            if (queued != null) {
+                queued.mStartIds.add(startId);
+                return mRedelivery ? START_REDELIVER_INTENT : START_NOT_STICKY;
+            }
+
+            task = new IntentRunnable(intent, key, startId, mSequence.getAndIncrement());
+            if (key != null) {
+                mQueued.put(key, task);
+            }
+        }
+
         mExecutor.execute(task);
+        growDefaultExecutor();
         return mRedelivery ? START_REDELIVER_INTENT : START_NOT_STICKY;
     }
 
     @WorkerThread
     protected abstract void onHandleIntent(@Nullable Intent intent);
 
+    /**
+     * Called instead of {@link #onHandleIntent(Intent)} for an intent that didn't start before its
+     * {@link #EXTRA_DEADLINE}.
+     */
+    @WorkerThread
+    protected void onDeadlineExpired(@NonNull final Intent intent) {}
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -100,11 +155,21 @@ public abstract class ThreadedIntentService extends Service {
         mRedelivery = enabled;
     }
 
+    /**
+     * Whether the specified intent can be merged with an identical intent (same action, data, type, component,
+     * categories & extras) that is still waiting to run. Intents are processed once per delivery by default, subclasses
+     * can return true for intents where running once for several identical deliveries is sufficient.
+     */
+    protected boolean isCoalescable(@NonNull final Intent intent) {
+        return false;
+    }
+
     private Executor defaultExecutor() {
         // create the defaultExecutor if it doesn't exist yet
         if (mDefaultExecutor == null) {
             final BlockingQueue<Runnable> queue = new PriorityBlockingQueue<>(1, new IntentPriorityComparator());
-            mDefaultExecutor = new ThreadPoolExecutor(mPoolSize, mPoolSize, 10, TimeUnit.SECONDS, queue,
+            final int threads = baseThreads();
+            mDefaultExecutor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, queue,
                                                       new NamedThreadFactory(mName));
             mDefaultExecutor.allowCoreThreadTimeOut(true);
         }
@@ -112,63 +177,226 @@ public abstract class ThreadedIntentService extends Service {
         return mDefaultExecutor;
     }
 
-    void cleanDoneTasks() {
-        synchronized (mTasks) {
-            Future<Integer> task = mTasks.peek();
-            while (task != null && task.isDone()) {
-                final Future<Integer> task2 = mTasks.remove();
-                try {
-                    stopSelf(task2.get());
-                } catch (final InterruptedException e) {
-                    // suppress interrupted exceptions, but still signal a stop for the current task
-                    if (task2 instanceof IntentRunnable) {
-                        stopSelf(((IntentRunnable) task2).mStartId);
-                    }
-                } catch (final ExecutionException e) {
-                    // propagate runtime ExecutionExceptions
-                    final Throwable cause = e.getCause();
-                    if (cause instanceof RuntimeException) {
-                        throw (RuntimeException) cause;
-                    } else {
-                        throw new RuntimeException(cause);
-                    }
+    @Nullable
+    @VisibleForTesting
+    ThreadPoolExecutor getDefaultExecutor() {
+        return mDefaultExecutor;
+    }
+
+    private int baseThreads() {
+        return Math.min(mPoolSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    private void growDefaultExecutor() {
+        final ThreadPoolExecutor executor = mDefaultExecutor;
+        if (executor == null || executor != mExecutor) {
+            return;
+        }
+
+        // the executor uses an unbounded queue, so it will only ever add threads up to the core pool size
+        synchronized (mLock) {
+            final int threads = executor.getCorePoolSize();
+            final int backlog = executor.getQueue().size();
+            if (threads < mPoolSize && backlog > threads && !executor.isShutdown()) {
+                final int target = Math.min(mPoolSize, Math.max(threads + 1, backlog / 2));
+                executor.setMaximumPoolSize(target);
+                executor.setCorePoolSize(target);
+            }
+        }
+    }
+
+    private void shrinkDefaultExecutor() {
+        final ThreadPoolExecutor executor = mDefaultExecutor;
+        if (executor != null) {
+            synchronized (mLock) {
+                if (!executor.isShutdown()) {
+                    final int threads = baseThreads();
+                    executor.setCorePoolSize(threads);
+                    executor.setMaximumPoolSize(threads);
+                }
+            }
+        }
+    }
+
+    void onTaskStarted(@NonNull final IntentRunnable task) {
+        if (task.mKey != null) {
+            synchronized (mLock) {
+                if (mQueued.get(task.mKey) == task) {
+                    mQueued.remove(task.mKey);
                 }
+            }
+        }
+    }
+
+    void onTaskDone(@NonNull final IntentRunnable task) {
+        // stopSelf(startId) discards every start up to and including startId, so we can only stop the starts that
+        // were delivered before the oldest start that is still outstanding. Otherwise a long running task would lose
+        // its redelivery as soon as a newer task finished.
+        int stopStartId = 0;
+        final boolean idle;
+        synchronized (mLock) {
+            if (task.mKey != null && mQueued.get(task.mKey) == task) {
+                mQueued.remove(task.mKey);
+            }
+            mOutstanding.removeAll(task.mStartIds);
+            idle = mOutstanding.isEmpty();
 
-                task = mTasks.peek();
+            // every start before the oldest outstanding start has been handled
+            final int handled = idle ? mLastStartId : mOutstanding.first() - 1;
+            if (idle || handled > mStoppedStartId) {
+                stopStartId = handled;
+                mStoppedStartId = Math.max(mStoppedStartId, handled);
+            }
+        }
+
+        if (idle) {
+            shrinkDefaultExecutor();
+        }
+        if (stopStartId > 0) {
+            stopSelf(stopStartId);
+        }
+
+        // propagate runtime ExecutionExceptions
+        if (!task.isCancelled()) {
+            try {
+                task.get();
+            } catch (final InterruptedException e) {
+                // suppress interrupted exceptions, the task is already done
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new RuntimeException(cause);
+                }
             }
         }
     }
 
     final class IntentRunnable extends FutureTask<Integer> {
         final int mPriority;
-        final int mStartId;
+        final long mDeadline;
+        final long mSequence;
+        @Nullable
+        final IntentKey mKey;
+        @GuardedBy("mLock")
+        final List<Integer> mStartIds = new ArrayList<>(1);
 
-        IntentRunnable(@Nullable final Intent intent, final int startId) {
+        IntentRunnable(@Nullable final Intent intent, @Nullable final IntentKey key, final int startId,
+                       final long sequence) {
             super(new Callable<Integer>() {
                 @Override
                 public Integer call() {
-                    onHandleIntent(intent);
+                    if (intent != null && SystemClock.elapsedRealtime() > deadline(intent)) {
+                        onDeadlineExpired(intent);
+                    } else {
+                        onHandleIntent(intent);
+                    }
                     return startId;
                 }
             });
 
-            mStartId = startId;
+            mKey = key;
+            mSequence = sequence;
+            mStartIds.add(startId);
             mPriority = intent != null ? intent.getIntExtra(EXTRA_PRIORITY, PRIORITY_DEFAULT) : PRIORITY_DEFAULT;
+            mDeadline = intent != null ? deadline(intent) : NO_DEADLINE;
+        }
+
+        @Override
+        public void run() {
+            // once a task starts running later duplicates have to be processed separately
+            ThreadedIntentService.this.onTaskStarted(this);
+            super.run();
         }
 
         @Override
         protected void done() {
             super.done();
-            ThreadedIntentService.this.cleanDoneTasks();
+            ThreadedIntentService.this.onTaskDone(this);
         }
     }
 
+    static long deadline(@NonNull final Intent intent) {
+        return intent.getLongExtra(EXTRA_DEADLINE, NO_DEADLINE);
+    }
+
+    /**
+     * Orders tasks by priority, then by earliest deadline, then by the order they were started in.
+     */
     protected static class IntentPriorityComparator implements Comparator<Runnable> {
         @Override
         public int compare(final Runnable lhs, final Runnable rhs) {
-            final Integer lhsPri = lhs instanceof IntentRunnable ? ((IntentRunnable) lhs).mPriority : PRIORITY_DEFAULT;
-            final Integer rhsPri = rhs instanceof IntentRunnable ? ((IntentRunnable) rhs).mPriority : PRIORITY_DEFAULT;
-            return lhsPri.compareTo(rhsPri);
+            final IntentRunnable l = lhs instanceof IntentRunnable ? (IntentRunnable) lhs : null;
+            final IntentRunnable r = rhs instanceof IntentRunnable ? (IntentRunnable) rhs : null;
+
+            int result = compare(l != null ? l.mPriority : PRIORITY_DEFAULT,
+                                 r != null ? r.mPriority : PRIORITY_DEFAULT);
+            if (result == 0) {
+                result = compare(l != null ? l.mDeadline : NO_DEADLINE, r != null ? r.mDeadline : NO_DEADLINE);
+            }
+            if (result == 0) {
+                result = compare(l != null ? l.mSequence : Long.MAX_VALUE, r != null ? r.mSequence : Long.MAX_VALUE);
+            }
+            return result;
+        }
+
+        private static int compare(final long lhs, final long rhs) {
+            return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+        }
+    }
+
+    /**
+     * Identity of an intent for coalescing: {@link Intent#filterEquals(Intent)} plus equal extras.
+     */
+    static final class IntentKey {
+        @NonNull
+        private final Intent mIntent;
+        private final int mHashCode;
+
+        IntentKey(@NonNull final Intent intent) {
+            mIntent = intent;
+            final Bundle extras = intent.getExtras();
+            mHashCode = 31 * intent.filterHashCode() + (extras != null ? extras.keySet().hashCode() : 0);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IntentKey)) {
+                return false;
+            }
+            final IntentKey other = (IntentKey) o;
+            return mHashCode == other.mHashCode && mIntent.filterEquals(other.mIntent) &&
+                    extrasEqual(mIntent.getExtras(), other.mIntent.getExtras());
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @SuppressWarnings("deprecation")
+        private static boolean extrasEqual(@Nullable final Bundle lhs, @Nullable final Bundle rhs) {
+            if (lhs == null || rhs == null) {
+                return lhs == rhs || (lhs != null ? lhs.isEmpty() : rhs.isEmpty());
+            }
+            if (!lhs.keySet().equals(rhs.keySet())) {
+                return false;
+            }
+            for (final String key : lhs.keySet()) {
+                final Object l = lhs.get(key);
+                final Object r = rhs.get(key);
+                if (l == null ? r != null : !l.equals(r)) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 }
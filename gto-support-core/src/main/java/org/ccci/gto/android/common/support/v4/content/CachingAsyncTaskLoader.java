@@ -6,14 +6,27 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.loader.content.AsyncTaskLoader;
 
+import org.ccci.gto.android.common.util.CacheStats;
+
 public abstract class CachingAsyncTaskLoader<D> extends AsyncTaskLoader<D> {
     @Nullable
     private D mData;
 
+    @Nullable
+    private volatile CacheStats mCacheStats;
+
     public CachingAsyncTaskLoader(@NonNull final Context context) {
         super(context);
     }
 
+    /**
+     * Record whether starting this loader was able to reuse the cached data, and how long loads take, in the
+     * specified CacheStats. The same CacheStats can be shared by multiple loaders.
+     */
+    public final void setCacheStats(@Nullable final CacheStats stats) {
+        mCacheStats = stats;
+    }
+
     /* BEGIN lifecycle */
 
     @Override
@@ -27,11 +40,34 @@ public abstract class CachingAsyncTaskLoader<D> extends AsyncTaskLoader<D> {
         }
 
         // force a fresh load if needed
-        if (takeContentChanged() || mData == null) {
+        final boolean reload = takeContentChanged() || mData == null;
+        final CacheStats stats = mCacheStats;
+        if (stats != null) {
+            if (reload) {
+                stats.recordMiss();
+            } else {
+                stats.recordHit();
+            }
+        }
+        if (reload) {
             forceLoad();
         }
     }
 
+    @Nullable
+    @Override
+    protected D onLoadInBackground() {
+        final CacheStats stats = mCacheStats;
+        final long start = System.nanoTime();
+        try {
+            return super.onLoadInBackground();
+        } finally {
+            if (stats != null) {
+                stats.recordLoad(System.nanoTime() - start);
+            }
+        }
+    }
+
     @Override
     @MainThread
     protected void onReset() {
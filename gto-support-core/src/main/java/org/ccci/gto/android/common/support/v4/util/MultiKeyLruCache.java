@@ -5,6 +5,10 @@ import androidx.collection.LruCache;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * @deprecated Since v3.7.0, use {@link org.ccci.gto.android.common.util.ConcurrentLruCache} instead.
+ */
+@Deprecated
 public class MultiKeyLruCache<K, V> extends LruCache<K, V> {
     private final Map<V, Integer> mCopies = new HashMap<>();
     private int mSizeGap = 0;
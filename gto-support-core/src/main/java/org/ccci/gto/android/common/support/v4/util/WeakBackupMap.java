@@ -0,0 +1,51 @@
+package org.ccci.gto.android.common.support.v4.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * Weak references to evicted cache values. Entries for values that have been garbage collected are purged via a
+ * ReferenceQueue whenever the map is accessed, so the map doesn't grow without bound.
+ */
+final class WeakBackupMap<K, V> {
+    private final Map<K, KeyedReference<K, V>> mBackup = new ArrayMap<>();
+    private final ReferenceQueue<V> mQueue = new ReferenceQueue<>();
+
+    synchronized void put(@NonNull final K key, @NonNull final V value) {
+        purge();
+        mBackup.put(key, new KeyedReference<>(key, value, mQueue));
+    }
+
+    @Nullable
+    synchronized V remove(@NonNull final K key) {
+        purge();
+        final KeyedReference<K, V> ref = mBackup.remove(key);
+        return ref != null ? ref.get() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        for (Reference<? extends V> ref = mQueue.poll(); ref != null; ref = mQueue.poll()) {
+            final K key = ((KeyedReference<K, V>) ref).mKey;
+            if (mBackup.get(key) == ref) {
+                mBackup.remove(key);
+            }
+        }
+    }
+
+    private static final class KeyedReference<K, V> extends WeakReference<V> {
+        @NonNull
+        final K mKey;
+
+        KeyedReference(@NonNull final K key, @NonNull final V value, @NonNull final ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            mKey = key;
+        }
+    }
+}
@@ -2,19 +2,19 @@ package org.ccci.gto.android.common.support.v4.util;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.collection.ArrayMap;
 import androidx.collection.LruCache;
 
-import java.lang.ref.WeakReference;
-import java.util.Map;
-
 /**
  * LruCache that will maintain a weak reference to evicted items to try and reuse the items if they are still alive in
  * memory. Due to the final behavior of remove you should use {@link WeakLruCache#removeWeak(Object)} instead of {@link
  * LruCache#remove(Object)} to ensure an item is actually removed from the cache.
+ *
+ * @deprecated Since v3.7.0, use {@link org.ccci.gto.android.common.util.ConcurrentLruCache} with weak backups enabled
+ * instead.
  */
+@Deprecated
 public class WeakLruCache<K, V> extends LruCache<K, V> {
-    private final Map<K, WeakReference<V>> mBackup = new ArrayMap<>();
+    private final WeakBackupMap<K, V> mBackup = new WeakBackupMap<>();
 
     public WeakLruCache(final int maxSize) {
         super(maxSize);
@@ -23,24 +23,18 @@ public class WeakLruCache<K, V> extends LruCache<K, V> {
     @Override
     protected void entryRemoved(final boolean evicted, final K key, final V oldValue, final V newValue) {
         super.entryRemoved(evicted, key, oldValue, newValue);
-        synchronized (mBackup) {
-            if (evicted) {
-                mBackup.put(key, new WeakReference<>(oldValue));
-            } else {
-                mBackup.remove(key);
-            }
+        if (evicted) {
+            mBackup.put(key, oldValue);
+        } else {
+            mBackup.remove(key);
         }
     }
 
     @Override
     protected final V create(final K key) {
-        final WeakReference<V> ref;
-        synchronized (mBackup) {
-            ref = mBackup.remove(key);
-        }
-
-        if (ref != null) {
-            return ref.get();
+        final V value = mBackup.remove(key);
+        if (value != null) {
+            return value;
         }
         return super.create(key);
     }
@@ -49,10 +43,7 @@ public class WeakLruCache<K, V> extends LruCache<K, V> {
     public final V removeWeak(@NonNull final K key) {
         final V val = remove(key);
         if (val == null) {
-            synchronized (mBackup) {
-                final WeakReference<V> ref = mBackup.remove(key);
-                return ref != null ? ref.get() : null;
-            }
+            return mBackup.remove(key);
         }
         return val;
     }
@@ -1,12 +1,11 @@
 package org.ccci.gto.android.common.support.v4.util;
 
-import androidx.collection.ArrayMap;
-
-import java.lang.ref.WeakReference;
-import java.util.Map;
-
+/**
+ * @deprecated Since v3.7.0, use {@link org.ccci.gto.android.common.util.ConcurrentLruCache} instead.
+ */
+@Deprecated
 public class WeakMultiKeyLruCache<K, V> extends MultiKeyLruCache<K, V> {
-    private final Map<K, WeakReference<V>> mBackup = new ArrayMap<>();
+    private final WeakBackupMap<K, V> mBackup = new WeakBackupMap<>();
 
     public WeakMultiKeyLruCache(final int maxSize) {
         super(maxSize);
@@ -15,24 +14,18 @@ public class WeakMultiKeyLruCache<K, V> extends MultiKeyLruCache<K, V> {
     @Override
     protected void entryRemoved(final boolean evicted, final K key, final V oldValue, final V newValue) {
         super.entryRemoved(evicted, key, oldValue, newValue);
-        synchronized (mBackup) {
-            if (evicted) {
-                mBackup.put(key, new WeakReference<>(oldValue));
-            } else {
-                mBackup.remove(key);
-            }
+        if (evicted) {
+            mBackup.put(key, oldValue);
+        } else {
+            mBackup.remove(key);
         }
     }
 
     @Override
     protected final V createMulti(final K key) {
-        final WeakReference<V> ref;
-        synchronized (mBackup) {
-            ref = mBackup.remove(key);
-        }
-
-        if (ref != null) {
-            return ref.get();
+        final V value = mBackup.remove(key);
+        if (value != null) {
+            return value;
         }
         return super.createMulti(key);
     }
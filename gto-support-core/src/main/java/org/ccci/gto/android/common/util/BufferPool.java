@@ -0,0 +1,57 @@
+package org.ccci.gto.android.common.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * A small bounded pool of fixed-size buffer segments, modeled after okio's SegmentPool. Only a limited number of
+ * segments are retained, any additional recycled segments are left for the garbage collector.
+ */
+final class BufferPool {
+    static final int SEGMENT_SIZE = 16 * 1024;
+    static final int MAX_POOLED_SEGMENTS = 4;
+
+    private static final ArrayDeque<byte[]> BYTES = new ArrayDeque<>(MAX_POOLED_SEGMENTS);
+    private static final ArrayDeque<char[]> CHARS = new ArrayDeque<>(MAX_POOLED_SEGMENTS);
+
+    private BufferPool() {}
+
+    @NonNull
+    static byte[] takeBytes() {
+        synchronized (BYTES) {
+            final byte[] buffer = BYTES.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[SEGMENT_SIZE];
+    }
+
+    static void recycle(@NonNull final byte[] buffer) {
+        synchronized (BYTES) {
+            if (BYTES.size() < MAX_POOLED_SEGMENTS) {
+                BYTES.push(buffer);
+            }
+        }
+    }
+
+    @NonNull
+    static char[] takeChars() {
+        synchronized (CHARS) {
+            final char[] buffer = CHARS.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new char[SEGMENT_SIZE];
+    }
+
+    static void recycle(@NonNull final char[] buffer) {
+        synchronized (CHARS) {
+            if (CHARS.size() < MAX_POOLED_SEGMENTS) {
+                CHARS.push(buffer);
+            }
+        }
+    }
+}
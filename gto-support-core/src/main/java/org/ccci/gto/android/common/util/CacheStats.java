@@ -0,0 +1,210 @@
+package org.ccci.gto.android.common.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import timber.log.Timber;
+
+/**
+ * Hit, miss, weak resurrection & eviction counts, load latencies and an estimated byte size for a cache.
+ *
+ * Counters are striped across threads so recording is cheap enough for the hot path of a cache lookup. Use
+ * {@link #snapshot()} to read a consistent-enough copy of the current statistics at runtime, or {@link #log(String)}
+ * to export them to Timber (and any Crashlytics tree planted in Timber).
+ */
+public final class CacheStats {
+    // load time histogram buckets are powers of two milliseconds: <1ms, <2ms, <4ms, ... and a final overflow bucket
+    static final int LOAD_TIME_BUCKETS = 16;
+
+    private final StripedCounter mHits = new StripedCounter();
+    private final StripedCounter mMisses = new StripedCounter();
+    private final StripedCounter mWeakHits = new StripedCounter();
+    private final StripedCounter mEvictions = new StripedCounter();
+    private final AtomicLongArray mLoadTimes = new AtomicLongArray(LOAD_TIME_BUCKETS);
+    private final AtomicLong mTotalLoadTime = new AtomicLong();
+    private final AtomicLong mEstimatedBytes = new AtomicLong();
+
+    public void recordHit() {
+        mHits.increment();
+    }
+
+    public void recordMiss() {
+        mMisses.increment();
+    }
+
+    public void recordWeakHit() {
+        mWeakHits.increment();
+    }
+
+    public void recordEviction() {
+        mEvictions.increment();
+    }
+
+    public void recordLoad(final long nanos) {
+        mTotalLoadTime.addAndGet(nanos);
+        mLoadTimes.incrementAndGet(loadTimeBucket(TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    /**
+     * Adjust the estimated number of bytes retained by the cache.
+     */
+    public void addEstimatedBytes(final long delta) {
+        mEstimatedBytes.addAndGet(delta);
+    }
+
+    public long hitCount() {
+        return mHits.sum();
+    }
+
+    public long missCount() {
+        return mMisses.sum();
+    }
+
+    public long weakHitCount() {
+        return mWeakHits.sum();
+    }
+
+    public long evictionCount() {
+        return mEvictions.sum();
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        final long[] loadTimes = new long[LOAD_TIME_BUCKETS];
+        for (int i = 0; i < LOAD_TIME_BUCKETS; i++) {
+            loadTimes[i] = mLoadTimes.get(i);
+        }
+        return new Snapshot(mHits.sum(), mMisses.sum(), mWeakHits.sum(), mEvictions.sum(), loadTimes,
+                            mTotalLoadTime.get(), mEstimatedBytes.get());
+    }
+
+    /**
+     * Log the current statistics to Timber. Timber is an optional dependency, so the app needs to include Timber
+     * itself to use this.
+     */
+    public void log(@NonNull final String name) {
+        log(name, Log.INFO);
+    }
+
+    public void log(@NonNull final String name, final int priority) {
+        Timber.tag("CacheStats").log(priority, "%s: %s", name, snapshot());
+    }
+
+    static int loadTimeBucket(final long millis) {
+        int bucket = 0;
+        while (bucket < LOAD_TIME_BUCKETS - 1 && millis >= 1L << bucket) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    public static final class Snapshot {
+        public final long hitCount;
+        public final long missCount;
+        public final long weakHitCount;
+        public final long evictionCount;
+        public final long estimatedBytes;
+        public final long totalLoadTimeNanos;
+        @NonNull
+        private final long[] mLoadTimes;
+
+        Snapshot(final long hits, final long misses, final long weakHits, final long evictions,
+                 @NonNull final long[] loadTimes, final long totalLoadTime, final long estimatedBytes) {
+            hitCount = hits;
+            missCount = misses;
+            weakHitCount = weakHits;
+            evictionCount = evictions;
+            mLoadTimes = loadTimes;
+            totalLoadTimeNanos = totalLoadTime;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public long requestCount() {
+            return hitCount + weakHitCount + missCount;
+        }
+
+        public double hitRate() {
+            final long requests = requestCount();
+            return requests > 0 ? (double) (hitCount + weakHitCount) / requests : 1.0;
+        }
+
+        public long loadCount() {
+            long count = 0;
+            for (final long bucket : mLoadTimes) {
+                count += bucket;
+            }
+            return count;
+        }
+
+        /**
+         * @return the upper bound in milliseconds of the histogram bucket containing the requested percentile of load
+         * times, or -1 if there were no loads or the percentile falls in the overflow bucket.
+         */
+        public long loadTimePercentileMillis(final double percentile) {
+            final long loads = loadCount();
+            if (loads == 0) {
+                return -1;
+            }
+
+            final long target = (long) Math.ceil(loads * percentile);
+            long seen = 0;
+            for (int i = 0; i < LOAD_TIME_BUCKETS - 1; i++) {
+                seen += mLoadTimes[i];
+                if (seen >= target) {
+                    return 1L << i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return a copy of the load time histogram. Bucket {@code i} counts loads that took less than {@code 2^i}
+         * milliseconds (and at least {@code 2^(i-1)}), the last bucket counts all slower loads.
+         */
+        @NonNull
+        public long[] loadTimeHistogram() {
+            return Arrays.copyOf(mLoadTimes, mLoadTimes.length);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            final long loads = loadCount();
+            return String.format(Locale.US, "hits=%d weakHits=%d misses=%d hitRate=%.3f evictions=%d loads=%d "
+                                         + "avgLoadMs=%.2f p50LoadMs<%d p95LoadMs<%d bytes=%d",
+                                 hitCount, weakHitCount, missCount, hitRate(), evictionCount, loads,
+                                 loads > 0 ? totalLoadTimeNanos / 1e6 / loads : 0.0,
+                                 loadTimePercentileMillis(0.5), loadTimePercentileMillis(0.95), estimatedBytes);
+        }
+    }
+
+    /**
+     * A counter spread across multiple padded cells indexed by thread, so concurrent increments rarely contend.
+     */
+    private static final class StripedCounter {
+        private static final int STRIPES = 8;
+        // pad cells to separate cache lines
+        private static final int STRIDE = 8;
+
+        private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * STRIDE);
+
+        void increment() {
+            mCells.incrementAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += mCells.get(i * STRIDE);
+            }
+            return sum;
+        }
+    }
+}
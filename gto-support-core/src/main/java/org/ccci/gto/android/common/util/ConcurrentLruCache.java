@@ -0,0 +1,423 @@
+package org.ccci.gto.android.common.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, size bounded LRU cache. Entries are spread across independently locked segments so that concurrent
+ * lookups don't contend on a single monitor. Each segment maintains its own LRU ordering and eviction round-robins
+ * across segments, so eviction order is approximately least-recently-used for the entire cache.
+ *
+ * Multiple keys mapping to equal values only count the size of that value once towards the maximum size of the cache.
+ * When weak backups are enabled evicted values are retained via a weak reference and will be returned by
+ * {@link #get(Object)} if they are still in memory. Weak backups for values that have been garbage collected are purged
+ * incrementally as the cache is accessed, and the number of weak backups can be capped.
+ */
+public class ConcurrentLruCache<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+    private static final int MAX_CONCURRENCY_LEVEL = 64;
+
+    @NonNull
+    private final Segment<K, V>[] mSegments;
+    @NonNull
+    private final Map<V, Integer>[] mCopies;
+    private final AtomicInteger mNextEviction = new AtomicInteger();
+    private volatile int mMaxSize;
+
+    // size of all entries & size of all distinct values
+    private final AtomicInteger mSize = new AtomicInteger();
+    private final AtomicInteger mDistinctSize = new AtomicInteger();
+    private final AtomicInteger mWeakSize = new AtomicInteger();
+
+    private final CacheStats mStats = new CacheStats();
+    private final AtomicLong mPutCount = new AtomicLong();
+    private final AtomicLong mCreateCount = new AtomicLong();
+
+    public ConcurrentLruCache(final int maxSize) {
+        this(maxSize, false);
+    }
+
+    public ConcurrentLruCache(final int maxSize, final boolean weakBackup) {
+        this(maxSize, DEFAULT_CONCURRENCY_LEVEL, weakBackup);
+    }
+
+    public ConcurrentLruCache(final int maxSize, final int concurrencyLevel, final boolean weakBackup) {
+        this(maxSize, concurrencyLevel, weakBackup ? Integer.MAX_VALUE : 0);
+    }
+
+    /**
+     * @param maxWeakSize the maximum number of weak backups of evicted values to retain, 0 disables weak backups.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(final int maxSize, final int concurrencyLevel, final int maxWeakSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mMaxSize = maxSize;
+
+        // don't use more segments than we can hold entries, this keeps exact LRU ordering for tiny caches
+        final int level = Math.min(Math.min(concurrencyLevel, MAX_CONCURRENCY_LEVEL), maxSize);
+        int segments = 1;
+        while (segments << 1 <= level) {
+            segments <<= 1;
+        }
+
+        mSegments = new Segment[segments];
+        mCopies = new Map[segments];
+        final int maxSegmentWeakSize = maxWeakSize / segments + (maxWeakSize % segments > 0 ? 1 : 0);
+        for (int i = 0; i < segments; i++) {
+            mSegments[i] = new Segment<>(maxSegmentWeakSize);
+            mCopies[i] = new HashMap<>();
+        }
+    }
+
+    @Nullable
+    public final V get(@NonNull final K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.mEntries.get(key);
+            if (value != null) {
+                mStats.recordHit();
+                return value;
+            }
+
+            // check for a weak backup of an evicted value
+            value = removeBackup(segment, key);
+        }
+
+        if (value != null) {
+            mStats.recordWeakHit();
+        } else {
+            mStats.recordMiss();
+            final long start = System.nanoTime();
+            value = create(key);
+            if (value == null) {
+                return null;
+            }
+            mStats.recordLoad(System.nanoTime() - start);
+            mCreateCount.incrementAndGet();
+        }
+
+        // store the value, unless a value was stored for this key while we weren't holding the lock
+        final V existing;
+        synchronized (segment) {
+            existing = segment.mEntries.get(key);
+            if (existing == null) {
+                segment.mEntries.put(key, value);
+                addEntry(key, value);
+            }
+        }
+
+        if (existing != null) {
+            entryRemoved(false, key, value, existing);
+            return existing;
+        }
+        trimToSize(mMaxSize);
+        return value;
+    }
+
+    @Nullable
+    public final V put(@NonNull final K key, @NonNull final V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        final V previous;
+        synchronized (segment) {
+            mPutCount.incrementAndGet();
+            previous = segment.mEntries.put(key, value);
+            removeBackup(segment, key);
+            addEntry(key, value);
+            if (previous != null) {
+                removeEntry(key, previous);
+            }
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous, value);
+        }
+        trimToSize(mMaxSize);
+        return previous;
+    }
+
+    /**
+     * Remove the specified key from the cache, including any weak backup of a previously evicted value.
+     *
+     * @return the previous value for the key if it is still in memory.
+     */
+    @Nullable
+    public final V remove(@NonNull final K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        final V previous;
+        final V backup;
+        synchronized (segment) {
+            previous = segment.mEntries.remove(key);
+            if (previous != null) {
+                removeEntry(key, previous);
+            }
+            backup = removeBackup(segment, key);
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous, null);
+            return previous;
+        }
+        return backup;
+    }
+
+    public final void evictAll() {
+        trimToSize(-1);
+    }
+
+    /**
+     * Evict entries until the size of all distinct values in the cache is at or below the requested size.
+     */
+    public void trimToSize(final int maxSize) {
+        int emptySegments = 0;
+        while (mDistinctSize.get() > maxSize && emptySegments < mSegments.length) {
+            final Segment<K, V> segment = mSegments[mNextEviction.getAndIncrement() & (mSegments.length - 1)];
+            final K key;
+            final V value;
+            synchronized (segment) {
+                final Iterator<Map.Entry<K, V>> i = segment.mEntries.entrySet().iterator();
+                if (!i.hasNext()) {
+                    emptySegments++;
+                    continue;
+                }
+
+                final Map.Entry<K, V> eldest = i.next();
+                key = eldest.getKey();
+                value = eldest.getValue();
+                i.remove();
+                removeEntry(key, value);
+                addBackup(segment, key, value);
+            }
+
+            emptySegments = 0;
+            mStats.recordEviction();
+            entryRemoved(true, key, value, null);
+        }
+    }
+
+    /**
+     * @return the combined size of all entries in the cache. Keys sharing a value each contribute to this size.
+     */
+    public final int size() {
+        return mSize.get();
+    }
+
+    public final int maxSize() {
+        return mMaxSize;
+    }
+
+    public void resize(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * @return the statistics for this cache. Loads are timed for values returned by {@link #create(Object)}.
+     */
+    @NonNull
+    public final CacheStats stats() {
+        return mStats;
+    }
+
+    public final long hitCount() {
+        return mStats.hitCount();
+    }
+
+    public final long missCount() {
+        return mStats.missCount();
+    }
+
+    public final long putCount() {
+        return mPutCount.get();
+    }
+
+    public final long createCount() {
+        return mCreateCount.get();
+    }
+
+    public final long evictionCount() {
+        return mStats.evictionCount();
+    }
+
+    /**
+     * @return the number of weak backups of evicted values currently retained by the cache.
+     */
+    public final int weakSize() {
+        return mWeakSize.get();
+    }
+
+    /**
+     * @return the number of lookups that missed the cache but were able to resurrect an evicted value from its weak
+     * backup. The resurrection hit rate is {@code weakHitCount() / (weakHitCount() + missCount())}.
+     */
+    public final long weakHitCount() {
+        return mStats.weakHitCount();
+    }
+
+    protected int sizeOf(@NonNull final K key, @NonNull final V value) {
+        return 1;
+    }
+
+    /**
+     * Estimate the number of bytes retained by the specified value, this is reported via {@link #stats()}.
+     */
+    protected long estimateBytes(@NonNull final K key, @NonNull final V value) {
+        return 0;
+    }
+
+    @Nullable
+    protected V create(@NonNull final K key) {
+        return null;
+    }
+
+    /**
+     * Called for entries that have been evicted, removed or replaced. This is called without holding any locks.
+     */
+    protected void entryRemoved(final boolean evicted, @NonNull final K key, @NonNull final V oldValue,
+                                @Nullable final V newValue) {}
+
+    @NonNull
+    private Segment<K, V> segmentFor(@NonNull final Object key) {
+        return mSegments[spread(key.hashCode()) & (mSegments.length - 1)];
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void addEntry(@NonNull final K key, @NonNull final V value) {
+        final int size = safeSizeOf(key, value);
+        mSize.addAndGet(size);
+        if (updateCopies(value, 1) == 1) {
+            mDistinctSize.addAndGet(size);
+            mStats.addEstimatedBytes(estimateBytes(key, value));
+        }
+    }
+
+    private void removeEntry(@NonNull final K key, @NonNull final V value) {
+        final int size = safeSizeOf(key, value);
+        mSize.addAndGet(-size);
+        if (updateCopies(value, -1) == 0) {
+            mDistinctSize.addAndGet(-size);
+            mStats.addEstimatedBytes(-estimateBytes(key, value));
+        }
+    }
+
+    private int updateCopies(@NonNull final V value, final int delta) {
+        final Map<V, Integer> copies = mCopies[spread(value.hashCode()) & (mCopies.length - 1)];
+        synchronized (copies) {
+            final Integer current = copies.get(value);
+            final int count = (current != null ? current : 0) + delta;
+            if (count > 0) {
+                copies.put(value, count);
+            } else {
+                copies.remove(value);
+            }
+            return count;
+        }
+    }
+
+    // must be called while holding the segment lock
+    private void addBackup(@NonNull final Segment<K, V> segment, @NonNull final K key, @NonNull final V value) {
+        final Map<K, BackupReference<K, V>> backup = segment.mBackup;
+        if (backup == null) {
+            return;
+        }
+
+        purgeBackup(segment);
+        if (backup.put(key, new BackupReference<>(key, value, segment.mQueue)) == null) {
+            mWeakSize.incrementAndGet();
+        }
+
+        // enforce the cap on the weak tier by dropping the oldest backups
+        final Iterator<BackupReference<K, V>> i = backup.values().iterator();
+        while (backup.size() > segment.mMaxWeakSize && i.hasNext()) {
+            i.next();
+            i.remove();
+            mWeakSize.decrementAndGet();
+        }
+    }
+
+    // must be called while holding the segment lock
+    @Nullable
+    private V removeBackup(@NonNull final Segment<K, V> segment, @NonNull final K key) {
+        final Map<K, BackupReference<K, V>> backup = segment.mBackup;
+        if (backup == null) {
+            return null;
+        }
+
+        purgeBackup(segment);
+        final BackupReference<K, V> ref = backup.remove(key);
+        if (ref == null) {
+            return null;
+        }
+        mWeakSize.decrementAndGet();
+        return ref.get();
+    }
+
+    // must be called while holding the segment lock
+    @SuppressWarnings("unchecked")
+    private void purgeBackup(@NonNull final Segment<K, V> segment) {
+        final Map<K, BackupReference<K, V>> backup = segment.mBackup;
+        if (backup == null) {
+            return;
+        }
+
+        // remove backups for values that have been garbage collected
+        for (Reference<? extends V> ref = segment.mQueue.poll(); ref != null; ref = segment.mQueue.poll()) {
+            final K key = ((BackupReference<K, V>) ref).mKey;
+            if (backup.get(key) == ref) {
+                backup.remove(key);
+                mWeakSize.decrementAndGet();
+            }
+        }
+    }
+
+    private int safeSizeOf(@NonNull final K key, @NonNull final V value) {
+        final int size = sizeOf(key, value);
+        if (size < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return size;
+    }
+
+    private static final class Segment<K, V> {
+        final LinkedHashMap<K, V> mEntries = new LinkedHashMap<>(0, 0.75f, true);
+
+        // weak tier, ordered from oldest to newest backup
+        @Nullable
+        final LinkedHashMap<K, BackupReference<K, V>> mBackup;
+        final ReferenceQueue<V> mQueue = new ReferenceQueue<>();
+        final int mMaxWeakSize;
+
+        Segment(final int maxWeakSize) {
+            mBackup = maxWeakSize > 0 ? new LinkedHashMap<K, BackupReference<K, V>>() : null;
+            mMaxWeakSize = maxWeakSize;
+        }
+    }
+
+    private static final class BackupReference<K, V> extends WeakReference<V> {
+        @NonNull
+        final K mKey;
+
+        BackupReference(@NonNull final K key, @NonNull final V value, @NonNull final ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            mKey = key;
+        }
+    }
+}
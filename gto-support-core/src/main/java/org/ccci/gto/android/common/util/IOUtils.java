@@ -3,19 +3,18 @@ package org.ccci.gto.android.common.util;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 
 public final class IOUtils {
-    // 640K should be enough for anybody -Bill Gates
-    // (Bill Gates never actually said this)
-    private static final int DEFAULT_BUFFER_SIZE = 640 * 1024;
     private static final int EOF = -1;
+    // cap how much we pre-allocate based on an untrusted Content-Length
+    private static final int MAX_PRESIZE_LENGTH = 1024 * 1024;
 
     public static void closeQuietly(@Nullable final Closeable handle) {
         if (handle != null) {
@@ -39,31 +38,59 @@ public final class IOUtils {
 
     public static long copy(@NonNull final InputStream in, @NonNull final OutputStream out,
                             @Nullable final ProgressCallback progress) throws IOException {
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        long count = 0;
-        int n;
-        while (EOF != (n = in.read(buffer))) {
-            out.write(buffer, 0, n);
-            count += n;
-            if (progress != null) {
-                progress.progress(count);
+        final byte[] buffer = BufferPool.takeBytes();
+        try {
+            long count = 0;
+            int n;
+            while (EOF != (n = in.read(buffer))) {
+                out.write(buffer, 0, n);
+                count += n;
+                if (progress != null) {
+                    progress.progress(count);
+                }
             }
+            return count;
+        } finally {
+            BufferPool.recycle(buffer);
         }
-        return count;
     }
 
     @NonNull
     public static String readString(@NonNull final InputStream in) throws IOException {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"), DEFAULT_BUFFER_SIZE);
+        return readString(in, -1);
+    }
+
+    /**
+     * Read the provided UTF-8 encoded stream into a String.
+     *
+     * @param contentLength the expected length of the stream in bytes (e.g. from a Content-Length header), or -1 if
+     *                      unknown. This is only used to pre-size the output.
+     */
+    @NonNull
+    public static String readString(@NonNull final InputStream in, final long contentLength) throws IOException {
         final StringBuilder out = new StringBuilder();
-        final char[] buffer = new char[DEFAULT_BUFFER_SIZE];
-        int n;
-        while (EOF != (n = reader.read(buffer, 0, buffer.length))) {
-            out.append(buffer, 0, n);
+        if (contentLength > 0) {
+            // UTF-8 never decodes to more chars than there are bytes
+            out.ensureCapacity((int) Math.min(contentLength, MAX_PRESIZE_LENGTH));
+        }
+        final Reader reader = new InputStreamReader(in, "UTF-8");
+        final char[] buffer = BufferPool.takeChars();
+        try {
+            int n;
+            while (EOF != (n = reader.read(buffer, 0, buffer.length))) {
+                out.append(buffer, 0, n);
+            }
+        } finally {
+            BufferPool.recycle(buffer);
         }
         return out.toString();
     }
 
+    @NonNull
+    public static String readString(@NonNull final HttpURLConnection conn) throws IOException {
+        return readString(conn.getInputStream(), conn.getContentLength());
+    }
+
     public interface ProgressCallback {
         void progress(long count);
     }
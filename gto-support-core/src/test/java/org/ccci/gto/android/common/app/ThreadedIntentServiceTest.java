@@ -0,0 +1,208 @@
+package org.ccci.gto.android.common.app;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.shadows.ShadowService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(AndroidJUnit4.class)
+public class ThreadedIntentServiceTest {
+    private static final String ACTION = "action";
+    private static final String EXTRA_ID = "id";
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    private ServiceController<TestService> mController;
+    private TestService mService;
+    private ShadowService mShadow;
+
+    @Before
+    public void setup() {
+        mController = Robolectric.buildService(TestService.class);
+        mService = mController.get();
+        mShadow = shadowOf(mService);
+    }
+
+    @Test
+    public void verifyDeadlineExpired() {
+        mController.create();
+        final Intent expired = intent(1).putExtra(ThreadedIntentService.EXTRA_DEADLINE,
+                                                  SystemClock.elapsedRealtime() - 1);
+        final Intent pending = intent(2).putExtra(ThreadedIntentService.EXTRA_DEADLINE, Long.MAX_VALUE);
+        final Intent normal = intent(3);
+        mService.onStartCommand(expired, 0, 1);
+        mService.onStartCommand(pending, 0, 2);
+        mService.onStartCommand(normal, 0, 3);
+        mService.runAll();
+
+        assertThat(mService.mExpired, contains(expired));
+        assertThat(mService.mHandled, contains(pending, normal));
+    }
+
+    // region Coalescing
+    @Test
+    public void verifyNoCoalescingByDefault() {
+        mController.create();
+        mService.onStartCommand(intent(1), 0, 1);
+        mService.onStartCommand(intent(1), 0, 2);
+        assertEquals(2, mService.mTasks.size());
+
+        mService.run(0);
+        assertEquals(1, mShadow.getStopSelfId());
+        mService.run(0);
+        assertEquals(2, mShadow.getStopSelfId());
+        assertEquals(2, mService.mHandled.size());
+    }
+
+    @Test
+    public void verifyCoalescing() {
+        mService.mCoalesce = true;
+        mController.create();
+        mService.onStartCommand(intent(1), 0, 1);
+        mService.onStartCommand(intent(1), 0, 2);
+        mService.onStartCommand(intent(2), 0, 3);
+        assertEquals(2, mService.mTasks.size());
+
+        mService.run(0);
+        assertEquals(1, mService.mHandled.size());
+        assertEquals(2, mShadow.getStopSelfId());
+        mService.run(0);
+        assertEquals(2, mService.mHandled.size());
+        assertEquals(3, mShadow.getStopSelfId());
+    }
+    // endregion Coalescing
+
+    @Test
+    public void verifyOutOfOrderCompletionKeepsRedelivery() {
+        mService.setIntentRedelivery(true);
+        mController.create();
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Service.START_REDELIVER_INTENT, mService.onStartCommand(intent(i), 0, i));
+        }
+
+        // start 1 is still running, so stopping start 2 would drop the redelivery of start 1
+        mService.run(1);
+        assertFalse(mShadow.isStoppedBySelf());
+
+        // once start 1 is done every start before the oldest outstanding start (3) can be stopped
+        mService.run(0);
+        assertEquals(2, mShadow.getStopSelfId());
+        mService.run(1);
+        assertEquals(2, mShadow.getStopSelfId());
+
+        // stop the last start once we are idle
+        mService.run(0);
+        assertEquals(4, mShadow.getStopSelfId());
+    }
+
+    @Test
+    public void verifyDefaultExecutorGrowsAndShrinks() throws Exception {
+        mService.mManual = false;
+        mService.mRelease = new CountDownLatch(1);
+        mController.create();
+
+        final int count = TestService.POOL_SIZE * 4;
+        for (int i = 1; i <= count; i++) {
+            mService.onStartCommand(intent(i), 0, i);
+        }
+
+        // intents are backing up, so the executor grows to the pool size
+        final ThreadPoolExecutor executor = mService.getDefaultExecutor();
+        assertEquals(TestService.POOL_SIZE, executor.getCorePoolSize());
+
+        // once the service is idle the executor shrinks back to one thread per CPU
+        mService.mRelease.countDown();
+        final long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (mShadow.getStopSelfId() != count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, mShadow.getStopSelfId());
+        assertEquals(count, mService.mHandled.size());
+        assertEquals(CPUS, executor.getCorePoolSize());
+        assertEquals(CPUS, executor.getMaximumPoolSize());
+
+        mController.destroy();
+    }
+
+    @NonNull
+    private static Intent intent(final int id) {
+        return new Intent(ACTION).putExtra(EXTRA_ID, id);
+    }
+
+    public static class TestService extends ThreadedIntentService {
+        static final int POOL_SIZE = CPUS + 2;
+
+        final List<Runnable> mTasks = Collections.synchronizedList(new ArrayList<Runnable>());
+        final List<Intent> mHandled = Collections.synchronizedList(new ArrayList<Intent>());
+        final List<Intent> mExpired = Collections.synchronizedList(new ArrayList<Intent>());
+
+        boolean mManual = true;
+        boolean mCoalesce = false;
+        @Nullable
+        CountDownLatch mRelease;
+
+        public TestService() {
+            super("TestService", POOL_SIZE);
+        }
+
+        void run(final int index) {
+            mTasks.remove(index).run();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                run(0);
+            }
+        }
+
+        @Override
+        protected Executor onCreateExecutor() {
+            return mManual ? mTasks::add : null;
+        }
+
+        @Override
+        protected boolean isCoalescable(@NonNull final Intent intent) {
+            return mCoalesce;
+        }
+
+        @Override
+        protected void onHandleIntent(@Nullable final Intent intent) {
+            if (mRelease != null) {
+                try {
+                    mRelease.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            mHandled.add(intent);
+        }
+
+        @Override
+        protected void onDeadlineExpired(@NonNull final Intent intent) {
+            mExpired.add(intent);
+        }
+    }
+}
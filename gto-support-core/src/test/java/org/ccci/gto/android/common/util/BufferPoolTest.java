@@ -0,0 +1,43 @@
+package org.ccci.gto.android.common.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class BufferPoolTest {
+    @Test
+    public void verifyBytesAreReused() {
+        final byte[] buffer = BufferPool.takeBytes();
+        assertThat(buffer.length, is(BufferPool.SEGMENT_SIZE));
+        BufferPool.recycle(buffer);
+        assertThat(BufferPool.takeBytes(), is(sameInstance(buffer)));
+    }
+
+    @Test
+    public void verifyCharsAreReused() {
+        final char[] buffer = BufferPool.takeChars();
+        assertThat(buffer.length, is(BufferPool.SEGMENT_SIZE));
+        BufferPool.recycle(buffer);
+        assertThat(BufferPool.takeChars(), is(sameInstance(buffer)));
+    }
+
+    @Test
+    public void verifyPoolIsBounded() {
+        final byte[][] buffers = new byte[BufferPool.MAX_POOLED_SEGMENTS + 1][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = BufferPool.takeBytes();
+        }
+        for (final byte[] buffer : buffers) {
+            BufferPool.recycle(buffer);
+        }
+
+        // the last recycled buffer should have been discarded
+        final byte[] last = buffers[buffers.length - 1];
+        for (int i = 0; i < BufferPool.MAX_POOLED_SEGMENTS; i++) {
+            assertThat(BufferPool.takeBytes(), is(not(sameInstance(last))));
+        }
+    }
+}
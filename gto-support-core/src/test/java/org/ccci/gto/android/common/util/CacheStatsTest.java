@@ -0,0 +1,68 @@
+package org.ccci.gto.android.common.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CacheStatsTest {
+    @Test
+    public void verifyCounts() {
+        final CacheStats stats = new CacheStats();
+        stats.recordHit();
+        stats.recordHit();
+        stats.recordHit();
+        stats.recordWeakHit();
+        stats.recordMiss();
+        stats.recordEviction();
+        stats.addEstimatedBytes(100);
+        stats.addEstimatedBytes(-40);
+
+        assertEquals(3, stats.hitCount());
+        assertEquals(1, stats.weakHitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.evictionCount());
+
+        final CacheStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(3, snapshot.hitCount);
+        assertEquals(1, snapshot.weakHitCount);
+        assertEquals(1, snapshot.missCount);
+        assertEquals(1, snapshot.evictionCount);
+        assertEquals(60, snapshot.estimatedBytes);
+        assertEquals(5, snapshot.requestCount());
+        assertEquals(0.8, snapshot.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void verifyLoadTimeBucket() {
+        assertEquals(0, CacheStats.loadTimeBucket(0));
+        assertEquals(1, CacheStats.loadTimeBucket(1));
+        assertEquals(2, CacheStats.loadTimeBucket(2));
+        assertEquals(2, CacheStats.loadTimeBucket(3));
+        assertEquals(3, CacheStats.loadTimeBucket(4));
+        assertEquals(CacheStats.LOAD_TIME_BUCKETS - 1, CacheStats.loadTimeBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void verifyLoadTimes() {
+        final CacheStats stats = new CacheStats();
+        assertEquals(-1, stats.snapshot().loadTimePercentileMillis(0.5));
+
+        for (int i = 0; i < 9; i++) {
+            stats.recordLoad(TimeUnit.MICROSECONDS.toNanos(500));
+        }
+        stats.recordLoad(TimeUnit.MILLISECONDS.toNanos(10));
+
+        final CacheStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(10, snapshot.loadCount());
+        assertEquals(1, snapshot.loadTimePercentileMillis(0.5));
+        assertEquals(16, snapshot.loadTimePercentileMillis(0.95));
+
+        final long[] expected = new long[CacheStats.LOAD_TIME_BUCKETS];
+        expected[0] = 9;
+        expected[4] = 1;
+        assertArrayEquals(expected, snapshot.loadTimeHistogram());
+    }
+}
@@ -0,0 +1,204 @@
+package org.ccci.gto.android.common.util;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLruCacheTest {
+    private static final String KEY1 = "KEY1";
+    private static final String KEY2 = "KEY2";
+    private static final String VALUE1 = "VALUE1";
+    private static final String VALUE2 = "VALUE2";
+
+    @Test
+    public void verifyLruEviction() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals("A", cache.get("a"));
+
+        // b is the least recently used entry
+        cache.put("c", "C");
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void verifySharedValues() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(1);
+        final String sharedVal = "common value";
+
+        // populate cache
+        for (int i = 0; i < 100; i++) {
+            cache.put("KEY" + i, sharedVal);
+        }
+
+        // test cache
+        assertEquals(100, cache.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(sharedVal, cache.get("KEY" + i));
+        }
+
+        // force eviction
+        cache.put("OTHERKEY", "new val");
+
+        // test cache
+        assertNotNull(cache.get("OTHERKEY"));
+        assertEquals(1, cache.size());
+        for (int i = 0; i < 100; i++) {
+            assertNull(cache.get("KEY" + i));
+        }
+    }
+
+    @Test
+    public void verifyWeakBackup() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(1, true);
+
+        // create Strings this way to prevent usage of intern table
+        String val1 = new String(VALUE1);
+        String val2 = new String(VALUE2);
+
+        // populate the cache
+        cache.put(KEY1, val1);
+        cache.put(KEY2, val2);
+        assertEquals(1, cache.size());
+
+        // make sure both are still accessible
+        forceGc();
+        assertEquals(VALUE1, cache.get(KEY1));
+        assertEquals(VALUE2, cache.get(KEY2));
+
+        // wipe local copy and force GC, val1 should be missing now
+        val1 = null;
+        val2 = null;
+        forceGc();
+        assertNull(cache.get(KEY1));
+        assertEquals(VALUE2, cache.get(KEY2));
+    }
+
+    @Test
+    public void verifyRemoveIncludesWeakBackup() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(1, true);
+        cache.put(KEY1, VALUE1);
+        cache.put(KEY2, VALUE2);
+
+        assertEquals(VALUE1, cache.remove(KEY1));
+        assertEquals(VALUE2, cache.remove(KEY2));
+        assertEquals(0, cache.size());
+        assertNull(cache.get(KEY1));
+        assertNull(cache.get(KEY2));
+    }
+
+    @Test
+    public void verifyWeakBackupPurgedAfterGc() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(1, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put("KEY" + i, "VALUE" + i);
+        }
+        assertEquals(99, cache.weakSize());
+
+        // cleared backups are purged the next time the cache is accessed
+        forceGc();
+        cache.put(KEY1, VALUE1);
+        assertEquals(1, cache.weakSize());
+    }
+
+    @Test
+    public void verifyWeakBackupCap() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(1, 1, 2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.put("d", "D");
+        assertEquals(2, cache.weakSize());
+
+        // the oldest backup was dropped
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(1, cache.weakHitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void verifyCreate() {
+        final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+            @Override
+            protected String create(final String key) {
+                return key.toUpperCase();
+            }
+        };
+
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.createCount());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    public void verifyConcurrentAccess() throws Exception {
+        final int maxSize = 64;
+        final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<Integer, Integer>(maxSize, 8, false) {
+            @Override
+            protected Integer create(final Integer key) {
+                return key;
+            }
+        };
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10000; i++) {
+                        final int key = random.nextInt(256);
+                        if (random.nextBoolean()) {
+                            assertEquals(Integer.valueOf(key), cache.get(key));
+                        } else {
+                            cache.put(key, key);
+                        }
+                    }
+                } catch (final Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(error.get());
+        assertTrue(cache.size() <= maxSize);
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    static void forceGc() {
+        Object obj = new Object();
+        final WeakReference<Object> ref = new WeakReference<>(obj);
+        obj = null;
+        while (ref.get() != null) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (final InterruptedException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.ccci.gto.android.common.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class IOUtilsTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void verifyCopy() throws Exception {
+        final byte[] data = new byte[BufferPool.SEGMENT_SIZE * 3 + 17];
+        new Random(1).nextBytes(data);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(IOUtils.copy(new ByteArrayInputStream(data), out), is((long) data.length));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void verifyReadStringMultipleSegments() throws Exception {
+        // multi-byte characters that will straddle segment boundaries
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < BufferPool.SEGMENT_SIZE * 2) {
+            builder.append("a\u00e9\u4e2d\ud83d\ude00");
+        }
+        final String expected = builder.toString();
+        final byte[] data = expected.getBytes(UTF_8);
+
+        assertThat(IOUtils.readString(new ByteArrayInputStream(data)), is(expected));
+        assertThat(IOUtils.readString(new ByteArrayInputStream(data), data.length), is(expected));
+    }
+
+    @Test
+    public void verifyReadStringInaccurateContentLength() throws Exception {
+        final byte[] data = "test".getBytes(UTF_8);
+        assertThat(IOUtils.readString(new ByteArrayInputStream(data), 1), is("test"));
+        assertThat(IOUtils.readString(new ByteArrayInputStream(data), Long.MAX_VALUE), is("test"));
+        assertThat(IOUtils.readString(new ByteArrayInputStream(new byte[0]), 0), is(""));
+    }
+}
@@ -0,0 +1,104 @@
+package org.ccci.gto.android.common.util.benchmark;
+
+import org.ccci.gto.android.common.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the allocations of IOUtils.copy() and IOUtils.readString() against the previous implementation, which
+ * allocated a new 640 KB buffer for every call. Compare the gc.alloc.rate.norm results of the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IOUtilsBenchmark {
+    private static final int LEGACY_BUFFER_SIZE = 640 * 1024;
+    private static final int EOF = -1;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private byte[] mData;
+
+    @Setup
+    public void setup() {
+        mData = new byte[size];
+        Arrays.fill(mData, (byte) 'a');
+    }
+
+    @Benchmark
+    public long copy() throws IOException {
+        return IOUtils.copy(new ByteArrayInputStream(mData), NullOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public long copyLegacy() throws IOException {
+        return legacyCopy(new ByteArrayInputStream(mData), NullOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public String readString() throws IOException {
+        return IOUtils.readString(new ByteArrayInputStream(mData));
+    }
+
+    @Benchmark
+    public String readStringLegacy() throws IOException {
+        return legacyReadString(new ByteArrayInputStream(mData));
+    }
+
+    // region Legacy IOUtils implementation
+    private static long legacyCopy(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[LEGACY_BUFFER_SIZE];
+        long count = 0;
+        int n;
+        while (EOF != (n = in.read(buffer))) {
+            out.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+    private static String legacyReadString(final InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"), LEGACY_BUFFER_SIZE);
+        final StringBuilder out = new StringBuilder();
+        final char[] buffer = new char[LEGACY_BUFFER_SIZE];
+        int n;
+        while (EOF != (n = reader.read(buffer, 0, buffer.length))) {
+            out.append(buffer, 0, n);
+        }
+        return out.toString();
+    }
+    // endregion Legacy IOUtils implementation
+
+    private static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(final int b) {}
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {}
+    }
+}
@@ -36,6 +36,16 @@ interface AsyncDao : Dao {
     @JvmDefault
     fun updateOrInsertAsync(obj: Any, vararg projection: String) = runAsync { updateOrInsert(obj, *projection) }
 
+    @JvmDefault
+    fun insertAllAsync(objs: Collection<Any>) = insertAllAsync(objs, SQLiteDatabase.CONFLICT_NONE)
+
+    @JvmDefault
+    fun insertAllAsync(objs: Collection<Any>, conflictAlgorithm: Int) = runAsync { insertAll(objs, conflictAlgorithm) }
+
+    @JvmDefault
+    fun updateOrInsertAllAsync(objs: Collection<Any>, vararg projection: String) =
+        runAsync { updateOrInsertAll(objs, *projection) }
+
     companion object {
         @JvmSynthetic
         inline fun <T> AsyncDao.runAsync(crossinline block: () -> T): ListenableFuture<T> =
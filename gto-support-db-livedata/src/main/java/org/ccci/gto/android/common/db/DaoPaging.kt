@@ -0,0 +1,81 @@
+package org.ccci.gto.android.common.db
+
+import android.annotation.SuppressLint
+import androidx.annotation.MainThread
+import androidx.annotation.WorkerThread
+import androidx.lifecycle.LiveData
+import androidx.paging.DataSource
+import androidx.paging.LivePagedListBuilder
+import androidx.paging.PagedList
+import androidx.paging.PositionalDataSource
+
+/**
+ * A [DataSource.Factory] that pages through the results of a [Query] using LIMIT/OFFSET pages. Every [DataSource]
+ * created is registered with the [LiveDataRegistry] of the dao, so it is invalidated (and a new one created by the
+ * paging library) whenever an object of a type in the query is invalidated.
+ *
+ * The query is paged using its own limit & offset, so those should not be set on the query.
+ */
+class DaoDataSourceFactory<T : Any>(private val dao: LiveDataDao, private val query: Query<T>) :
+    DataSource.Factory<Int, T>() {
+    @SuppressLint("RestrictedApi")
+    override fun create(): DataSource<Int, T> = DaoPositionalDataSource(dao, query)
+        .also { with(dao.liveDataRegistry) { it.registerFor(query) } }
+}
+
+internal class DaoPositionalDataSource<T : Any>(private val dao: Dao, private val query: Query<T>) :
+    PositionalDataSource<T>(), DaoInvalidatable {
+    override fun invalidate() = super.invalidate()
+
+    @WorkerThread
+    override fun loadInitial(params: LoadInitialParams, callback: LoadInitialCallback<T>) {
+        var count = dao.getCount(query)
+        val position = computeInitialLoadPosition(params, count)
+        val size = computeInitialLoadSize(params, position, count)
+        val data = load(position, size)
+
+        // the table may have shrunk since we counted it, the pending invalidation will reload it
+        if (data.size < size) count = position + data.size
+
+        if (params.placeholdersEnabled) callback.onResult(data, position, count) else callback.onResult(data, position)
+    }
+
+    @WorkerThread
+    override fun loadRange(params: LoadRangeParams, callback: LoadRangeCallback<T>) =
+        callback.onResult(load(params.startPosition, params.loadSize))
+
+    private fun load(position: Int, size: Int) =
+        if (size > 0) dao.get(query.offset(position).limit(size)) else emptyList()
+}
+
+/**
+ * Returns a [LiveData] of a [PagedList] for the specified query. Only pages near the current position are held in
+ * memory, the rest of the list is represented by null placeholders.
+ *
+ * @param pageSize the number of objects to load in each page
+ * @param prefetchDistance how far from the edge of the loaded content to start loading the next page
+ * @param maxSize the maximum number of objects to keep loaded before dropping pages, this needs to be at least
+ *                `pageSize + 2 * prefetchDistance`
+ */
+@MainThread
+@JvmOverloads
+fun <T : Any> LiveDataDao.getPagedListLiveData(
+    query: Query<T>,
+    pageSize: Int = 20,
+    prefetchDistance: Int = pageSize,
+    maxSize: Int = 3 * pageSize + 2 * prefetchDistance
+): LiveData<PagedList<T>> {
+    val config = PagedList.Config.Builder()
+        .setPageSize(pageSize)
+        .setPrefetchDistance(prefetchDistance)
+        .setEnablePlaceholders(true)
+        .setMaxSize(maxSize)
+        .build()
+    return LivePagedListBuilder(DaoDataSourceFactory(this, query), config)
+        .setFetchExecutor(backgroundExecutor)
+        .build()
+}
+
+@JvmOverloads
+fun <T : Any> Query<T>.getAsPagedListLiveData(dao: LiveDataDao, pageSize: Int = 20) =
+    dao.getPagedListLiveData(this, pageSize)
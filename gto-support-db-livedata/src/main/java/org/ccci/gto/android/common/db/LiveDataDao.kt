@@ -2,6 +2,8 @@ package org.ccci.gto.android.common.db
 
 import android.annotation.SuppressLint
 import android.database.Cursor
+import android.os.Handler
+import android.os.Looper
 import androidx.annotation.AnyThread
 import androidx.annotation.MainThread
 import androidx.annotation.RestrictTo
@@ -17,9 +19,21 @@ interface LiveDataDao : Dao {
     @MainThread
     @JvmDefault
     @SuppressLint("RestrictedApi")
-    fun <T : Any> findLiveData(clazz: Class<T>, vararg key: Any) = DaoFindComputableLiveData(this, clazz, *key)
-        .also { with(liveDataRegistry) { it.registerFor(clazz) } }
-        .liveData
+    fun <T : Any> findLiveData(clazz: Class<T>, vararg key: Any): LiveData<T?> {
+        // register using the same primary key that AbstractDao invalidates objects with
+        val dao = this
+        val primaryKey = when (dao) {
+            is AbstractDao -> dao.primaryKeyFor(clazz, *key)
+            else -> AbstractDao.bindValues(*key).asList()
+        }
+        return DaoFindComputableLiveData(this, clazz, *key)
+            .also {
+                with(liveDataRegistry) {
+                    if (primaryKey != null) it.registerFor(clazz, primaryKey) else it.registerFor(clazz)
+                }
+            }
+            .liveData
+    }
 
     @MainThread
     @JvmDefault
@@ -36,10 +50,19 @@ interface LiveDataDao : Dao {
         .liveData
 }
 
+/**
+ * Something that is registered with a [LiveDataRegistry] and recomputed when invalidated.
+ */
+internal interface DaoInvalidatable {
+    fun invalidate()
+}
+
 // region DaoComputableLiveData
 @SuppressLint("RestrictedApi")
 internal sealed class DaoComputableLiveData<T>(protected val dao: LiveDataDao) :
-    ComputableLiveData<T>(dao.backgroundExecutor)
+    ComputableLiveData<T>(dao.backgroundExecutor), DaoInvalidatable {
+    override fun invalidate() = super.invalidate()
+}
 
 private class DaoFindComputableLiveData<T : Any>(
     dao: LiveDataDao,
@@ -60,39 +83,100 @@ private class DaoGetCursorComputableLiveData<T : Any>(dao: LiveDataDao, private
 }
 // endregion DaoComputableLiveData
 
-class LiveDataRegistry {
-    private val registry: SimpleArrayMap<Class<*>, MutableMap<ComputableLiveData<*>, Unit>> = SimpleArrayMap()
+private typealias LiveDataSet = MutableMap<DaoInvalidatable, Unit>
+
+/**
+ * Tracks active [LiveData] objects so they can be recomputed when the underlying data changes. Implementations of
+ * [LiveDataDao] should invalidate the registry from [AbstractDao.onInvalidateClass] and [AbstractDao.onInvalidateKeys].
+ *
+ * LiveData returned by [LiveDataDao.findLiveData] is only recomputed when its class is invalidated or its primary key
+ * is invalidated. Query LiveData is recomputed whenever any object of a type in the query is invalidated.
+ *
+ * @param coalesceDelay when greater than 0, invalidations within this many milliseconds of each other are coalesced so
+ *                      each LiveData is only recomputed once.
+ */
+class LiveDataRegistry @JvmOverloads constructor(private val coalesceDelay: Long = 0) {
+    private val registry: SimpleArrayMap<Class<*>, LiveDataSet> = SimpleArrayMap()
+    private val keyRegistry: SimpleArrayMap<Class<*>, MutableMap<List<String>, LiveDataSet>> = SimpleArrayMap()
 
-    @MainThread
-    internal fun DaoComputableLiveData<*>.registerFor(clazz: Class<*>) {
+    @AnyThread
+    internal fun DaoInvalidatable.registerFor(clazz: Class<*>) {
         synchronized(registry) {
-            (registry[clazz] ?: WeakHashMap<ComputableLiveData<*>, Unit>().also { registry.put(clazz, it) })[this] =
-                Unit
+            (registry[clazz] ?: WeakHashMap<DaoInvalidatable, Unit>().also { registry.put(clazz, it) })[this] = Unit
         }
     }
 
-    @MainThread
-    internal fun DaoComputableLiveData<*>.registerFor(query: Query<*>) {
+    @AnyThread
+    internal fun DaoInvalidatable.registerFor(clazz: Class<*>, key: List<String>) {
+        synchronized(registry) {
+            val keys = keyRegistry[clazz] ?: HashMap<List<String>, LiveDataSet>().also { keyRegistry.put(clazz, it) }
+            keys.getOrPut(key) { WeakHashMap() }[this] = Unit
+        }
+    }
+
+    @AnyThread
+    internal fun DaoInvalidatable.registerFor(query: Query<*>) {
         registerFor(query.table)
         query.joins.forEach { registerFor(it) }
     }
 
-    @MainThread
-    private fun DaoComputableLiveData<*>.registerFor(table: Table<*>) = registerFor(table.type)
+    @AnyThread
+    private fun DaoInvalidatable.registerFor(table: Table<*>) = registerFor(table.type)
 
-    @MainThread
-    private fun DaoComputableLiveData<*>.registerFor(join: Join<*, *>) {
+    @AnyThread
+    private fun DaoInvalidatable.registerFor(join: Join<*, *>) {
         join.base?.let { registerFor(it) }
         registerFor(join.target)
     }
 
     @AnyThread
-    @SuppressLint("RestrictedApi")
     fun invalidate(clazz: Class<*>) {
-        synchronized(registry) {
-            registry[clazz]?.keys?.forEach { it.invalidate() }
+        val invalid = synchronized(registry) {
+            val keys = keyRegistry[clazz]
+            keys?.values?.removeAll { it.isEmpty() }
+            registry[clazz]?.keys.orEmpty() + keys?.values?.flatMap { it.keys }.orEmpty()
+        }
+        invalidate(invalid)
+    }
+
+    /**
+     * Invalidate LiveData that could be affected by changes to the objects of type `clazz` with the specified primary
+     * keys.
+     */
+    @AnyThread
+    fun invalidate(clazz: Class<*>, keys: Collection<List<String>>) {
+        val invalid = synchronized(registry) {
+            val registered = keyRegistry[clazz]
+            registry[clazz]?.keys.orEmpty() + keys.flatMap { key ->
+                val liveData = registered?.get(key) ?: return@flatMap emptyList<DaoInvalidatable>()
+                if (liveData.isEmpty()) registered.remove(key)
+                liveData.keys.toList()
+            }
+        }
+        invalidate(invalid)
+    }
+
+    // region Coalescing
+    private val pending = mutableSetOf<DaoInvalidatable>()
+    private val handler by lazy { Handler(Looper.getMainLooper()) }
+    private val flushPending = Runnable {
+        synchronized(pending) { pending.toList().also { pending.clear() } }.forEach { it.invalidate() }
+    }
+
+    @AnyThread
+    private fun invalidate(liveData: Collection<DaoInvalidatable>) {
+        if (coalesceDelay <= 0) {
+            liveData.forEach { it.invalidate() }
+            return
+        }
+
+        synchronized(pending) {
+            val schedule = pending.isEmpty()
+            pending += liveData
+            if (schedule && pending.isNotEmpty()) handler.postDelayed(flushPending, coalesceDelay)
         }
     }
+    // endregion Coalescing
 }
 
 inline fun <reified T : Any> LiveDataDao.findLiveData(vararg key: Any) = findLiveData(T::class.java, *key)
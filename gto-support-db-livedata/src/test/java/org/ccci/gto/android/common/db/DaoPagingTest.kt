@@ -0,0 +1,67 @@
+package org.ccci.gto.android.common.db
+
+import androidx.paging.PositionalDataSource
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class DaoPagingTest {
+    private val registry = LiveDataRegistry()
+    private val query = Query.select(Obj::class.java)
+    lateinit var dao: LiveDataDao
+
+    @Before
+    fun setup() {
+        dao = mock()
+        whenever(dao.liveDataRegistry).thenReturn(registry)
+    }
+
+    @Test
+    fun verifyDataSourceInvalidatedByRegistry() {
+        val dataSource = DaoDataSourceFactory(dao, query).create()
+        assertFalse(dataSource.isInvalid)
+
+        registry.invalidate(String::class.java)
+        assertFalse(dataSource.isInvalid)
+        registry.invalidate(Obj::class.java)
+        assertTrue(dataSource.isInvalid)
+    }
+
+    @Test
+    fun verifyLoadInitialWithPlaceholders() {
+        whenever(dao.getCount(any())).thenReturn(100)
+        whenever(dao.get(any<Query<Obj>>())).thenReturn(List(20) { Obj() })
+
+        assertEquals(Triple(20, 0, 100), DaoPositionalDataSource(dao, query).loadInitial(20))
+        verify(dao).getCount(query)
+    }
+
+    @Test
+    fun verifyLoadInitialTableShrunk() {
+        whenever(dao.getCount(any())).thenReturn(100)
+        whenever(dao.get(any<Query<Obj>>())).thenReturn(List(5) { Obj() })
+
+        assertEquals(Triple(5, 0, 5), DaoPositionalDataSource(dao, query).loadInitial(20))
+    }
+
+    private fun DaoPositionalDataSource<Obj>.loadInitial(pageSize: Int): Triple<Int, Int, Int>? {
+        var result: Triple<Int, Int, Int>? = null
+        loadInitial(
+            PositionalDataSource.LoadInitialParams(0, pageSize, pageSize, true),
+            object : PositionalDataSource.LoadInitialCallback<Obj>() {
+                override fun onResult(data: List<Obj>, position: Int, totalCount: Int) {
+                    result = Triple(data.size, position, totalCount)
+                }
+
+                override fun onResult(data: List<Obj>, position: Int) = throw UnsupportedOperationException()
+            }
+        )
+        return result
+    }
+}
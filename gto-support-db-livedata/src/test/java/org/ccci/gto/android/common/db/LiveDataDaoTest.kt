@@ -0,0 +1,49 @@
+package org.ccci.gto.android.common.db
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.spy
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+
+@RunWith(AndroidJUnit4::class)
+class LiveDataDaoTest {
+    @get:Rule
+    val instantTaskRule = InstantTaskExecutorRule()
+
+    private val dao = spy(KeyedDao())
+
+    @Test
+    fun verifyFindLiveDataUsesPrimaryKeyExpression() {
+        doReturn(null).whenever(dao).find(Obj::class.java, 1)
+        doReturn(null).whenever(dao).find(Obj::class.java, 2)
+        dao.findLiveData(Obj::class.java, 1).observeForever {}
+        dao.findLiveData(Obj::class.java, 2).observeForever {}
+        verify(dao, times(1)).find(Obj::class.java, 1)
+        verify(dao, times(1)).find(Obj::class.java, 2)
+
+        // the invalidated key includes the constant argument of the primary key Expression
+        dao.liveDataRegistry.invalidate(Obj::class.java, listOf(listOf("0", "1")))
+        verify(dao, times(2)).find(Obj::class.java, 1)
+        verify(dao, times(1)).find(Obj::class.java, 2)
+    }
+
+    open class KeyedDao : AbstractDao(mock()), LiveDataDao {
+        init {
+            registerType(
+                Obj::class.java, "obj",
+                pkWhere = Expression.field("deleted").eq("0").and(Expression.field("id").eq(Expression.bind()))
+            )
+        }
+
+        override val liveDataRegistry = LiveDataRegistry()
+        override val backgroundExecutor = Executor { it.run() }
+    }
+}
@@ -2,6 +2,8 @@ package org.ccci.gto.android.common.db
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
@@ -10,6 +12,7 @@ import kotlinx.coroutines.yield
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
+import java.util.concurrent.Executor
 import java.util.concurrent.atomic.AtomicBoolean
 
 class LiveDataRegistryTest {
@@ -42,6 +45,27 @@ class LiveDataRegistryTest {
             shutdown.set(true)
         }
     }
+
+    @Test
+    fun verifyInvalidateKeys() {
+        whenever(dao.backgroundExecutor).thenReturn(Executor { it.run() })
+        whenever(dao.findLiveData(Obj::class.java, 1)).thenCallRealMethod()
+        whenever(dao.findLiveData(Obj::class.java, 2)).thenCallRealMethod()
+        dao.findLiveData(Obj::class.java, 1).observeForever {}
+        dao.findLiveData(Obj::class.java, 2).observeForever {}
+        verify(dao, times(1)).find(Obj::class.java, 1)
+        verify(dao, times(1)).find(Obj::class.java, 2)
+
+        // only LiveData for the invalidated key should be recomputed
+        registry.invalidate(Obj::class.java, listOf(listOf("1")))
+        verify(dao, times(2)).find(Obj::class.java, 1)
+        verify(dao, times(1)).find(Obj::class.java, 2)
+
+        // invalidating the class recomputes everything
+        registry.invalidate(Obj::class.java)
+        verify(dao, times(3)).find(Obj::class.java, 1)
+        verify(dao, times(2)).find(Obj::class.java, 2)
+    }
 }
 
 class Obj
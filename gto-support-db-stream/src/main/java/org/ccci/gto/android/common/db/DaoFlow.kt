@@ -0,0 +1,14 @@
+package org.ccci.gto.android.common.db
+
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+
+/**
+ * Lazily emit the results of the specified query. Rows are read from the underlying Cursor on the Dao's background
+ * executor as they are collected, and the Cursor is closed when collection completes or is cancelled.
+ */
+fun <T : Any> Dao.getAsFlow(query: Query<T>): Flow<T> = flow {
+    getIterator(query).use { iterator -> iterator.forEach { emit(it) } }
+}.flowOn(backgroundExecutor.asCoroutineDispatcher())
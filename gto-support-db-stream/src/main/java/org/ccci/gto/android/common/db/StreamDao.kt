@@ -9,6 +9,24 @@ interface StreamDao : Dao {
     @JvmDefault
     fun <T : Any> streamCompat(query: Query<T>): Stream<T> = Stream.of(get(query))
 
+    /**
+     * Lazily stream the results of the specified query. Rows are only read from the underlying Cursor as they are
+     * consumed. The returned Stream holds an open Cursor until all rows have been consumed, so it must be closed by the
+     * caller, e.g. `openStreamCompat(query).use { ... }`, when it may be terminated early.
+     */
+    @JvmDefault
+    fun <T : Any> openStreamCompat(query: Query<T>): Stream<T> =
+        getIterator(query).let { iterator -> Stream.of(iterator).onClose { iterator.close() } }
+
+    /**
+     * Lazily stream the results of the specified query, loading at most pageSize objects at a time.
+     *
+     * @see Dao.stream
+     */
+    @JvmDefault
+    fun <T : Any> streamCompat(query: Query<T>, pageSize: Int): Stream<T> =
+        Stream.of(stream(query, pageSize).iterator())
+
     object StreamHelper {
         @JvmStatic
         @Deprecated("Since v3.4.0, use default implementation of streamCompat instead.")
@@ -10,7 +10,13 @@ import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import kotlin.sequences.SequencesKt;
 
 import androidx.test.InstrumentationRegistry;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -22,6 +28,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(AndroidJUnit4.class)
@@ -84,6 +91,84 @@ public class AbstractDaoIT {
         assertEquals(2, objs.get(0).id);
     }
 
+    @Test
+    public void verifyStream() {
+        final TestDao dao = getDao();
+
+        final List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            roots.add(new Root(i, Integer.toString(i)));
+        }
+        dao.insertAll(roots);
+
+        final List<Root> objs = SequencesKt.toList(
+                dao.stream(Query.select(Root.class).orderBy(RootTable.COLUMN_ID + " DESC").limit(22), 10));
+        assertEquals(22, objs.size());
+        for (int i = 0; i < objs.size(); i++) {
+            assertEquals(24 - i, objs.get(i).id);
+        }
+    }
+
+    @Test
+    public void verifyStreamTiedOrderByAcrossPages() {
+        final TestDao dao = getDao();
+
+        // groups of 4 rows share the same orderBy value, so ties span the boundaries of pages of 3
+        final List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            roots.add(new Root(i, Integer.toString(i / 4)));
+        }
+        dao.insertAll(roots);
+
+        final List<Root> objs =
+                SequencesKt.toList(dao.stream(Query.select(Root.class).orderBy(RootTable.COLUMN_TEST), 3));
+        assertEquals(20, objs.size());
+        final Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < objs.size(); i++) {
+            assertEquals(Integer.toString(i / 4), objs.get(i).test);
+            assertTrue(ids.add(objs.get(i).id));
+        }
+    }
+
+    @Test
+    public void verifyStreamNullOrderByValues() {
+        final TestDao dao = getDao();
+
+        final List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            roots.add(new Root(i, i % 3 == 0 ? null : Integer.toString(i % 2)));
+        }
+        dao.insertAll(roots);
+
+        for (final String orderBy : Arrays.asList(RootTable.COLUMN_TEST, RootTable.COLUMN_TEST + " DESC")) {
+            final List<Root> objs = SequencesKt.toList(dao.stream(Query.select(Root.class).orderBy(orderBy), 3));
+            assertEquals(20, objs.size());
+            final Set<Long> ids = new HashSet<>();
+            for (final Root root : objs) {
+                assertTrue(ids.add(root.id));
+            }
+        }
+    }
+
+    @Test
+    public void verifyStreamExpressionOrderBy() {
+        final TestDao dao = getDao();
+
+        final List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            roots.add(new Root(i, Integer.toString(i)));
+        }
+        dao.insertAll(roots);
+
+        // "_id % 5" has no column affinity, so the keyset values have to be compared as integers
+        final List<Root> objs = SequencesKt.toList(
+                dao.stream(Query.select(Root.class).orderBy(RootTable.COLUMN_ID + " % 5"), 3));
+        assertEquals(20, objs.size());
+        for (int i = 0; i < objs.size(); i++) {
+            assertEquals(i / 4, objs.get(i).id % 5);
+        }
+    }
+
     @Test
     public void testUpdateCompoundKey() throws Exception {
         final TestDao dao = getDao();
@@ -212,6 +297,51 @@ public class AbstractDaoIT {
         assertThat(refresh23.data2, allOf(is(not(orig3.data2)), is(update.data2)));
     }
 
+    @Test
+    public void verifyInsertAll() {
+        final TestDao dao = getDao();
+
+        final List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            roots.add(new Root(i, Integer.toString(i)));
+        }
+        dao.insertAll(roots);
+
+        assertEquals(1200, dao.getCount(Query.select(Root.class)));
+        final Root found = dao.find(Root.class, 1100);
+        assertNotNull(found);
+        assertThat(found.test, is("1100"));
+    }
+
+    @Test
+    public void verifyUpdateOrInsertAll() {
+        final TestDao dao = getDao();
+
+        // create some objects
+        final Compound orig1 = new Compound("1", "1", "orig1", "d1");
+        final Compound orig2 = new Compound("1", "2", "orig2", "d2");
+        dao.insert(orig1);
+        dao.insert(orig2);
+
+        // update or insert
+        final Compound update = new Compound("1", "2", "update", "update");
+        final Compound insert = new Compound("2", "1", "insert", "insert");
+        dao.updateOrInsertAll(Arrays.<Object>asList(update, insert), CompoundTable.COLUMN_DATA1);
+
+        // verify final values
+        final Compound refresh1 = dao.refresh(orig1);
+        final Compound refresh2 = dao.refresh(orig2);
+        final Compound refresh3 = dao.refresh(insert);
+        assertNotNull(refresh1);
+        assertNotNull(refresh2);
+        assertNotNull(refresh3);
+        assertThat(refresh1.data1, is(orig1.data1));
+        assertThat(refresh2.data1, is(update.data1));
+        assertThat(refresh2.data2, is(orig2.data2));
+        assertThat(refresh3.data1, is(insert.data1));
+        assertThat(refresh3.data2, is(insert.data2));
+    }
+
     @Test
     public void testDeleteCompoundKey() throws Exception {
         final TestDao dao = getDao();
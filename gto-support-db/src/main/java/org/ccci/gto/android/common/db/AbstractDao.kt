@@ -4,13 +4,18 @@ import android.content.ContentValues
 import android.database.Cursor
 import android.database.sqlite.SQLiteDatabase
 import android.database.sqlite.SQLiteOpenHelper
+import android.database.sqlite.SQLiteQueryBuilder
+import android.database.sqlite.SQLiteStatement
 import android.database.sqlite.SQLiteTransactionListener
 import android.os.AsyncTask
+import androidx.annotation.RestrictTo
 import androidx.annotation.WorkerThread
+import androidx.collection.LruCache
 import androidx.collection.SimpleArrayMap
 import org.ccci.gto.android.common.compat.util.LocaleCompat
 import org.ccci.gto.android.common.db.CommonTables.LastSyncTable
 import org.ccci.gto.android.common.util.ArrayUtils
+import org.ccci.gto.android.common.util.database.cacheColumnIndexes
 import org.ccci.gto.android.common.util.database.getLong
 import org.ccci.gto.android.common.util.database.map
 import org.ccci.gto.android.common.util.kotlin.threadLocal
@@ -27,6 +32,13 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         const val ARG_WHERE = "$ARG_PREFIX.ARG_WHERE"
         const val ARG_ORDER_BY = "$ARG_PREFIX.ARG_ORDER_BY"
 
+        private const val QUERY_PLAN_CACHE_SIZE = 64
+        private const val STATEMENT_CACHE_SIZE = 16
+        private const val BULK_TRANSACTION_SIZE = 500
+        private const val KEYSET_ALIAS = "_keyset_"
+        private val CONFLICT_VALUES =
+            arrayOf(" ", " OR ROLLBACK ", " OR ABORT ", " OR FAIL ", " OR IGNORE ", " OR REPLACE ")
+
         @JvmStatic
         fun bindValues(vararg raw: Any) = raw.map {
             when (it) {
@@ -78,6 +90,67 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         ?: throw IllegalArgumentException("invalid class specified: ${clazz.name}")
     // endregion Registered Types
 
+    // region Compiled SQL
+    private val queryPlans = LruCache<QueryPlan.Key, QueryPlan>(QUERY_PLAN_CACHE_SIZE)
+    private val statements by threadLocal { StatementCache(STATEMENT_CACHE_SIZE) }
+
+    private fun getQueryPlan(query: Query<*>) = query.planKey.let { key ->
+        queryPlans.get(key) ?: buildQueryPlan(query).also { queryPlans.put(key, it) }
+    }
+
+    private fun buildQueryPlan(query: Query<*>): QueryPlan {
+        var projection = query.projection ?: getFullProjection(query.table.type)
+        var orderBy = query.orderBy
+
+        // prefix projection and orderBy when we have joins
+        if (query.joins.isNotEmpty()) {
+            val prefix = query.table.sqlPrefix(this)
+            projection = projection.map { if (it.contains(".")) it else prefix + it }.toTypedArray()
+            orderBy = orderBy?.prefixOrderByFieldsWith(prefix)
+        }
+
+        // generate "GROUP BY {}" SQL
+        val groupBy = query.groupBy.takeIf { it.isNotEmpty() }?.joinToString(",") { it.buildSql(this).first }
+
+        return QueryPlan(query.buildSqlFrom(this), projection, orderBy, groupBy)
+    }
+
+    /**
+     * Returns a compiled statement for the specified SQL that has been cached for the current transaction. The
+     * returned statement should be bound and executed immediately and must not be closed by the caller.
+     */
+    @WorkerThread
+    private fun compileStatement(db: SQLiteDatabase, sql: String) = statements.acquire(db, sql)
+
+    private fun insertSql(table: String, conflictAlgorithm: Int, columns: List<String>) = buildString {
+        append("INSERT").append(CONFLICT_VALUES[conflictAlgorithm]).append("INTO ").append(table)
+        columns.joinTo(this, ",", "(", ")")
+        columns.joinTo(this, ",", " VALUES (", ")") { "?" }
+    }
+
+    private fun updateSql(table: String, conflictAlgorithm: Int, columns: List<String>, where: String?) = buildString {
+        append("UPDATE").append(CONFLICT_VALUES[conflictAlgorithm]).append(table)
+        columns.joinTo(this, ",", " SET ") { "$it=?" }
+        if (!where.isNullOrEmpty()) append(" WHERE ").append(where)
+    }
+
+    private fun SQLiteStatement.bindValues(values: ContentValues, columns: List<String>) =
+        columns.forEachIndexed { i, column ->
+            val index = i + 1
+            when (val value = values.get(column)) {
+                null -> bindNull(index)
+                is Boolean -> bindLong(index, if (value) 1 else 0)
+                is Float, is Double -> bindDouble(index, (value as Number).toDouble())
+                is Number -> bindLong(index, value.toLong())
+                is ByteArray -> bindBlob(index, value)
+                else -> bindString(index, value.toString())
+            }
+        }
+
+    private fun SQLiteStatement.bindArgs(args: Array<String>?, offset: Int = 0) =
+        args?.forEachIndexed { i, arg -> bindString(offset + i + 1, arg) }
+    // endregion Compiled SQL
+
     // region Queries
     // region Read-Only
     @WorkerThread
@@ -112,48 +185,110 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
     @WorkerThread
     final override fun <T : Any> get(query: Query<T>) = getCursor(query.projection()).use { c ->
         val mapper = getMapper(query.table.type)
-        c.map { mapper.toObject(it) }
+        c.cacheColumnIndexes().map { mapper.toObject(it) }
+    }
+
+    @WorkerThread
+    final override fun <T : Any> getIterator(query: Query<T>): CursorIterator<T> {
+        val mapper = getMapper(query.table.type)
+        return CursorIterator(getCursor(query.projection()).cacheColumnIndexes()) { mapper.toObject(it) }
     }
 
     @WorkerThread
     final override fun getCursor(query: Query<*>): Cursor {
-        var projection = query.projection ?: getFullProjection(query.table.type)
-        var orderBy = query.orderBy
+        val c = withQueryPlan(query) { plan, where, having, args ->
+            transaction(exclusive = false, readOnly = true) {
+                it.query(
+                    query.distinct, plan.from.sql, plan.projection, where, args, plan.groupBy, having, plan.orderBy,
+                    query.sqlLimit
+                )
+            }
+        }
+        c.moveToPosition(-1)
+        return c
+    }
 
-        // prefix projection and orderBy when we have joins
-        if (query.joins.isNotEmpty()) {
-            val prefix = query.table.sqlPrefix(this)
-            projection = projection.map { if (it.contains(".")) it else prefix + it }.toTypedArray()
-            orderBy = orderBy?.prefixOrderByFieldsWith(prefix)
+    @WorkerThread
+    final override fun getCount(query: Query<*>) = withQueryPlan(query) { plan, where, having, args ->
+        val sql = SQLiteQueryBuilder.buildQueryString(
+            query.distinct, plan.from.sql, plan.projection, where, plan.groupBy, having, null, query.sqlLimit
+        )
+        transaction(exclusive = false, readOnly = true) { db ->
+            with(compileStatement(db, "SELECT COUNT(*) FROM ($sql)")) {
+                bindAllArgsAsStrings(args)
+                simpleQueryForLong().toInt()
+            }
         }
+    }
 
-        // generate "FROM {}" SQL
-        val from = query.buildSqlFrom(this)
-        var args = from.args
+    @WorkerThread
+    final override fun <T : Any> stream(query: Query<T>, pageSize: Int): Sequence<T> {
+        require(pageSize > 0) { "pageSize must be greater than 0" }
+        val mapper = getMapper(query.table.type)
+
+        // always order by rowid last, otherwise rows sharing the orderBy values of the last row of a page are skipped
+        val rowid = "${query.table.sqlPrefix(this)}rowid"
+        val base = query.orderBy(query.orderBy?.let { "$it,$rowid" } ?: rowid)
+
+        // select the orderBy values along with the requested projection so we can find where the next page starts
+        val keys = getQueryPlan(base).keyset!!.columns
+        val projection = (query.projection ?: getFullProjection(query.table.type)) +
+            keys.mapIndexed { i, key -> "$key AS $KEYSET_ALIAS$i" }
+        val pageQuery = base.projection(*projection)
+
+        return sequence {
+            var remaining = query.limit ?: Int.MAX_VALUE
+            var page = pageQuery.limit(minOf(pageSize, remaining))
+            while (remaining > 0) {
+                // load the entire page before yielding it so that the Cursor is never left open
+                val objs = ArrayList<T>(minOf(pageSize, remaining))
+                var last: Array<Any?>? = null
+                getCursor(page).use { c ->
+                    val cursor = c.cacheColumnIndexes()
+                    while (cursor.moveToNext()) objs += mapper.toObject(cursor)
+                    if (cursor.moveToLast()) {
+                        // keep the type of each value so that expressions without a column affinity compare correctly
+                        last = Array(keys.size) { cursor.getKeysetValue(cursor.getColumnIndex("$KEYSET_ALIAS$it")) }
+                    }
+                }
+                yieldAll(objs)
+
+                remaining -= objs.size
+                if (objs.size < pageSize) break
+                page = pageQuery.offset(null).after(*last!!).limit(minOf(pageSize, remaining))
+            }
+        }
+    }
+
+    private inline fun <R> withQueryPlan(
+        query: Query<*>,
+        block: (plan: QueryPlan, where: String?, having: String?, args: Array<String>) -> R
+    ): R {
+        val plan = getQueryPlan(query)
 
         // generate "WHERE {}" SQL
         val where = query.buildSqlWhere(this)
-        args = ArrayUtils.merge(String::class.java, args, where.second)
+        var whereSql = where.first
+        var args = ArrayUtils.merge(String::class.java, plan.from.args, where.second)
+
+        // generate keyset pagination SQL
+        val after = query.after
+        if (after != null) {
+            val keyset = plan.keyset?.buildSql(after)
+                ?: throw IllegalArgumentException("Query.after() requires an orderBy")
+            whereSql = if (whereSql.isNullOrEmpty()) keyset.sql else "($whereSql) AND ${keyset.sql}"
+            args = ArrayUtils.merge(String::class.java, args, keyset.args)
+        }
 
-        // handle GROUP BY {} HAVING {}
-        var groupBy: String? = null
+        // generate "HAVING {}" SQL
         var having: String? = null
-        if (query.groupBy.isNotEmpty()) {
-            // generate "GROUP BY {}" SQL
-            groupBy = query.groupBy.joinToString(",") { it.buildSql(this).first }
-
-            // generate "HAVING {}" SQL
+        if (plan.groupBy != null) {
             val havingRaw = query.buildSqlHaving(this)
             having = havingRaw.first
             args = ArrayUtils.merge(String::class.java, args, havingRaw.second)
         }
 
-        // execute actual query
-        val c = transaction(exclusive = false, readOnly = true) {
-            it.query(query.distinct, from.sql, projection, where.first, args, groupBy, having, orderBy, query.sqlLimit)
-        }
-        c.moveToPosition(-1)
-        return c
+        return block(plan, whereSql, having, args)
     }
 
     // endregion Read-Only
@@ -165,8 +300,16 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         val table = tableName(clazz)
         val values = getMapper(clazz).toContentValues(obj, getFullProjection(clazz))
         return transaction(exclusive = false) { db ->
+            // the primary key may not be known until the row is inserted, and queries for the class may include the new
+            // row, so inserts always invalidate the entire class
             invalidateClass(clazz)
-            db.insertWithOnConflict(table, null, values, conflictAlgorithm)
+            if (values.size() == 0) return@transaction db.insertWithOnConflict(table, null, values, conflictAlgorithm)
+
+            val columns = values.keySet().toList()
+            with(compileStatement(db, insertSql(table, conflictAlgorithm, columns))) {
+                bindValues(values, columns)
+                executeInsert()
+            }
         }
     }
 
@@ -185,7 +328,8 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
     final override fun <T : Any> update(obj: T, conflictAlgorithm: Int, vararg projection: String): Int {
         val type = obj.javaClass
         val values = getMapper(type).toContentValues(obj, projection)
-        return update(type, values, getPrimaryKeyWhere(obj), conflictAlgorithm)
+        val where = getPrimaryKeyWhere(obj)
+        return update(type, values, where, conflictAlgorithm) { invalidateObject(obj, where) }
     }
 
     @WorkerThread
@@ -216,12 +360,27 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         values: ContentValues,
         where: Expression?,
         conflictAlgorithm: Int = SQLiteDatabase.CONFLICT_NONE
+    ) = update(type, values, where, conflictAlgorithm) { invalidateClass(type) }
+
+    private inline fun update(
+        type: Class<*>,
+        values: ContentValues,
+        where: Expression?,
+        conflictAlgorithm: Int,
+        invalidate: () -> Unit
     ): Int {
+        require(values.size() > 0) { "Empty values" }
         val table = tableName(type)
         val w = where?.buildSql(this)
+        val columns = values.keySet().toList()
+        val sql = updateSql(table, conflictAlgorithm, columns, w?.first)
         return transaction(exclusive = false) { db ->
-            invalidateClass(type)
-            db.updateWithOnConflict(table, values, w?.first, w?.second, conflictAlgorithm)
+            invalidate()
+            with(compileStatement(db, sql)) {
+                bindValues(values, columns)
+                bindArgs(w?.second, columns.size)
+                executeUpdateDelete()
+            }
         }
     }
 
@@ -238,14 +397,112 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
     }
 
     @WorkerThread
-    final override fun delete(obj: Any) = delete(obj.javaClass, getPrimaryKeyWhere(obj))
+    final override fun insertAll(objs: Collection<Any>, conflictAlgorithm: Int) =
+        BulkWriter(conflictAlgorithm).writeAll(objs) { db, obj -> insert(db, obj) }
 
     @WorkerThread
-    final override fun delete(clazz: Class<*>, where: Expression?) {
+    final override fun updateOrInsertAll(objs: Collection<Any>, conflictAlgorithm: Int, vararg projection: String) =
+        BulkWriter(conflictAlgorithm, projection).writeAll(objs) { db, obj ->
+            if (update(db, obj) == 0) insert(db, obj)
+        }
+
+    @WorkerThread
+    final override fun delete(obj: Any) {
+        val where = getPrimaryKeyWhere(obj)
+        delete(obj.javaClass, where) { invalidateObject(obj, where) }
+    }
+
+    @WorkerThread
+    final override fun delete(clazz: Class<*>, where: Expression?) = delete(clazz, where) { invalidateClass(clazz) }
+
+    private inline fun delete(clazz: Class<*>, where: Expression?, invalidate: () -> Unit) {
         val w = where?.buildSql(this)
+        val sql = buildString {
+            append("DELETE FROM ").append(tableName(clazz))
+            if (!w?.first.isNullOrEmpty()) append(" WHERE ").append(w!!.first)
+        }
         transaction(exclusive = false) { db ->
-            db.delete(tableName(clazz), w?.first, w?.second)
-            invalidateClass(clazz)
+            with(compileStatement(db, sql)) {
+                bindArgs(w?.second)
+                executeUpdateDelete()
+            }
+            invalidate()
+        }
+    }
+
+    /**
+     * Not Thread-safe, writes objects using compiled statements that are reused for all objects of the same type.
+     *
+     * Objects are written in chunked transactions so that large collections don't hold the database lock for the
+     * entire write. Affected objects are only invalidated once all objects have been written. Inserts invalidate the
+     * entire class, updates only invalidate the updated objects.
+     */
+    private inner class BulkWriter(
+        private val conflictAlgorithm: Int,
+        private val projection: Array<out String> = emptyArray()
+    ) {
+        private val values = ContentValues()
+        private val inserts = SimpleArrayMap<Class<*>, BulkStatement>()
+        private val updates = SimpleArrayMap<Class<*>, BulkStatement>()
+        private val inserted = mutableSetOf<Class<*>>()
+        private val updated = mutableListOf<Any>()
+
+        fun writeAll(objs: Collection<Any>, write: BulkWriter.(SQLiteDatabase, Any) -> Unit) {
+            val iterator = objs.iterator()
+            try {
+                while (iterator.hasNext()) {
+                    transaction(exclusive = false) { db ->
+                        var count = 0
+                        while (count++ < BULK_TRANSACTION_SIZE && iterator.hasNext()) write(db, iterator.next())
+                    }
+                }
+            } finally {
+                inserted.forEach { invalidateClass(it) }
+                invalidateObjects(updated.filter { it.javaClass !in inserted })
+            }
+        }
+
+        fun insert(db: SQLiteDatabase, obj: Any): Long {
+            val type = obj.javaClass
+            mapValues(obj, getFullProjection(type))
+            if (values.size() == 0) {
+                inserted += type
+                return db.insertWithOnConflict(tableName(type), null, values, conflictAlgorithm)
+            }
+
+            val stmt = inserts.get(type)?.takeIf { it.matches(values, null) } ?: values.keySet().toList().let {
+                BulkStatement(it, null, insertSql(tableName(type), conflictAlgorithm, it))
+            }.also { inserts.put(type, it) }
+            return with(compileStatement(db, stmt.sql)) {
+                bindValues(values, stmt.columns)
+                executeInsert()
+            }.also { inserted += type }
+        }
+
+        fun update(db: SQLiteDatabase, obj: Any): Int {
+            val type = obj.javaClass
+            mapValues(obj, projection.takeIf { it.isNotEmpty() } ?: getFullProjection(type))
+            require(values.size() > 0) { "Empty values" }
+
+            val where = getPrimaryKeyWhere(obj).buildSql(this@AbstractDao)
+            val stmt = updates.get(type)?.takeIf { it.matches(values, where.first) } ?: values.keySet().toList().let {
+                BulkStatement(it, where.first, updateSql(tableName(type), conflictAlgorithm, it, where.first))
+            }.also { updates.put(type, it) }
+            return with(compileStatement(db, stmt.sql)) {
+                bindValues(values, stmt.columns)
+                bindArgs(where.second, stmt.columns.size)
+                executeUpdateDelete()
+            }.also { if (it > 0) updated += obj }
+        }
+
+        private fun mapValues(obj: Any, projection: Array<out String>) {
+            when (val mapper = getMapper(obj.javaClass)) {
+                is AbstractMapper<Any> -> mapper.toContentValues(obj, projection, values)
+                else -> {
+                    values.clear()
+                    values.putAll(mapper.toContentValues(obj, projection))
+                }
+            }
         }
     }
     // endregion Read-Write
@@ -289,13 +546,19 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         exclusive: Boolean = true,
         body: (SQLiteDatabase) -> T
     ): T = with(newTransaction(this)) {
+        statements.begin()
         try {
             beginTransaction(exclusive)
             val result = body(this@transaction)
             setTransactionSuccessful()
             return result
         } finally {
-            endTransaction().recycle()
+            try {
+                endTransaction().recycle()
+            } finally {
+                // close any statements compiled for the outermost transaction
+                statements.end()
+            }
         }
     }
     // endregion Transaction Management
@@ -352,7 +615,12 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         }
 
         override fun onFinished() {
-            if (commited) transaction.invalidatedClasses.forEach { invalidateClass(it) }
+            if (commited) {
+                transaction.invalidatedClasses.forEach { invalidateClass(it) }
+                transaction.invalidatedKeys.forEach { (clazz, keys) ->
+                    if (clazz !in transaction.invalidatedClasses) invalidateKeys(clazz, keys)
+                }
+            }
         }
     }
 
@@ -360,7 +628,60 @@ abstract class AbstractDao(private val helper: SQLiteOpenHelper) : Dao {
         currentTransaction?.invalidatedClasses?.add(clazz) ?: onInvalidateClass(clazz)
     }
 
+    /**
+     * Invalidate the objects of type `clazz` with the specified primary keys. A primary key is represented by the
+     * bound arguments of the primary key [Expression] for an object.
+     */
+    protected fun invalidateKeys(clazz: Class<*>, keys: Collection<List<String>>) {
+        val transaction = currentTransaction
+        when {
+            transaction == null -> onInvalidateKeys(clazz, keys.toSet())
+            clazz in transaction.invalidatedClasses -> Unit
+            else -> transaction.invalidatedKeys.getOrPut(clazz) { mutableSetOf() }.addAll(keys)
+        }
+    }
+
+    private fun invalidateObject(obj: Any, where: Expression) {
+        val key = primaryKeyOf(obj, where)
+        if (key != null) invalidateKeys(obj.javaClass, listOf(key)) else invalidateClass(obj.javaClass)
+    }
+
+    private fun invalidateObjects(objs: List<Any>) {
+        val keys = mutableMapOf<Class<*>, MutableSet<List<String>>>()
+        val classes = mutableSetOf<Class<*>>()
+        objs.forEach { obj ->
+            val key = primaryKeyOf(obj)
+            if (key != null) keys.getOrPut(obj.javaClass) { mutableSetOf() } += key else classes += obj.javaClass
+        }
+        classes.forEach { invalidateClass(it) }
+        keys.forEach { (clazz, classKeys) -> if (clazz !in classes) invalidateKeys(clazz, classKeys) }
+    }
+
+    private fun primaryKeyOf(obj: Any, where: Expression? = null) = try {
+        (where ?: getPrimaryKeyWhere(obj)).buildSql(this).second?.toList()
+    } catch (e: IllegalArgumentException) {
+        // this object doesn't have a primary key
+        null
+    }
+
+    /**
+     * @return the primary key for the object of type `clazz` with the specified key values, in the same form that is
+     * passed to [onInvalidateKeys], or null if `clazz` doesn't have a primary key [Expression].
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun primaryKeyFor(clazz: Class<*>, vararg key: Any) = try {
+        getPrimaryKeyWhere(clazz, *key).buildSql(this).second?.toList()
+    } catch (e: IllegalArgumentException) {
+        null
+    }
+
     protected open fun onInvalidateClass(clazz: Class<*>) = Unit
+
+    /**
+     * Called when only the objects of type `clazz` with the specified primary keys were modified. By default this
+     * will invalidate the entire class.
+     */
+    protected open fun onInvalidateKeys(clazz: Class<*>, keys: Set<List<String>>) = onInvalidateClass(clazz)
     // endregion Data Invalidation
 
     protected fun compileExpression(expression: Expression) = expression.buildSql(this)
@@ -371,3 +692,16 @@ internal fun String.prefixOrderByFieldsWith(prefix: String): String = when {
     !contains(".") -> "$prefix${trimStart()}"
     else -> this
 }
+
+private fun Cursor.getKeysetValue(index: Int): Any? = when (getType(index)) {
+    Cursor.FIELD_TYPE_NULL -> null
+    Cursor.FIELD_TYPE_INTEGER -> getLong(index)
+    Cursor.FIELD_TYPE_FLOAT -> getDouble(index)
+    Cursor.FIELD_TYPE_BLOB -> getBlob(index)
+    else -> getString(index)
+}
+
+private class BulkStatement(val columns: List<String>, val where: String?, val sql: String) {
+    fun matches(values: ContentValues, where: String?) =
+        this.where == where && columns.size == values.size() && columns.all { values.containsKey(it) }
+}
@@ -190,12 +190,23 @@ public abstract class AbstractMapper<T> implements Mapper<T> {
     @NonNull
     @Override
     public final ContentValues toContentValues(@NonNull final T obj, @NonNull final String[] projection) {
-        // only add values in the projection
         final ContentValues values = new ContentValues();
+        toContentValues(obj, projection, values);
+        return values;
+    }
+
+    /**
+     * Populate the provided ContentValues with the specified fields of obj. Any values already contained in
+     * ContentValues are cleared first, this allows a single ContentValues object to be reused for multiple objects.
+     */
+    final void toContentValues(@NonNull final T obj, @NonNull final String[] projection,
+                               @NonNull final ContentValues values) {
+        values.clear();
+
+        // only add values in the projection
         for (final String field : projection) {
             this.mapField(values, field, obj);
         }
-        return values;
     }
 
     protected void mapField(@NonNull final ContentValues values, @NonNull final String field, @NonNull final T obj) {
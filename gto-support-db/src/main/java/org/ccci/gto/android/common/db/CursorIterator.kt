@@ -0,0 +1,28 @@
+package org.ccci.gto.android.common.db
+
+import android.database.Cursor
+import java.io.Closeable
+
+/**
+ * An Iterator that lazily maps each row of a [Cursor] as it is requested. The Cursor is closed once the last row has
+ * been returned, callers that stop iterating early are responsible for calling [close].
+ */
+class CursorIterator<T> internal constructor(
+    private val cursor: Cursor,
+    private val mapper: (Cursor) -> T
+) : Iterator<T>, Closeable {
+    private var hasNext: Boolean? = null
+
+    override fun hasNext(): Boolean = hasNext ?: (!cursor.isClosed && cursor.moveToNext()).also {
+        hasNext = it
+        if (!it) close()
+    }
+
+    override fun next(): T {
+        if (!hasNext()) throw NoSuchElementException()
+        hasNext = null
+        return mapper(cursor)
+    }
+
+    override fun close() = cursor.close()
+}
@@ -1,7 +1,9 @@
 package org.ccci.gto.android.common.db
 
 import android.database.Cursor
+import android.database.MatrixCursor
 import android.database.sqlite.SQLiteDatabase
+import android.provider.BaseColumns
 import androidx.annotation.RestrictTo
 import androidx.annotation.WorkerThread
 import java.util.concurrent.Executor
@@ -22,6 +24,22 @@ interface Dao {
     @WorkerThread
     fun <T : Any> get(query: Query<T>): List<T>
 
+    /**
+     * Return an Iterator that lazily maps the results of the specified query as they are requested. The underlying
+     * Cursor is closed when the Iterator is exhausted, or when it is explicitly closed.
+     *
+     * The default implementation loads all results up front, implementations should override this to map rows lazily.
+     */
+    @JvmDefault
+    @WorkerThread
+    fun <T : Any> getIterator(query: Query<T>): CursorIterator<T> {
+        val objs = get(query)
+        val positions = MatrixCursor(arrayOf(BaseColumns._ID), objs.size).apply {
+            objs.indices.forEach { addRow(arrayOf<Any>(it)) }
+        }
+        return CursorIterator(positions) { objs[it.position] }
+    }
+
     @JvmDefault
     @WorkerThread
     fun getCursor(clazz: Class<*>) = getCursor(Query.select(clazz))
@@ -33,6 +51,29 @@ interface Dao {
 
     @WorkerThread
     fun getCursor(query: Query<*>): Cursor
+
+    @JvmDefault
+    @WorkerThread
+    fun getCount(query: Query<*>) = getCursor(query).use { it.count }
+
+    /**
+     * Lazily walk the results of the specified query in pages of at most pageSize objects. Each page is loaded using
+     * keyset pagination, so only a single page of objects is held in memory at a time. Rows are ordered by rowid after
+     * the orderBy of the query, so the orderBy doesn't need to uniquely identify each row. This requires the table
+     * being queried to have a rowid, so it can't be used to stream views or WITHOUT ROWID tables. orderBy values may
+     * be NULL or expressions without a column affinity.
+     *
+     * The default implementation loads all results at once, implementations should override this to page results.
+     *
+     * @param query the query to stream the results of
+     * @param pageSize the maximum number of objects to load at a time
+     */
+    @JvmDefault
+    @WorkerThread
+    fun <T : Any> stream(query: Query<T>, pageSize: Int): Sequence<T> {
+        require(pageSize > 0) { "pageSize must be greater than 0" }
+        return get(query).asSequence()
+    }
     // endregion Read-Only
 
     // region Read-Write
@@ -74,6 +115,45 @@ interface Dao {
     @WorkerThread
     fun updateOrInsert(obj: Any, conflictAlgorithm: Int, vararg projection: String)
 
+    @JvmDefault
+    @WorkerThread
+    fun insertAll(objs: Collection<Any>) = insertAll(objs, SQLiteDatabase.CONFLICT_NONE)
+
+    /**
+     * Insert all of the provided objects. This is more efficient than calling [insert] for each individual object.
+     *
+     * The default implementation calls [insert] for each object.
+     *
+     * @param objs the objects to insert
+     * @param conflictAlgorithm the conflict algorithm to use when inserting the objects
+     */
+    @JvmDefault
+    @WorkerThread
+    fun insertAll(objs: Collection<Any>, conflictAlgorithm: Int) = objs.forEach { insert(it, conflictAlgorithm) }
+
+    @JvmDefault
+    @WorkerThread
+    fun updateOrInsertAll(objs: Collection<Any>, vararg projection: String) =
+        updateOrInsertAll(objs, SQLiteDatabase.CONFLICT_NONE, *projection)
+
+    /**
+     * Update or insert all of the provided objects. This is more efficient than calling [updateOrInsert] for each
+     * individual object. An empty projection will update all fields of the objects.
+     *
+     * The default implementation calls [updateOrInsert] for each object.
+     *
+     * @param objs the objects to update or insert
+     * @param conflictAlgorithm the conflict algorithm to use when updating or inserting the objects
+     * @param projection the fields to update for objects that already exist
+     */
+    @JvmDefault
+    @WorkerThread
+    fun updateOrInsertAll(objs: Collection<Any>, conflictAlgorithm: Int, vararg projection: String) =
+        objs.forEach { obj ->
+            val fields = projection.takeIf { it.isNotEmpty() } ?: getFullProjection(obj.javaClass)
+            updateOrInsert(obj, conflictAlgorithm, *fields)
+        }
+
     @WorkerThread
     fun delete(obj: Any)
 
@@ -91,4 +171,12 @@ interface Dao {
 
 inline fun <reified T : Any> Dao.find(vararg key: Any) = find(T::class.java, *key)
 inline fun <T : Any> Query<T>.get(dao: Dao) = dao.get(this)
+
+/**
+ * Lazily map the results of the specified query as a Sequence. The underlying Cursor is closed when block returns.
+ */
+@WorkerThread
+inline fun <T : Any, R> Dao.useSequence(query: Query<T>, block: (Sequence<T>) -> R) =
+    getIterator(query).use { block(it.asSequence()) }
 inline fun Query<*>.getCursor(dao: Dao) = dao.getCursor(this)
+inline fun Query<*>.getCount(dao: Dao) = dao.getCount(this)
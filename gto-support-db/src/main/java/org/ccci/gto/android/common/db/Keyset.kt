@@ -0,0 +1,111 @@
+package org.ccci.gto.android.common.db
+
+import java.util.Date
+
+private val ORDER_BY_TERM = Regex("^(.*?)(?:\\s+(ASC|DESC))?$", RegexOption.IGNORE_CASE)
+
+/**
+ * A keyset pagination predicate generated from an ORDER BY clause. The predicate selects all rows that sort after the
+ * row identified by the provided key values.
+ *
+ * Row value comparisons aren't supported by the version of SQLite on older Android devices, so the predicate is
+ * expanded to the equivalent "(a > ?) OR (a = ? AND b > ?)" form.
+ *
+ * Key values are compared using their own type so that expressions without a column affinity compare correctly:
+ * integers & floats are cast back to INTEGER & REAL and blobs are inlined as blob literals. SQLite sorts NULL before
+ * every other value, so null key values are matched with IS NULL & IS NOT NULL instead of a comparison.
+ */
+internal class Keyset private constructor(private val terms: List<Pair<String, Boolean>>) {
+    companion object {
+        fun fromOrderBy(orderBy: String) = Keyset(
+            orderBy.splitOrderByTerms().map { term ->
+                val match = ORDER_BY_TERM.find(term.trim())!!
+                require(match.groupValues[1].isNotBlank()) { "Invalid orderBy: $orderBy" }
+                match.groupValues[1] to match.groupValues[2].equals("DESC", ignoreCase = true)
+            }
+        )
+
+        /**
+         * Normalize a key value to one of the types a Cursor can return: null, Long, Double, String or ByteArray.
+         */
+        fun value(raw: Any?): Any? = when (raw) {
+            null, is Long, is Double, is String, is ByteArray -> raw
+            is Float -> raw.toDouble()
+            is Number -> raw.toLong()
+            is Boolean -> if (raw) 1L else 0L
+            is Date -> raw.time
+            else -> AbstractDao.bindValues(raw).single()
+        }
+    }
+
+    val columns = terms.map { it.first }
+
+    fun buildSql(after: Array<out Any?>): QueryComponent {
+        require(after.size == terms.size) {
+            "Query.after() requires ${terms.size} values, ${after.size} were provided"
+        }
+
+        val args = mutableListOf<String>()
+        val predicates = terms.mapIndexedNotNull { i, (column, descending) ->
+            val value = after[i]
+            // nothing sorts after NULL in descending order
+            if (value == null && descending) return@mapIndexedNotNull null
+
+            buildString {
+                append('(')
+                for (j in 0 until i) {
+                    val prev = after[j]
+                    append(terms[j].first)
+                    if (prev == null) append(" IS NULL") else append(" = ").append(placeholder(prev, args))
+                    append(" AND ")
+                }
+                if (value == null) {
+                    append(column).append(" IS NOT NULL")
+                } else if (descending) {
+                    // NULL sorts after every other value in descending order
+                    append('(').append(column).append(" < ").append(placeholder(value, args))
+                    append(" OR ").append(column).append(" IS NULL)")
+                } else {
+                    append(column).append(" > ").append(placeholder(value, args))
+                }
+                append(')')
+            }
+        }
+        val sql = if (predicates.isEmpty()) "(0)" else predicates.joinToString(" OR ", "(", ")")
+        return QueryComponent(sql, *args.toTypedArray())
+    }
+
+    private fun placeholder(value: Any, args: MutableList<String>) = when (value) {
+        is ByteArray -> value.joinToString("", "X'", "'") { "%02X".format(it) }
+        is Long -> "CAST(? AS INTEGER)".also { args += value.toString() }
+        is Double -> "CAST(? AS REAL)".also { args += value.toString() }
+        else -> "?".also { args += value.toString() }
+    }
+}
+
+/**
+ * Split an ORDER BY clause on the commas separating its terms, ignoring commas within parentheses (e.g. function
+ * arguments) or quoted strings & identifiers.
+ */
+private fun String.splitOrderByTerms(): List<String> {
+    val terms = mutableListOf<String>()
+    var start = 0
+    var depth = 0
+    var quote: Char? = null
+    forEachIndexed { i, c ->
+        when {
+            quote != null -> if (c == quote) quote = null
+            c == '\'' || c == '"' || c == '`' -> quote = c
+            c == '[' -> quote = ']'
+            c == '(' -> depth++
+            c == ')' -> require(--depth >= 0) { "Unbalanced parentheses in orderBy: $this" }
+            c == ',' && depth == 0 -> {
+                terms += substring(start, i)
+                start = i + 1
+            }
+        }
+    }
+    require(depth == 0 && quote == null) { "Unterminated expression in orderBy: $this" }
+    terms += substring(start)
+    return terms
+}
@@ -18,10 +18,12 @@ class Query<T : Any> private constructor(
     internal val orderBy: String? = query?.orderBy,
     internal val groupBy: Array<Expression.Field> = query?.groupBy ?: emptyArray(),
     private val having: Expression? = query?.having,
-    private val limit: Int? = query?.limit,
-    private val offset: Int? = query?.offset
+    internal val limit: Int? = query?.limit,
+    internal val offset: Int? = query?.offset,
+    after: Array<out Any?>? = query?.after
 ) {
     internal val projection = if (projection.isNullOrEmpty()) null else projection
+    internal val after = if (after.isNullOrEmpty()) null else after
 
     companion object {
         @JvmStatic
@@ -47,6 +49,23 @@ class Query<T : Any> private constructor(
     fun limit(limit: Int?) = Query(this, limit = limit)
     fun offset(offset: Int?) = Query(this, offset = offset)
 
+    /**
+     * Restrict this query to rows that sort after the row with the specified orderBy values. This allows paging
+     * through results without re-scanning skipped rows like offset() does. The orderBy for this query must uniquely
+     * identify each row.
+     *
+     * Values are compared using their own type (numbers as INTEGER or REAL, ByteArrays as BLOBs, everything else as
+     * TEXT), so they should be the values a Cursor returns for the orderBy fields. Null values are supported and sort
+     * before all other values, like they do in SQLite.
+     *
+     * @param values the values of the orderBy fields for the last row of the previous page.
+     */
+    fun after(vararg values: Any?) = Query(this, after = Array(values.size) { Keyset.value(values[it]) })
+
+    internal val planKey by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        QueryPlan.Key(table.type, table.alias, joins.asList(), projection?.asList(), orderBy, groupBy.asList())
+    }
+
     internal fun buildSqlFrom(dao: AbstractDao) = QueryComponent(table.sqlTable(dao)) +
         joins.fold(null as QueryComponent?) { sql, join -> sql + join.buildSql(dao) }
 
@@ -0,0 +1,27 @@
+package org.ccci.gto.android.common.db
+
+/**
+ * The portions of the SQL for a [Query] that only depend on the shape of the query and not on any bound values.
+ * These are cached by [AbstractDao] so repeated queries of the same shape only need to rebind their arguments.
+ */
+internal class QueryPlan(
+    val from: QueryComponent,
+    val projection: Array<String>,
+    val orderBy: String?,
+    val groupBy: String?
+) {
+    val keyset = orderBy?.let { Keyset.fromOrderBy(it) }
+
+    /**
+     * Joins and GROUP BY fields are compared by identity, they are typically defined once as constants. Queries that
+     * build new instances each time will still work, they just won't benefit from the cached plan.
+     */
+    internal data class Key(
+        val type: Class<*>,
+        val alias: String?,
+        val joins: List<Join<*, *>>,
+        val projection: List<String>?,
+        val orderBy: String?,
+        val groupBy: List<Expression.Field>
+    )
+}
@@ -0,0 +1,51 @@
+package org.ccci.gto.android.common.db
+
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteStatement
+import androidx.collection.LruCache
+
+/**
+ * Not Thread-safe, a cache of compiled statements for a single thread.
+ *
+ * Statements are only cached for the duration of the outermost transaction on the thread, all cached statements are
+ * closed when that transaction ends. This keeps compiled statements from holding references on the [SQLiteDatabase]
+ * for threads that are no longer using it.
+ *
+ * [SQLiteStatement]s are bound to the [SQLiteDatabase] they were compiled for, so the cache is reset whenever it is
+ * used with a different database.
+ */
+internal class StatementCache(maxSize: Int) {
+    private var depth = 0
+    private var db: SQLiteDatabase? = null
+    private val statements = object : LruCache<String, SQLiteStatement>(maxSize) {
+        override fun entryRemoved(
+            evicted: Boolean,
+            key: String,
+            oldValue: SQLiteStatement,
+            newValue: SQLiteStatement?
+        ) = oldValue.close()
+    }
+
+    fun begin() {
+        depth++
+    }
+
+    fun end() {
+        check(depth > 0) { "end() called without a matching begin()" }
+        if (--depth == 0) {
+            statements.evictAll()
+            db = null
+        }
+    }
+
+    fun acquire(db: SQLiteDatabase, sql: String): SQLiteStatement {
+        check(depth > 0) { "Compiled statements can only be acquired within a transaction" }
+        if (this.db !== db) {
+            statements.evictAll()
+            this.db = db
+        }
+
+        return statements.get(sql)?.apply { clearBindings() }
+            ?: db.compileStatement(sql).also { statements.put(sql, it) }
+    }
+}
@@ -8,7 +8,7 @@ import kotlinx.android.parcel.Parcelize
 @Parcelize
 class Table<T : Any> private constructor(
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val type: Class<T>,
-    private val alias: String?
+    internal val alias: String?
 ) : Parcelable {
     companion object {
         @JvmStatic
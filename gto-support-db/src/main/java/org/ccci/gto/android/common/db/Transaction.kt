@@ -58,6 +58,7 @@ internal class Transaction private constructor(
         db = null
         parent = null
         invalidatedClasses.clear()
+        invalidatedKeys.clear()
         POOL.release(this)
     }
 
@@ -68,6 +69,7 @@ internal class Transaction private constructor(
     // region Invalidation Tracking
     internal var parent: Transaction? = null
     internal val invalidatedClasses = mutableSetOf<Class<*>>()
+    internal val invalidatedKeys = mutableMapOf<Class<*>, MutableSet<List<String>>>()
     // endregion Invalidation Tracking
 
     internal interface Listener {
@@ -74,14 +74,8 @@ public final class CursorUtils {
 
     @Nullable
     public static Date getDate(@NonNull final Cursor c, @NonNull final String field, @Nullable final Date defValue) {
-        final String raw = org.ccci.gto.android.common.util.database.CursorUtils.getString(c, field);
-        if (raw != null) {
-            try {
-                return new Date(Long.parseLong(raw));
-            } catch (final Exception ignored) {
-            }
-        }
-        return defValue;
+        final Long raw = org.ccci.gto.android.common.util.database.CursorUtils.getLong(c, field);
+        return raw != null ? new Date(raw) : defValue;
     }
 
     @Nullable
@@ -0,0 +1,420 @@
+package org.ccci.gto.android.common.db.util;
+
+import android.database.AbstractCursor;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.provider.BaseColumns;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A read-only Cursor that copies rows from another Cursor in blocks and prefetches the next block in the scroll
+ * direction on a background Executor.
+ *
+ * Moving a SQLiteCursor outside of its current CursorWindow refills the window synchronously, so adapters that scroll
+ * back and forth across a window boundary repeatedly query SQLite on the main thread. This Cursor serves moves and
+ * column reads from the copied blocks instead. When the requested block hasn't been prefetched yet only the requested
+ * row is read on the calling thread, while the rest of its block is copied in the background.
+ *
+ * This should be created on the thread that loads the Cursor (e.g. in a Loader's loadInBackground()) so that the
+ * initial block is copied off the main thread.
+ */
+public class PrefetchingCursor extends AbstractCursor {
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+    private static final int MAX_BLOCKS = 3;
+    private static final int VIEW_TYPE_UNKNOWN = Integer.MIN_VALUE;
+
+    public interface ViewTypeResolver {
+        int getViewType(@NonNull Cursor c);
+    }
+
+    @NonNull
+    private final Cursor mCursor;
+    private final Object mCursorLock = new Object();
+    @NonNull
+    private final Executor mExecutor;
+    private final int mBlockSize;
+    private final int mCount;
+    @NonNull
+    private final String[] mColumns;
+    private final int mIdColumn;
+
+    @GuardedBy("mBlocks")
+    private final Map<Integer, Block> mBlocks = new LinkedHashMap<>(MAX_BLOCKS + 1, 0.75f, true);
+    @GuardedBy("mBlocks")
+    private final Set<Integer> mLoading = new HashSet<>();
+
+    @Nullable
+    private Block mBlock;
+    @Nullable
+    private Object[] mRow;
+
+    @WorkerThread
+    public PrefetchingCursor(@NonNull final Cursor cursor) {
+        this(cursor, AsyncTask.THREAD_POOL_EXECUTOR, DEFAULT_BLOCK_SIZE);
+    }
+
+    @WorkerThread
+    public PrefetchingCursor(@NonNull final Cursor cursor, @NonNull final Executor executor, final int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        mCursor = cursor;
+        mExecutor = executor;
+        mBlockSize = blockSize;
+        mCount = cursor.getCount();
+        mColumns = cursor.getColumnNames();
+        mIdColumn = cursor.getColumnIndex(BaseColumns._ID);
+
+        // copy the first block on the current thread
+        if (mCount > 0) {
+            final Block block = readBlock(0, Math.min(mBlockSize, mCount));
+            if (block != null) {
+                synchronized (mBlocks) {
+                    mBlocks.put(0, block);
+                }
+            }
+        }
+    }
+
+    /* BEGIN row cache */
+
+    /**
+     * @return the _id of the row at the specified position without moving this Cursor, or -1 if there is no _id
+     * column.
+     */
+    public long getItemId(final int position) {
+        if (mIdColumn < 0 || position < 0 || position >= mCount) {
+            return -1;
+        }
+        final Block block = requireBlock(position);
+        final Object id = block != null ? block.mRows[position - block.mStart][mIdColumn] : null;
+        return id instanceof Number ? ((Number) id).longValue() : -1;
+    }
+
+    /**
+     * Resolve the view type of the row at the specified position. View types are cached with the prefetched rows, so
+     * the resolver is only invoked the first time a row is resolved while its block is cached.
+     */
+    public int getViewType(final int position, @NonNull final ViewTypeResolver resolver) {
+        if (!moveToPosition(position)) {
+            return resolver.getViewType(this);
+        }
+
+        final Block block = mBlock;
+        if (block == null) {
+            return resolver.getViewType(this);
+        }
+        final int index = position - block.mStart;
+        if (block.mViewTypes[index] == VIEW_TYPE_UNKNOWN) {
+            block.mViewTypes[index] = resolver.getViewType(this);
+        }
+        return block.mViewTypes[index];
+    }
+
+    /**
+     * @return the cached block containing the specified position, or a single row block for the specified position if
+     * that block hasn't been copied yet.
+     */
+    @Nullable
+    private Block requireBlock(final int position) {
+        final int index = position / mBlockSize;
+        Block block;
+        synchronized (mBlocks) {
+            block = mBlocks.get(index);
+        }
+
+        // we don't have this block yet, so copy it in the background and only read the requested row on this thread
+        if (block == null) {
+            prefetchBlock(index);
+            block = readBlock(position, 1);
+        }
+        return block;
+    }
+
+    private void putBlock(final int index, @NonNull final Block block) {
+        synchronized (mBlocks) {
+            mBlocks.put(index, block);
+            mLoading.remove(index);
+
+            // evict the least recently used blocks
+            final Iterator<Integer> blocks = mBlocks.keySet().iterator();
+            while (mBlocks.size() > MAX_BLOCKS && blocks.hasNext()) {
+                blocks.next();
+                blocks.remove();
+            }
+        }
+    }
+
+    private void prefetchBlock(final int index) {
+        if (index < 0 || index * mBlockSize >= mCount) {
+            return;
+        }
+        synchronized (mBlocks) {
+            if (mBlocks.containsKey(index) || !mLoading.add(index)) {
+                return;
+            }
+        }
+
+        try {
+            mExecutor.execute(() -> {
+                final int start = index * mBlockSize;
+                final Block block = readBlock(start, Math.min(mBlockSize, mCount - start));
+                if (block != null) {
+                    putBlock(index, block);
+                } else {
+                    synchronized (mBlocks) {
+                        mLoading.remove(index);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the executor is saturated or shut down, requested rows are read individually until a later prefetch of
+            // this block succeeds
+            synchronized (mBlocks) {
+                mLoading.remove(index);
+            }
+        }
+    }
+
+    @Nullable
+    private Block readBlock(final int start, final int size) {
+        final Object[][] rows = new Object[size][];
+        for (int i = 0; i < size; i++) {
+            // the wrapped Cursor isn't thread-safe, but we only hold the lock for a single row at a time so that a read
+            // on the main thread never waits for an entire block being copied in the background
+            synchronized (mCursorLock) {
+                if (mCursor.isClosed()) {
+                    return null;
+                }
+                try {
+                    if (!mCursor.moveToPosition(start + i)) {
+                        return null;
+                    }
+                    rows[i] = readRow(mCursor);
+                } catch (final RuntimeException e) {
+                    // the wrapped Cursor was closed or invalidated while we were reading it
+                    return null;
+                }
+            }
+        }
+        return new Block(start, rows);
+    }
+
+    @NonNull
+    private static Object[] readRow(@NonNull final Cursor c) {
+        final Object[] row = new Object[c.getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+            switch (c.getType(i)) {
+                case FIELD_TYPE_INTEGER:
+                    row[i] = c.getLong(i);
+                    break;
+                case FIELD_TYPE_FLOAT:
+                    row[i] = c.getDouble(i);
+                    break;
+                case FIELD_TYPE_STRING:
+                    row[i] = c.getString(i);
+                    break;
+                case FIELD_TYPE_BLOB:
+                    row[i] = c.getBlob(i);
+                    break;
+                case FIELD_TYPE_NULL:
+                default:
+                    row[i] = null;
+            }
+        }
+        return row;
+    }
+
+    /* END row cache */
+
+    /* BEGIN Cursor methods */
+
+    @Override
+    public boolean onMove(final int oldPosition, final int newPosition) {
+        final int index = newPosition / mBlockSize;
+        Block block = mBlock;
+        if (block == null || newPosition < block.mStart || newPosition >= block.mStart + block.mRows.length) {
+            block = requireBlock(newPosition);
+            mBlock = block;
+        }
+        if (block == null) {
+            mRow = null;
+            return false;
+        }
+        mRow = block.mRows[newPosition - block.mStart];
+
+        // prefetch the next block in the direction we are scrolling
+        prefetchBlock(newPosition >= oldPosition ? index + 1 : index - 1);
+        return true;
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @NonNull
+    @Override
+    public String[] getColumnNames() {
+        return mColumns;
+    }
+
+    @Nullable
+    private Object getValue(final int column) {
+        checkPosition();
+        if (mRow == null) {
+            throw new IllegalStateException("Row " + mPos + " is not available");
+        }
+        return mRow[column];
+    }
+
+    @Override
+    public int getType(final int column) {
+        final Object value = getValue(column);
+        if (value == null) {
+            return FIELD_TYPE_NULL;
+        } else if (value instanceof Long) {
+            return FIELD_TYPE_INTEGER;
+        } else if (value instanceof Double) {
+            return FIELD_TYPE_FLOAT;
+        } else if (value instanceof byte[]) {
+            return FIELD_TYPE_BLOB;
+        } else {
+            return FIELD_TYPE_STRING;
+        }
+    }
+
+    @Override
+    public boolean isNull(final int column) {
+        return getValue(column) == null;
+    }
+
+    @Override
+    public String getString(final int column) {
+        final Object value = getValue(column);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        } else if (value instanceof byte[]) {
+            return new String((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    @Override
+    public byte[] getBlob(final int column) {
+        final Object value = getValue(column);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return getString(column).getBytes();
+    }
+
+    @Override
+    public long getLong(final int column) {
+        final Object value = getValue(column);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (final NumberFormatException e) {
+                return (long) parseDouble((String) value);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getInt(final int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public short getShort(final int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public double getDouble(final int column) {
+        final Object value = getValue(column);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            return parseDouble((String) value);
+        }
+        return 0;
+    }
+
+    @Override
+    public float getFloat(final int column) {
+        return (float) getDouble(column);
+    }
+
+    private static double parseDouble(@NonNull final String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void registerContentObserver(final ContentObserver observer) {
+        mCursor.registerContentObserver(observer);
+    }
+
+    @Override
+    public void unregisterContentObserver(final ContentObserver observer) {
+        mCursor.unregisterContentObserver(observer);
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return mCursor.getExtras();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (mCursorLock) {
+            mCursor.close();
+        }
+        synchronized (mBlocks) {
+            mBlocks.clear();
+        }
+        mBlock = null;
+        mRow = null;
+    }
+
+    /* END Cursor methods */
+
+    private static final class Block {
+        final int mStart;
+        @NonNull
+        final Object[][] mRows;
+        @NonNull
+        final int[] mViewTypes;
+
+        Block(final int start, @NonNull final Object[][] rows) {
+            mStart = start;
+            mRows = rows;
+            mViewTypes = new int[rows.length];
+            Arrays.fill(mViewTypes, VIEW_TYPE_UNKNOWN);
+        }
+    }
+}
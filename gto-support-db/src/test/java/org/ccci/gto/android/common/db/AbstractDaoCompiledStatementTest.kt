@@ -0,0 +1,66 @@
+package org.ccci.gto.android.common.db
+
+import android.database.sqlite.SQLiteStatement
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.stub
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import org.ccci.gto.android.common.db.model.Model1
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AbstractDaoCompiledStatementTest : BaseAbstractDaoTest() {
+    private lateinit var statement: SQLiteStatement
+
+    @Before
+    fun setupStatement() {
+        statement = mock {
+            on { executeUpdateDelete() } doReturn 1
+            on { simpleQueryForLong() } doReturn 5
+        }
+        db.stub { on { compileStatement(any()) } doReturn statement }
+    }
+
+    @Test
+    fun verifyDeleteReusesStatementWithinTransaction() {
+        dao.transaction {
+            dao.delete(Model1::class.java, Expression.raw("a = ?", "arg1"))
+            dao.delete(Model1::class.java, Expression.raw("a = ?", "arg2"))
+            verify(statement, never()).close()
+        }
+
+        verify(db).compileStatement("DELETE FROM ${Model1.TABLE_NAME} WHERE a = ?")
+        verify(statement).bindString(1, "arg1")
+        verify(statement).bindString(1, "arg2")
+        verify(statement, times(2)).executeUpdateDelete()
+        verify(statement).close()
+    }
+
+    @Test
+    fun verifyStatementsClosedAfterTransaction() {
+        dao.delete(Model1::class.java, Expression.raw("a = ?", "arg1"))
+        verify(statement).close()
+
+        dao.delete(Model1::class.java, Expression.raw("a = ?", "arg2"))
+        verify(db, times(2)).compileStatement("DELETE FROM ${Model1.TABLE_NAME} WHERE a = ?")
+        verify(statement, times(2)).close()
+    }
+
+    @Test
+    fun verifyGetCount() {
+        assertEquals(5, Query.select<Model1>().where(Expression.raw("a = ?", "arg1")).getCount(dao))
+
+        verify(db).compileStatement(
+            "SELECT COUNT(*) FROM (SELECT ${Model1.FIELD_NAME} FROM ${Model1.TABLE_NAME} WHERE a = ?)"
+        )
+        verify(statement).bindString(1, "arg1")
+        verify(statement).close()
+    }
+}
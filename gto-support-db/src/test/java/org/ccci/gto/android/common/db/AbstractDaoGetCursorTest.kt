@@ -4,11 +4,13 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.anyOrNull
 import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.times
 import com.nhaarman.mockitokotlin2.verify
 import org.ccci.gto.android.common.db.model.Model1
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.contains
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
 import org.junit.Test
 import org.junit.runner.RunWith
 
@@ -64,6 +66,45 @@ class AbstractDaoGetCursorTest : BaseAbstractDaoTest() {
         }
     }
 
+    @Test
+    fun verifyGetCursorReusesQueryPlan() {
+        Query.select<Model1>().where(Expression.raw("a = ?", "arg1")).getCursor(dao)
+        Query.select<Model1>().where(Expression.raw("a = ?", "arg2")).getCursor(dao)
+
+        argumentCaptor<Array<String>> {
+            val args = argumentCaptor<Array<String>>()
+            verify(db, times(2)).query(
+                any(), any(), capture(), any(), args.capture(), anyOrNull(), anyOrNull(), anyOrNull(), anyOrNull()
+            )
+            assertSame(firstValue, secondValue)
+            assertThat(args.firstValue.toList(), contains("arg1"))
+            assertThat(args.secondValue.toList(), contains("arg2"))
+        }
+    }
+
+    @Test
+    fun verifyGetCursorAfter() {
+        Query.select<Model1>()
+            .where(Expression.raw("a = ?", "arg1"))
+            .orderBy("b DESC")
+            .after(5)
+            .getCursor(dao)
+
+        argumentCaptor<String> {
+            val args = argumentCaptor<Array<String>>()
+            verify(db).query(
+                any(), any(), any(), capture(), args.capture(), anyOrNull(), anyOrNull(), anyOrNull(), anyOrNull()
+            )
+            assertEquals("(a = ?) AND (((b < CAST(? AS INTEGER) OR b IS NULL)))", firstValue)
+            assertThat(args.firstValue.toList(), contains("arg1", "5"))
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyGetCursorAfterRequiresOrderBy() {
+        Query.select<Model1>().after(5).getCursor(dao)
+    }
+
     @Test
     fun verifyGetCursorLimit() {
         Query.select<Model1>().limit(10).getCursor(dao)
@@ -0,0 +1,71 @@
+package org.ccci.gto.android.common.db
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteStatement
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.stub
+import org.ccci.gto.android.common.db.model.Model1
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.hamcrest.Matchers.empty
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AbstractDaoInvalidationTest : BaseAbstractDaoTest() {
+    private val obj1 = Model1()
+    private val obj2 = Model1()
+    private lateinit var statement: SQLiteStatement
+
+    @Before
+    fun setupDao() {
+        statement = mock()
+        db.stub { on { compileStatement(any()) } doReturn statement }
+        dao.registerMapper(
+            mock { on { toContentValues(any(), any()) } doReturn ContentValues().apply { put(Model1.FIELD_NAME, "a") } }
+        )
+        doReturn(Expression.raw("a = ?", "1")).wheneverGetPrimaryKeyWhere(obj1)
+        doReturn(Expression.raw("a = ?", "2")).wheneverGetPrimaryKeyWhere(obj2)
+    }
+
+    @Test
+    fun verifyInsertInvalidatesClass() {
+        dao.insert(obj1)
+
+        assertThat(dao.invalidatedClasses, contains<Class<*>>(Model1::class.java))
+        assertThat(dao.invalidatedKeys, empty())
+    }
+
+    @Test
+    fun verifyInsertAllInvalidatesClass() {
+        dao.insertAll(listOf(obj1, obj2))
+
+        assertThat(dao.invalidatedClasses, contains<Class<*>>(Model1::class.java))
+        assertThat(dao.invalidatedKeys, empty())
+    }
+
+    @Test
+    fun verifyUpdateOrInsertAllUpdatesInvalidateKeys() {
+        statement.stub { on { executeUpdateDelete() } doReturn 1 }
+        dao.updateOrInsertAll(listOf(obj1, obj2))
+
+        assertThat(dao.invalidatedClasses, empty())
+        assertThat(
+            dao.invalidatedKeys,
+            contains<Pair<Class<*>, Set<List<String>>>>(Model1::class.java to setOf(listOf("1"), listOf("2")))
+        )
+    }
+
+    @Test
+    fun verifyUpdateOrInsertAllInsertsInvalidateClass() {
+        statement.stub { on { executeUpdateDelete() } doReturn 0 }
+        dao.updateOrInsertAll(listOf(obj1, obj2))
+
+        assertThat(dao.invalidatedClasses, contains<Class<*>>(Model1::class.java))
+        assertThat(dao.invalidatedKeys, empty())
+    }
+}
@@ -49,7 +49,14 @@ abstract class BaseAbstractDaoTest {
             invalidatedClasses += clazz
         }
 
+        val invalidatedKeys = mutableListOf<Pair<Class<*>, Set<List<String>>>>()
+        override fun onInvalidateKeys(clazz: Class<*>, keys: Set<List<String>>) {
+            invalidatedKeys += clazz to keys
+        }
+
         fun invalidate(clazz: Class<*>) = invalidateClass(clazz)
+        fun registerMapper(mapper: Mapper<Model1>) =
+            registerType(Model1::class.java, Model1.TABLE_NAME, arrayOf(Model1.FIELD_NAME), mapper, null)
 
         // expose protected methods to mock in tests
         public override fun getPrimaryKeyWhere(obj: Any) = super.getPrimaryKeyWhere(obj)
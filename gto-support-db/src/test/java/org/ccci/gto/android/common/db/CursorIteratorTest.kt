@@ -0,0 +1,64 @@
+package org.ccci.gto.android.common.db
+
+import android.database.Cursor
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.hamcrest.Matchers.equalTo
+import org.junit.Before
+import org.junit.Test
+
+class CursorIteratorTest {
+    private lateinit var cursor: Cursor
+    private var mapped = 0
+
+    @Before
+    fun setup() {
+        cursor = mock {
+            on { moveToNext() } doReturn true doReturn true doReturn false
+            on { getPosition() } doReturn 0 doReturn 1
+        }
+        mapped = 0
+    }
+
+    private fun iterator() = CursorIterator(cursor) {
+        mapped++
+        it.position
+    }
+
+    @Test
+    fun verifyIteratorMapsLazily() {
+        val iterator = iterator()
+        assertThat(mapped, equalTo(0))
+        iterator.next()
+        assertThat(mapped, equalTo(1))
+        verify(cursor, never()).close()
+    }
+
+    @Test
+    fun verifyIteratorClosesCursorWhenExhausted() {
+        assertThat(iterator().asSequence().toList(), contains(0, 1))
+        verify(cursor, times(1)).close()
+    }
+
+    @Test
+    fun verifyIteratorClose() {
+        val iterator = iterator()
+        iterator.next()
+        iterator.close()
+        verify(cursor).close()
+    }
+
+    @Test
+    fun verifyHasNextIsIdempotent() {
+        val iterator = iterator()
+        iterator.hasNext()
+        iterator.hasNext()
+        verify(cursor, times(1)).moveToNext()
+        assertThat(mapped, equalTo(0))
+    }
+}
@@ -0,0 +1,66 @@
+package org.ccci.gto.android.common.db
+
+import android.database.sqlite.SQLiteDatabase
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.stub
+import com.nhaarman.mockitokotlin2.verify
+import org.ccci.gto.android.common.db.model.Model1
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.CALLS_REAL_METHODS
+
+/**
+ * Verify the default implementations of Dao methods for implementations that don't extend [AbstractDao].
+ */
+@RunWith(AndroidJUnit4::class)
+class DaoDefaultsTest {
+    private val dao = mock<Dao>(defaultAnswer = CALLS_REAL_METHODS)
+    private val obj1 = Model1()
+    private val obj2 = Model1()
+
+    @Test
+    fun verifyGetIterator() {
+        val query = Query.select<Model1>()
+        dao.stub { on { get(query) } doReturn listOf(obj1, obj2) }
+
+        val iterator = dao.getIterator(query)
+        assertThat(iterator.asSequence().toList(), contains(obj1, obj2))
+    }
+
+    @Test
+    fun verifyStream() {
+        val query = Query.select<Model1>()
+        dao.stub { on { get(query) } doReturn listOf(obj1, obj2) }
+
+        assertThat(dao.stream(query, 1).toList(), contains(obj1, obj2))
+    }
+
+    @Test
+    fun verifyInsertAll() {
+        dao.insertAll(listOf(obj1, obj2), SQLiteDatabase.CONFLICT_REPLACE)
+
+        verify(dao).insert(obj1, SQLiteDatabase.CONFLICT_REPLACE)
+        verify(dao).insert(obj2, SQLiteDatabase.CONFLICT_REPLACE)
+    }
+
+    @Test
+    fun verifyUpdateOrInsertAll() {
+        dao.updateOrInsertAll(listOf(obj1, obj2), SQLiteDatabase.CONFLICT_NONE, "a")
+
+        verify(dao).updateOrInsert(obj1, SQLiteDatabase.CONFLICT_NONE, "a")
+        verify(dao).updateOrInsert(obj2, SQLiteDatabase.CONFLICT_NONE, "a")
+    }
+
+    @Test
+    fun verifyUpdateOrInsertAllFullProjection() {
+        dao.stub { on { getFullProjection(any()) } doReturn arrayOf("a", "b") }
+        dao.updateOrInsertAll(listOf(obj1), SQLiteDatabase.CONFLICT_NONE)
+
+        verify(dao).updateOrInsert(obj1, SQLiteDatabase.CONFLICT_NONE, "a", "b")
+    }
+}
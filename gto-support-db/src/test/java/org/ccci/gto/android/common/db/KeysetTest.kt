@@ -0,0 +1,101 @@
+package org.ccci.gto.android.common.db
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Date
+
+class KeysetTest {
+    @Test
+    fun verifySingleColumn() {
+        val sql = Keyset.fromOrderBy("a").buildSql(arrayOf("1"))
+        assertEquals("((a > ?))", sql.sql)
+        assertThat(sql.args.toList(), contains("1"))
+    }
+
+    @Test
+    fun verifyMultipleColumns() {
+        val keyset = Keyset.fromOrderBy("a DESC, b COLLATE NOCASE,c asc")
+        assertThat(keyset.columns, contains("a", "b COLLATE NOCASE", "c"))
+        val sql = keyset.buildSql(arrayOf("1", "2", "3"))
+        assertEquals(
+            "(((a < ? OR a IS NULL)) OR (a = ? AND b COLLATE NOCASE > ?) OR " +
+                "(a = ? AND b COLLATE NOCASE = ? AND c > ?))",
+            sql.sql
+        )
+        assertThat(sql.args.toList(), contains("1", "1", "2", "1", "2", "3"))
+    }
+
+    @Test
+    fun verifyFunctionColumns() {
+        val keyset = Keyset.fromOrderBy("COALESCE(a, b) DESC, substr(c, 1, 2),d")
+        assertThat(keyset.columns, contains("COALESCE(a, b)", "substr(c, 1, 2)", "d"))
+        assertEquals(
+            "(((COALESCE(a, b) < ? OR COALESCE(a, b) IS NULL)) OR (COALESCE(a, b) = ? AND substr(c, 1, 2) > ?) OR " +
+                "(COALESCE(a, b) = ? AND substr(c, 1, 2) = ? AND d > ?))",
+            keyset.buildSql(arrayOf("1", "2", "3")).sql
+        )
+    }
+
+    @Test
+    fun verifyTypedValues() {
+        val sql = Keyset.fromOrderBy("a, b, c, d").buildSql(arrayOf(1L, 1.5, "c", byteArrayOf(0x0f, -1)))
+        assertEquals(
+            "((a > CAST(? AS INTEGER)) OR " +
+                "(a = CAST(? AS INTEGER) AND b > CAST(? AS REAL)) OR " +
+                "(a = CAST(? AS INTEGER) AND b = CAST(? AS REAL) AND c > ?) OR " +
+                "(a = CAST(? AS INTEGER) AND b = CAST(? AS REAL) AND c = ? AND d > X'0FFF'))",
+            sql.sql
+        )
+        assertThat(sql.args.toList(), contains("1", "1", "1.5", "1", "1.5", "c", "1", "1.5", "c"))
+    }
+
+    @Test
+    fun verifyNullValues() {
+        val sql = Keyset.fromOrderBy("a, b DESC, c").buildSql(arrayOf(null, null, "1"))
+        assertEquals("((a IS NOT NULL) OR (a IS NULL AND b IS NULL AND c > ?))", sql.sql)
+        assertThat(sql.args.toList(), contains("1"))
+    }
+
+    @Test
+    fun verifyNullValueLastDescending() {
+        assertEquals("(0)", Keyset.fromOrderBy("a DESC").buildSql(arrayOf(null)).sql)
+    }
+
+    @Test
+    fun verifyValueNormalization() {
+        assertEquals(1L, Keyset.value(1))
+        assertEquals(1.5, Keyset.value(1.5f))
+        assertEquals(1L, Keyset.value(true))
+        assertEquals(5L, Keyset.value(Date(5)))
+        assertEquals(null, Keyset.value(null))
+        assertEquals("a", Keyset.value("a"))
+    }
+
+    @Test
+    fun verifyQuotedColumns() {
+        val keyset = Keyset.fromOrderBy("\"a,b\" DESC, IFNULL(c, ','), [d,e]")
+        assertThat(keyset.columns, contains("\"a,b\"", "IFNULL(c, ',')", "[d,e]"))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyUnbalancedParentheses() {
+        Keyset.fromOrderBy("COALESCE(a, b")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyUnterminatedQuote() {
+        Keyset.fromOrderBy("'a, b")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyEmptyTerm() {
+        Keyset.fromOrderBy("a,,b")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyBuildSqlWrongNumberOfValues() {
+        Keyset.fromOrderBy("a,b").buildSql(arrayOf("1"))
+    }
+}
@@ -0,0 +1,120 @@
+package org.ccci.gto.android.common.db.util
+
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.provider.BaseColumns
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+
+@RunWith(AndroidJUnit4::class)
+class PrefetchingCursorTest {
+    private val prefetched = mutableListOf<Runnable>()
+    private val executor = Executor { prefetched.add(it) }
+
+    private fun source(rows: Int) = MatrixCursor(arrayOf(BaseColumns._ID, "name", "value")).apply {
+        for (i in 0 until rows) addRow(arrayOf<Any?>(i + 100L, if (i % 2 == 0) "row $i" else null, i * 1.5))
+    }
+
+    @Test
+    fun verifyRowsMatchSource() {
+        val src = source(25)
+        val cursor = PrefetchingCursor(src, Executor { it.run() }, 4)
+
+        assertEquals(25, cursor.count)
+        assertEquals(src.columnNames.toList(), cursor.columnNames.toList())
+        for (i in 24 downTo 0) {
+            assertTrue(cursor.moveToPosition(i))
+            assertEquals(i + 100L, cursor.getLong(0))
+            assertEquals(if (i % 2 == 0) "row $i" else null, cursor.getString(1))
+            assertEquals(if (i % 2 == 0) Cursor.FIELD_TYPE_STRING else Cursor.FIELD_TYPE_NULL, cursor.getType(1))
+            assertEquals(i * 1.5, cursor.getDouble(2), 0.0)
+        }
+        assertFalse(cursor.moveToPosition(25))
+    }
+
+    @Test
+    fun verifyPrefetchInScrollDirection() {
+        val src = source(20)
+        val cursor = PrefetchingCursor(src, executor, 5)
+
+        // moving forward through the first block prefetches the second block
+        assertTrue(cursor.moveToPosition(1))
+        assertTrue(cursor.moveToPosition(2))
+        assertEquals(1, prefetched.size)
+        prefetched.removeAt(0).run()
+
+        // the second block is now served from the prefetched copy even if the source is closed
+        src.close()
+        assertTrue(cursor.moveToPosition(7))
+        assertEquals(107L, cursor.getLong(0))
+    }
+
+    @Test
+    fun verifyMissReadsOnlyRequestedRow() {
+        val src = source(20)
+        val cursor = PrefetchingCursor(src, executor, 5)
+
+        // jumping to a block that hasn't been copied yet reads the requested row and copies its block in the background
+        assertTrue(cursor.moveToPosition(12))
+        assertEquals(112L, cursor.getLong(0))
+        assertEquals(2, prefetched.size)
+        prefetched.removeAt(0).run()
+
+        src.close()
+        assertTrue(cursor.moveToPosition(10))
+        assertEquals(110L, cursor.getLong(0))
+        assertTrue(cursor.moveToPosition(14))
+        assertEquals(114L, cursor.getLong(0))
+    }
+
+    @Test
+    fun verifyRejectedPrefetchFallsBackToSingleRowReads() {
+        var reject = true
+        val src = source(20)
+        val executor = Executor { if (reject) throw RejectedExecutionException() else it.run() }
+        val cursor = PrefetchingCursor(src, executor, 5)
+
+        // rejected prefetches don't reach the caller, the requested row is still read
+        assertTrue(cursor.moveToPosition(12))
+        assertEquals(112L, cursor.getLong(0))
+        assertTrue(cursor.moveToPosition(13))
+        assertEquals(113L, cursor.getLong(0))
+
+        // the rejected block can be prefetched again once the executor accepts tasks
+        reject = false
+        assertTrue(cursor.moveToPosition(11))
+        assertEquals(111L, cursor.getLong(0))
+        src.close()
+        assertEquals(110L, cursor.getItemId(10))
+        assertEquals(114L, cursor.getItemId(14))
+    }
+
+    @Test
+    fun verifyItemIdAndViewTypeCache() {
+        val cursor = PrefetchingCursor(source(10), executor, 5)
+        assertEquals(103L, cursor.getItemId(3))
+        assertEquals(-1L, cursor.getItemId(10))
+
+        var resolved = 0
+        val resolver = PrefetchingCursor.ViewTypeResolver { resolved++; if (it.isNull(1)) 1 else 0 }
+        assertEquals(1, cursor.getViewType(3, resolver))
+        assertEquals(1, cursor.getViewType(3, resolver))
+        assertEquals(0, cursor.getViewType(4, resolver))
+        assertEquals(2, resolved)
+    }
+
+    @Test
+    fun verifyCloseClosesSource() {
+        val src = source(3)
+        val cursor = PrefetchingCursor(src, executor, 5)
+        cursor.close()
+        assertTrue(src.isClosed)
+        assertTrue(cursor.isClosed)
+    }
+}
@@ -9,7 +9,6 @@ import org.ccci.gto.android.common.jsonapi.JsonApiUtils;
 import org.ccci.gto.android.common.jsonapi.model.JsonApiObject;
 import org.ccci.gto.android.common.jsonapi.retrofit2.annotation.JsonApiInclude;
 import org.ccci.gto.android.common.jsonapi.retrofit2.model.JsonApiRetrofitObject;
-import org.json.JSONException;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -20,6 +19,8 @@ import java.util.List;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
 
@@ -117,7 +118,41 @@ public class JsonApiConverterFactory extends Converter.Factory {
                 options = options.merge(((JsonApiRetrofitObject) value).getOptions());
             }
 
-            return RequestBody.create(MEDIA_TYPE, mConverter.toJson(value, options).getBytes("UTF-8"));
+            // serialize when the call is created so the body has a Content-Length and conversion errors are
+            // thrown to the caller instead of on the network thread
+            final Buffer buffer = new Buffer();
+            mConverter.toJson(value, options, buffer);
+            return new BufferRequestBody(buffer);
+        }
+    }
+
+    /**
+     * A RequestBody that writes the serialized document directly from the Buffer it was serialized into. Each write
+     * uses a clone of the Buffer, which shares its segments, so the body can be written again when a request is
+     * retried without ever copying the serialized bytes.
+     */
+    private static final class BufferRequestBody extends RequestBody {
+        @NonNull
+        private final Buffer mBuffer;
+
+        BufferRequestBody(@NonNull final Buffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return mBuffer.size();
+        }
+
+        @Override
+        public void writeTo(@NonNull final BufferedSink sink) throws IOException {
+            sink.writeAll(mBuffer.clone());
         }
     }
 
@@ -131,9 +166,9 @@ public class JsonApiConverterFactory extends Converter.Factory {
         @Override
         public JsonApiObject<T> convert(final ResponseBody value) throws IOException {
             try {
-                return mConverter.fromJson(value.string(), mDataType);
-            } catch (final JSONException e) {
-                throw new IOException("Error parsing JSON", e);
+                return mConverter.fromJson(value.source(), mDataType);
+            } finally {
+                value.close();
             }
         }
     }
@@ -8,13 +8,17 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
 
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
 import retrofit2.Call;
+import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.http.Body;
@@ -28,6 +32,7 @@ import static net.javacrumbs.jsonunit.fluent.JsonFluentAssert.assertThatJson;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -86,11 +91,12 @@ public class JsonApiConverterFactoryTest {
     @Rule
     public final MockWebServer server = new MockWebServer();
 
+    private Retrofit retrofit;
     private Service service;
 
     @Before
     public void setUp() {
-        Retrofit retrofit = new Retrofit.Builder()
+        retrofit = new Retrofit.Builder()
                 .baseUrl(server.url("/"))
                 .addConverterFactory(
                         JsonApiConverterFactory.create(ModelSimple.class, ModelParent.class, ModelChild.class))
@@ -141,6 +147,31 @@ public class JsonApiConverterFactoryTest {
         assertThat(json, jsonNodeAbsent("included"));
     }
 
+    @Test
+    public void verifyRequestBodyHasContentLength() throws Exception {
+        server.enqueue(new MockResponse().setBody(SIMPLE_SINGLE_RAW_JSON));
+
+        service.post(new ModelSimple(42, "blah")).execute();
+
+        final RecordedRequest request = server.takeRequest();
+        assertThat(request.getHeader("Transfer-Encoding"), is(nullValue()));
+        assertThat(request.getHeader("Content-Length"), is(String.valueOf(request.getBodySize())));
+    }
+
+    @Test
+    public void verifyRequestBodyCanBeWrittenRepeatedly() throws Exception {
+        final Converter<ModelSimple, RequestBody> converter =
+                retrofit.requestBodyConverter(ModelSimple.class, new Annotation[0], new Annotation[0]);
+        final RequestBody body = converter.convert(new ModelSimple(42, "blah"));
+
+        final Buffer first = new Buffer();
+        body.writeTo(first);
+        final Buffer second = new Buffer();
+        body.writeTo(second);
+        assertThat(first.size(), is(body.contentLength()));
+        assertThat(second.readByteString(), is(first.readByteString()));
+    }
+
     @Test
     public void verifyPostIncludes() throws Exception {
         server.enqueue(new MockResponse().setBody(SIMPLE_SINGLE_RAW_JSON));
@@ -0,0 +1,59 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Creates new instances of a specific Collection type. The constructor or generic fallback to use is resolved once
+ * when the factory is created instead of every time a collection is needed.
+ */
+final class CollectionFactory {
+    @NonNull
+    private final Class<?> mType;
+    @Nullable
+    private final Constructor<?> mConstructor;
+    private final boolean mArrayList;
+    private final boolean mHashSet;
+
+    CollectionFactory(@NonNull final Class<?> type) {
+        mType = type;
+
+        Constructor<?> constructor = null;
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            try {
+                constructor = type.getConstructor();
+            } catch (final NoSuchMethodException ignored) {
+            }
+        }
+        mConstructor = constructor;
+        mArrayList = type.isAssignableFrom(ArrayList.class);
+        mHashSet = type.isAssignableFrom(HashSet.class);
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    Collection<Object> newCollection() {
+        if (mConstructor != null) {
+            try {
+                return (Collection<Object>) mConstructor.newInstance();
+            } catch (final Exception ignored) {
+            }
+        }
+
+        // try using some generic collection type
+        if (mArrayList) {
+            return new ArrayList<>();
+        } else if (mHashSet) {
+            return new HashSet<>();
+        } else {
+            throw new IllegalArgumentException(
+                    mType + " is currently not a supported Collection type, try something more generic");
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -27,17 +28,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArrayMap;
 import androidx.collection.SimpleArrayMap;
 
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+
 import static java.util.Collections.singletonMap;
+import static org.ccci.gto.android.common.jsonapi.JsonApiUtils.nextLiteral;
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiError.JSON_ERROR_DETAIL;
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiError.JSON_ERROR_META;
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiError.JSON_ERROR_SOURCE;
@@ -52,13 +63,15 @@ import static org.ccci.gto.android.common.jsonapi.model.JsonApiObject.JSON_DATA_
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiObject.JSON_ERRORS;
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiObject.JSON_INCLUDED;
 import static org.ccci.gto.android.common.jsonapi.model.JsonApiObject.JSON_META;
-import static org.ccci.gto.android.common.util.CollectionUtils.newCollection;
 import static org.ccci.gto.android.common.util.NumberUtils.toInteger;
 
 public final class JsonApiConverter {
     public static final class Builder {
         private final List<Class<?>> mClasses = new ArrayList<>();
         private final List<TypeConverter<?>> mConverters = new ArrayList<>();
+        @Nullable
+        private Executor mParallelExecutor;
+        private int mParallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
         @NonNull
         public Builder addClasses(@NonNull final Class<?>... classes) {
@@ -72,21 +85,66 @@ public final class JsonApiConverter {
             return this;
         }
 
+        /**
+         * Materialize large "included" arrays in parallel on the provided Executor. Included resources are
+         * instantiated and have their attributes populated concurrently, relationships are then linked and
+         * post-create methods triggered sequentially on the calling thread. Any configured TypeConverters need to be
+         * thread-safe when this is enabled.
+         *
+         * This only affects {@link JsonApiConverter#fromJson(String, Class)}. The streaming
+         * {@link JsonApiConverter#fromJson(BufferedSource, Class)}, which is what the Retrofit JsonApiConverterFactory
+         * uses, always materializes resources sequentially as they are read.
+         *
+         * @param executor  the Executor to materialize resources on, or null to disable parallel materialization.
+         * @param threshold the minimum number of included resources before materialization is parallelized.
+         */
+        @NonNull
+        public Builder parallelizeIncluded(@Nullable final Executor executor, final int threshold) {
+            mParallelExecutor = executor;
+            mParallelThreshold = threshold;
+            return this;
+        }
+
+        @NonNull
+        public Builder parallelizeIncluded(@Nullable final Executor executor) {
+            return parallelizeIncluded(executor, DEFAULT_PARALLEL_THRESHOLD);
+        }
+
         @NonNull
         public JsonApiConverter build() {
-            return new JsonApiConverter(mClasses, mConverters);
+            return new JsonApiConverter(mClasses, mConverters, mParallelExecutor, mParallelThreshold);
         }
     }
 
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+    private static final JsonReader.Options NAMES_DOCUMENT =
+            JsonReader.Options.of(JSON_DATA, JSON_INCLUDED, JSON_ERRORS, JSON_META);
+    private static final int NAME_DOCUMENT_DATA = 0;
+    private static final int NAME_DOCUMENT_INCLUDED = 1;
+    private static final int NAME_DOCUMENT_ERRORS = 2;
+    private static final int NAME_DOCUMENT_META = 3;
+    private static final JsonReader.Options NAMES_RESOURCE =
+            JsonReader.Options.of(JSON_DATA_TYPE, JSON_DATA_ID, JSON_DATA_ATTRIBUTES, JSON_DATA_RELATIONSHIPS);
+    private static final int NAME_RESOURCE_TYPE = 0;
+    private static final int NAME_RESOURCE_ID = 1;
+    private static final int NAME_RESOURCE_ATTRIBUTES = 2;
+    private static final int NAME_RESOURCE_RELATIONSHIPS = 3;
+    private static final JsonReader.Options NAMES_RELATIONSHIP = JsonReader.Options.of(JSON_DATA);
+    private static final int NAME_RELATIONSHIP_DATA = 0;
+
     private final List<TypeConverter<?>> mConverters = new ArrayList<>();
     private final Set<Class<?>> mSupportedClasses = new HashSet<>();
     private final Map<String, Class<?>> mTypes = new HashMap<>();
-    private final Map<Class<?>, FieldInfo> mIdField = new HashMap<>();
-    private final Map<Class<?>, FieldInfo> mPlaceholderField = new HashMap<>();
-    private final Map<Class<?>, List<MethodInfo>> mPostCreateMethod = new HashMap<>();
-    private final Map<Class<?>, List<FieldInfo>> mFields = new HashMap<>();
+    private final Map<Class<?>, ResourceInfo> mResources = new HashMap<>();
+    @Nullable
+    private final Executor mParallelExecutor;
+    private final int mParallelThreshold;
 
-    JsonApiConverter(@NonNull final List<Class<?>> classes, @NonNull final List<TypeConverter<?>> converters) {
+    JsonApiConverter(@NonNull final List<Class<?>> classes, @NonNull final List<TypeConverter<?>> converters,
+                     @Nullable final Executor parallelExecutor, final int parallelThreshold) {
+        mParallelExecutor = parallelExecutor;
+        mParallelThreshold = parallelThreshold;
         mConverters.addAll(converters);
         mSupportedClasses.addAll(classes);
 
@@ -115,9 +173,11 @@ public final class JsonApiConverter {
                 mTypes.put(alias, c);
             }
 
-            // initialize Fields and Methods for the class
-            initFields(c);
-            initMethods(c);
+            // compile the binding plan for the class
+            final ResourceInfo resource = new ResourceInfo(c, type);
+            initFields(resource);
+            initMethods(resource);
+            mResources.put(c, resource);
         }
     }
 
@@ -179,6 +239,69 @@ public final class JsonApiConverter {
         }
     }
 
+    /**
+     * Write the JSON:API document for the provided object directly to the provided sink without building an
+     * intermediate org.json tree. Primary data is written as it is serialized, related resources to include are
+     * tracked by reference and written once each after the primary data.
+     * The sink is flushed but not closed by this method.
+     */
+    public void toJson(@NonNull final JsonApiObject<?> obj, @NonNull final Options options,
+                       @NonNull final BufferedSink sink) throws IOException {
+        final Includes includes = options.mIncludes;
+        final JsonWriter writer = JsonWriter.of(sink);
+        writer.setSerializeNulls(true);
+        try {
+            final Map<ObjKey, Object> related = new LinkedHashMap<>();
+            final List<Object> anonymousRelated = options.mIncludeObjectsWithNoId ? new ArrayList<>() : null;
+            final Map<Object, Includes> expanded = new IdentityHashMap<>();
+
+            writer.beginObject();
+            if (obj.hasErrors()) {
+                writer.name(JSON_ERRORS).beginArray();
+                for (final JsonApiError error : obj.getErrors()) {
+                    JsonApiUtils.writeJSONValue(writer, errorToJson(error));
+                }
+                writer.endArray();
+            } else if (obj.isSingle()) {
+                writer.name(JSON_DATA);
+                resourceToJson(writer, obj.getDataSingle(), options);
+                collectRelated(obj.getDataSingle(), options, includes, related, anonymousRelated, expanded);
+            } else {
+                writer.name(JSON_DATA).beginArray();
+                for (final Object resource : obj.getData()) {
+                    resourceToJson(writer, resource, options);
+                    collectRelated(resource, options, includes, related, anonymousRelated, expanded);
+                }
+                writer.endArray();
+            }
+
+            // include related objects if there are any
+            if (related.size() > 0 || (anonymousRelated != null && !anonymousRelated.isEmpty())) {
+                writer.name(JSON_INCLUDED).beginArray();
+                for (final Object resource : related.values()) {
+                    resourceToJson(writer, resource, options);
+                }
+                if (anonymousRelated != null) {
+                    for (final Object resource : anonymousRelated) {
+                        resourceToJson(writer, resource, options);
+                    }
+                }
+                writer.endArray();
+            }
+
+            // pass the JSONApi meta data as-is
+            final JSONObject meta = obj.getRawMeta();
+            if (meta != null) {
+                writer.name(JSON_META);
+                JsonApiUtils.writeJSONValue(writer, meta);
+            }
+            writer.endObject();
+            writer.flush();
+        } catch (final JSONException e) {
+            throw new RuntimeException("Unexpected JSONException", e);
+        }
+    }
+
     @NonNull
     @SuppressWarnings("checkstyle:RightCurly")
     public <T> JsonApiObject<T> fromJson(@NonNull final String json, @NonNull final Class<T> type)
@@ -189,8 +312,7 @@ public final class JsonApiConverter {
         final Map<ObjKey, ObjValue> objects = new HashMap<>();
         final JSONArray included = jsonObject.optJSONArray(JSON_INCLUDED);
         if (included != null) {
-            //noinspection unchecked
-            resourcesFromJson(included, Object.class, Collection.class, false, objects);
+            includedFromJson(included, objects);
         }
 
         final JsonApiObject<T> output;
@@ -211,8 +333,9 @@ public final class JsonApiConverter {
             final JSONArray dataArray = jsonObject.optJSONArray(JSON_DATA);
             if (dataArray != null) {
                 output = JsonApiObject.of();
-                //noinspection unchecked
-                output.setData(resourcesFromJson(dataArray, type, Collection.class, false, objects));
+                final List<T> data = new ArrayList<>();
+                resourcesFromJson(dataArray, type, false, objects, data);
+                output.setData(data);
             }
             // {data: null} or {data: {}}
             else {
@@ -237,18 +360,120 @@ public final class JsonApiConverter {
         return output;
     }
 
-    private void initFields(@NonNull final Class<?> clazz) {
-        final List<FieldInfo> fields = getFields(clazz);
-        for (final Iterator<FieldInfo> i = fields.iterator(); i.hasNext();) {
-            final FieldInfo field = i.next();
+    /**
+     * Parse a JSON:API document directly from the provided source without first building a full org.json tree.
+     * Resources are materialized as they are encountered, relationships referencing resources that haven't been seen
+     * yet are created as placeholders and populated once their "included" entry is read.
+     * "included" resources are always materialized sequentially, {@link Builder#parallelizeIncluded(Executor, int)}
+     * does not apply to this method.
+     * The source is not closed by this method.
+     */
+    @NonNull
+    public <T> JsonApiObject<T> fromJson(@NonNull final BufferedSource source, @NonNull final Class<T> type)
+            throws IOException {
+        final JsonReader reader = JsonReader.of(source);
+        reader.setLenient(true);
+
+        try {
+            final Map<ObjKey, ObjValue> objects = new HashMap<>();
+            List<JsonApiError> errors = null;
+            List<T> data = null;
+            T dataSingle = null;
+            boolean hasDataSingle = false;
+            JSONObject meta = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(NAMES_DOCUMENT)) {
+                    case NAME_DOCUMENT_DATA:
+                        if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                            // {data: []}
+                            data = resourcesFromJson(reader, type, false, objects);
+                        } else {
+                            // {data: null} or {data: {}}
+                            dataSingle = resourceFromJson(reader, type, false, objects);
+                            hasDataSingle = true;
+                        }
+                        break;
+                    case NAME_DOCUMENT_INCLUDED:
+                        if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                            resourcesFromJson(reader, Object.class, false, objects);
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    case NAME_DOCUMENT_ERRORS:
+                        errors = new ArrayList<>();
+                        if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                                    errors.add(errorFromJson(JsonApiUtils.readJSONObject(reader)));
+                                } else {
+                                    reader.skipValue();
+                                }
+                            }
+                            reader.endArray();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    case NAME_DOCUMENT_META:
+                        if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                            meta = JsonApiUtils.readJSONObject(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    default:
+                        reader.skipName();
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            final JsonApiObject<T> output;
+            if (errors != null) {
+                output = JsonApiObject.error();
+                for (final JsonApiError error : errors) {
+                    output.addError(error);
+                }
+            } else if (data != null) {
+                output = JsonApiObject.of();
+                output.setData(data);
+            } else if (hasDataSingle) {
+                output = JsonApiObject.single(dataSingle);
+            } else {
+                throw new UnsupportedOperationException();
+            }
+
+            // call any post-create methods
+            for (final ObjValue obj : objects.values()) {
+                triggerPostCreate(obj);
+            }
+
+            // pass the JSONApi meta object back as-is
+            output.setRawMeta(meta);
+
+            return output;
+        } catch (final JsonDataException e) {
+            throw new IOException("Invalid JSON:API document", e);
+        }
+    }
+
+    private void initFields(@NonNull final ResourceInfo resource) {
+        final Class<?> clazz = resource.mClass;
+        for (final FieldInfo field : getFields(clazz)) {
+            initBinding(field);
+
             if (field.isId()) {
-                if (mIdField.containsKey(clazz)) {
+                if (resource.mIdField != null) {
                     throw new IllegalArgumentException("Class " + clazz + " has more than one @JsonApiId defined");
                 }
-                mIdField.put(clazz, field);
+                resource.mIdField = field;
             }
             if (field.isPlaceholder()) {
-                if (mPlaceholderField.containsKey(clazz)) {
+                if (resource.mPlaceholderField != null) {
                     throw new IllegalArgumentException("Class " + clazz + " has more than one placeholder defined");
                 }
                 final Class<?> fieldType = field.getType();
@@ -256,22 +481,104 @@ public final class JsonApiConverter {
                     throw new IllegalArgumentException(
                             "Class " + clazz + " has an unsupported placeholder field type " + fieldType);
                 }
-                mPlaceholderField.put(clazz, field);
-                i.remove();
+                resource.mPlaceholderField = field;
+                continue;
             }
+
+            resource.addField(field);
         }
-        mFields.put(clazz, fields);
     }
 
-    private void initMethods(@NonNull final Class<?> clazz) {
-        for (final MethodInfo method : getMethods(clazz)) {
-            if (method.mIsPostCreate) {
-                List<MethodInfo> postCreateMethods = mPostCreateMethod.get(clazz);
-                if (postCreateMethods == null) {
-                    postCreateMethods = new ArrayList<>();
-                    mPostCreateMethod.put(clazz, postCreateMethods);
-                }
+    /**
+     * Resolve how the specified field is read and written once, so that (de)serializing resources doesn't need to
+     * repeatedly inspect the field type or search the configured TypeConverters.
+     */
+    private void initBinding(@NonNull final FieldInfo field) {
+        final Class<?> fieldType = field.getType();
+        final Class<?> fieldArrayType = field.getArrayType();
+        final Class<?> fieldCollectionType = field.getCollectionType();
+
+        // is this a relationship?
+        if (!field.isId()) {
+            if (supports(fieldType)) {
+                field.mRelationship = FieldInfo.RELATIONSHIP_SINGLE;
+                field.mRelatedType = fieldType;
+                return;
+            } else if (fieldType.isArray() && supports(fieldArrayType)) {
+                field.mRelationship = FieldInfo.RELATIONSHIP_ARRAY;
+                field.mRelatedType = fieldArrayType;
+                return;
+            } else if (supports(fieldCollectionType)) {
+                field.mRelationship = FieldInfo.RELATIONSHIP_COLLECTION;
+                field.mRelatedType = fieldCollectionType;
+                field.mCollectionFactory = new CollectionFactory(fieldType);
+                return;
+            }
+        }
+
+        // everything else is a value
+        field.mBinding = getBinding(fieldType, fieldArrayType, fieldCollectionType);
+        field.mValueType = boxedType(fieldType);
+        field.mValueConverter = getConverter(field.mValueType);
+        field.mValueIsNative = field.mValueConverter == null && !fieldType.isArray() &&
+                !Collection.class.isAssignableFrom(fieldType);
+    }
 
+    @NonNull
+    private ValueBinding getBinding(@NonNull final Class<?> type, @Nullable final Class<?> arrayElementType,
+                                    @Nullable final Class<?> collectionElementType) {
+        // utilize configured TypeConverters first
+        final TypeConverter<?> converter = getConverter(type);
+        if (converter != null) {
+            return new ValueBinding.Converted(converter);
+        }
+
+        // handle array types
+        if (type.isArray() && arrayElementType != null) {
+            return new ValueBinding.ArrayOf(arrayElementType, getBinding(arrayElementType, null, null));
+        }
+
+        // handle collection types
+        if (Collection.class.isAssignableFrom(type) && collectionElementType != null) {
+            return new ValueBinding.CollectionOf(new CollectionFactory(type),
+                                                 getBinding(collectionElementType, null, null));
+        }
+
+        // handle native types
+        return ValueBinding.Native.of(type);
+    }
+
+    @NonNull
+    private static Class<?> boxedType(@NonNull final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (boolean.class.equals(type)) {
+            return Boolean.class;
+        } else if (double.class.equals(type)) {
+            return Double.class;
+        } else if (float.class.equals(type)) {
+            return Float.class;
+        } else if (int.class.equals(type)) {
+            return Integer.class;
+        } else if (long.class.equals(type)) {
+            return Long.class;
+        }
+        return type;
+    }
+
+    @Nullable
+    private TypeConverter<?> getConverter(@NonNull final Class<?> type) {
+        for (final TypeConverter<?> converter : mConverters) {
+            if (converter.supports(type)) {
+                return converter;
+            }
+        }
+        return null;
+    }
+
+    private void initMethods(@NonNull final ResourceInfo resource) {
+        for (final MethodInfo method : getMethods(resource.mClass)) {
+            if (method.mIsPostCreate) {
                 if (method.mMethod.getParameterTypes().length > 0) {
                     throw new IllegalArgumentException(
                             "@JsonApiPostCreate annotated method '" + method.mMethod + "' cannot have any parameters");
@@ -289,7 +596,7 @@ public final class JsonApiConverter {
                             "@JsonApiPostCreate annotated method '" + method.mMethod + "' must be effectively final");
                 }
 
-                postCreateMethods.add(method);
+                resource.mPostCreateMethods.add(method);
             }
         }
     }
@@ -358,25 +665,22 @@ public final class JsonApiConverter {
         if (resource == null) {
             return null;
         }
-        final Class<?> clazz = resource.getClass();
-        final String type = getResourceType(clazz);
-        if (!clazz.equals(mTypes.get(type))) {
-            throw new IllegalArgumentException(clazz + " is not a valid JsonApi resource type for this converter");
-        }
+        final ResourceInfo info = getResourceInfo(resource);
+        final String type = info.mType;
 
         // create base object
         final JSONObject json = new JSONObject();
         final JSONObject attributes = new JSONObject();
         final JSONObject relationships = new JSONObject();
         json.put(JSON_DATA_TYPE, type);
-        final FieldInfo idField = mIdField.get(clazz);
+        final FieldInfo idField = info.mIdField;
         if (idField != null) {
             json.put(JSON_DATA_ID, convertToJsonValue(resource, idField));
         }
 
         // process all fields
         final Fields fields = options.getFields(type);
-        for (final FieldInfo field : mFields.get(clazz)) {
+        for (final FieldInfo field : info.mFields) {
             // skip id fields, we already handled them)
             if (field.isId()) {
                 continue;
@@ -393,13 +697,8 @@ public final class JsonApiConverter {
                 continue;
             }
 
-            // get some common attributes about the field
-            final Class<?> fieldType = field.getType();
-            final Class<?> fieldArrayType = field.getArrayType();
-            final Class<?> fieldCollectionType = field.getCollectionType();
-
             // is this a relationship?
-            if (supports(fieldType)) {
+            if (field.mRelationship == FieldInfo.RELATIONSHIP_SINGLE) {
                 try {
                     final JSONObject relatedObj =
                             resourceToJson(field.mField.get(resource), options, include.descendant(attrName), related,
@@ -419,7 +718,7 @@ public final class JsonApiConverter {
                 } catch (final IllegalAccessException ignored) {
                 }
                 continue;
-            } else if (supports(fieldArrayType)) {
+            } else if (field.mRelationship == FieldInfo.RELATIONSHIP_ARRAY) {
                 final JSONArray objs = new JSONArray();
                 try {
                     final Object[] col = (Object[]) field.mField.get(resource);
@@ -444,7 +743,7 @@ public final class JsonApiConverter {
                 }
                 relationships.put(attrName, new JSONObject(singletonMap(JSON_DATA, objs)));
                 continue;
-            } else if (supports(fieldCollectionType)) {
+            } else if (field.mRelationship == FieldInfo.RELATIONSHIP_COLLECTION) {
                 final JSONArray objs = new JSONArray();
                 try {
                     final Collection col = (Collection) field.mField.get(resource);
@@ -493,44 +792,219 @@ public final class JsonApiConverter {
         return json;
     }
 
-    @NonNull
-    private <E> E[] resourcesFromJson(@Nullable final JSONArray json, @NonNull final Class<E> type,
-                                      final boolean placeholder, @NonNull final Map<ObjKey, ObjValue> objects) {
-        @SuppressWarnings("unchecked")
-        final E[] array = (E[]) Array.newInstance(type, json != null ? json.length() : 0);
+    private void resourceToJson(@NonNull final JsonWriter writer, @Nullable final Object resource,
+                                @NonNull final Options options) throws IOException, JSONException {
+        if (resource == null) {
+            writer.nullValue();
+            return;
+        }
+        final ResourceInfo info = getResourceInfo(resource);
+        final String type = info.mType;
 
-        if (json != null) {
-            for (int i = 0; i < json.length(); i++) {
-                array[i] = resourceFromJson(json.optJSONObject(i), type, placeholder, objects);
+        writer.beginObject();
+        writer.name(JSON_DATA_TYPE).value(type);
+        final Object id = getResourceId(resource, info);
+        if (id != null) {
+            writer.name(JSON_DATA_ID);
+            JsonApiUtils.writeJSONValue(writer, id);
+        }
+
+        // write attributes
+        final Fields fields = options.getFields(type);
+        final boolean serializeNulls = options.serializeNullAttributes(type);
+        boolean hasAttributes = false;
+        for (final FieldInfo field : info.mFields) {
+            // skip id fields, relationships & fields that shouldn't be serialized
+            if (field.isId() || field.mRelationship != FieldInfo.RELATIONSHIP_NONE || !field.serialize()) {
+                continue;
+            }
+
+            // skip fields we are not including
+            final String attrName = field.getAttrName();
+            if (!fields.include(attrName)) {
+                continue;
             }
+
+            // skip null values if we aren't serializing nulls for this type
+            final Object value = convertToJsonValue(resource, field);
+            if (value == null && !serializeNulls) {
+                continue;
+            }
+
+            if (!hasAttributes) {
+                writer.name(JSON_DATA_ATTRIBUTES).beginObject();
+                hasAttributes = true;
+            }
+            writer.name(attrName);
+            JsonApiUtils.writeJSONValue(writer, value);
+        }
+        if (hasAttributes) {
+            writer.endObject();
         }
 
-        return array;
+        // write relationships
+        boolean hasRelationships = false;
+        for (final FieldInfo field : info.mFields) {
+            // skip everything that isn't a serialized relationship
+            if (field.isId() || field.mRelationship == FieldInfo.RELATIONSHIP_NONE || !field.serialize()) {
+                continue;
+            }
+
+            // skip fields we are not including
+            final String attrName = field.getAttrName();
+            if (!fields.include(attrName)) {
+                continue;
+            }
+
+            final List<?> related = getRelated(resource, field);
+            if (field.mRelationship == FieldInfo.RELATIONSHIP_SINGLE) {
+                // a to-one relationship is only written when the related resource has an id
+                final Object relatedObj = related.isEmpty() ? null : related.get(0);
+                if (relatedObj == null) {
+                    continue;
+                }
+                final ResourceInfo relatedInfo = getResourceInfo(relatedObj);
+                final Object relatedId = getResourceId(relatedObj, relatedInfo);
+                if (relatedId == null) {
+                    continue;
+                }
+
+                if (!hasRelationships) {
+                    writer.name(JSON_DATA_RELATIONSHIPS).beginObject();
+                    hasRelationships = true;
+                }
+                writer.name(attrName).beginObject().name(JSON_DATA);
+                referenceToJson(writer, relatedInfo, relatedId);
+                writer.endObject();
+            } else {
+                if (!hasRelationships) {
+                    writer.name(JSON_DATA_RELATIONSHIPS).beginObject();
+                    hasRelationships = true;
+                }
+                writer.name(attrName).beginObject().name(JSON_DATA).beginArray();
+                for (final Object relatedObj : related) {
+                    if (relatedObj == null) {
+                        continue;
+                    }
+                    final ResourceInfo relatedInfo = getResourceInfo(relatedObj);
+                    final Object relatedId = getResourceId(relatedObj, relatedInfo);
+                    if (relatedId != null) {
+                        referenceToJson(writer, relatedInfo, relatedId);
+                    }
+                }
+                writer.endArray().endObject();
+            }
+        }
+        if (hasRelationships) {
+            writer.endObject();
+        }
+
+        writer.endObject();
+    }
+
+    private static void referenceToJson(@NonNull final JsonWriter writer, @NonNull final ResourceInfo info,
+                                        @NonNull final Object id) throws IOException {
+        writer.beginObject();
+        writer.name(JSON_DATA_TYPE).value(info.mType);
+        writer.name(JSON_DATA_ID);
+        JsonApiUtils.writeJSONValue(writer, id);
+        writer.endObject();
+    }
+
+    /**
+     * Find all the related resources that should be included for the provided resource. Included resources are
+     * de-duplicated by their type & id, resources without an id are tracked in anonymousRelated when requested.
+     */
+    private void collectRelated(@Nullable final Object resource, @NonNull final Options options,
+                                @NonNull final Includes include, @NonNull final Map<ObjKey, Object> related,
+                                @Nullable final List<Object> anonymousRelated,
+                                @NonNull final Map<Object, Includes> expanded) throws JSONException {
+        // short-circuit if we already processed this resource for the current includes
+        if (resource == null || expanded.put(resource, include) == include) {
+            return;
+        }
+
+        final ResourceInfo info = getResourceInfo(resource);
+        final Fields fields = options.getFields(info.mType);
+        for (final FieldInfo field : info.mFields) {
+            // skip everything that isn't a serialized relationship
+            if (field.isId() || field.mRelationship == FieldInfo.RELATIONSHIP_NONE || !field.serialize()) {
+                continue;
+            }
+
+            // skip relationships we are not including
+            final String attrName = field.getAttrName();
+            if (!fields.include(attrName) || !include.include(attrName)) {
+                continue;
+            }
+
+            final Includes descendant = include.descendant(attrName);
+            for (final Object relatedObj : getRelated(resource, field)) {
+                if (relatedObj == null) {
+                    continue;
+                }
+
+                final ResourceInfo relatedInfo = getResourceInfo(relatedObj);
+                final Object relatedId = getResourceId(relatedObj, relatedInfo);
+                if (relatedId != null) {
+                    related.put(new ObjKey(relatedInfo.mType, relatedId.toString()), relatedObj);
+                } else if (anonymousRelated != null) {
+                    anonymousRelated.add(relatedObj);
+                }
+                collectRelated(relatedObj, options, descendant, related, anonymousRelated, expanded);
+            }
+        }
     }
 
     @NonNull
-    private <E, T extends Collection<E>> T resourcesFromJson(@Nullable final JSONArray json,
-                                                             @NonNull final Class<E> type,
-                                                             @NonNull final Class<T> collectionType,
-                                                             final boolean placeholder,
-                                                             @NonNull final Map<ObjKey, ObjValue> objects) {
-        // create new collection
-        final T resources = newCollection(collectionType);
-        if (resources == null) {
-            throw new IllegalArgumentException("Invalid Collection Type: " + collectionType);
+    private List<?> getRelated(@NonNull final Object resource, @NonNull final FieldInfo field) {
+        final Object value;
+        try {
+            value = field.mField.get(resource);
+        } catch (final IllegalAccessException e) {
+            return Collections.emptyList();
         }
 
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        switch (field.mRelationship) {
+            case FieldInfo.RELATIONSHIP_ARRAY:
+                return Arrays.asList((Object[]) value);
+            case FieldInfo.RELATIONSHIP_COLLECTION:
+                return new ArrayList<>((Collection<?>) value);
+            case FieldInfo.RELATIONSHIP_SINGLE:
+            default:
+                return Collections.singletonList(value);
+        }
+    }
+
+    @NonNull
+    private ResourceInfo getResourceInfo(@NonNull final Object resource) {
+        final Class<?> clazz = resource.getClass();
+        final ResourceInfo info = mResources.get(clazz);
+        if (info == null) {
+            throw new IllegalArgumentException(clazz + " is not a valid JsonApi resource type for this converter");
+        }
+        return info;
+    }
+
+    @Nullable
+    private Object getResourceId(@NonNull final Object resource, @NonNull final ResourceInfo info)
+            throws JSONException {
+        return info.mIdField != null ? convertToJsonValue(resource, info.mIdField) : null;
+    }
+    private <E> void resourcesFromJson(@Nullable final JSONArray json, @NonNull final Class<E> type,
+                                       final boolean placeholder, @NonNull final Map<ObjKey, ObjValue> objects,
+                                       @NonNull final Collection<? super E> resources) {
         if (json != null) {
             for (int i = 0; i < json.length(); i++) {
                 resources.add(resourceFromJson(json.optJSONObject(i), type, placeholder, objects));
             }
         }
-
-        return resources;
     }
 
     @Nullable
-    @SuppressWarnings("checkstyle:RightCurly")
     private <E> E resourceFromJson(@Nullable final JSONObject json, @NonNull final Class<E> expectedType,
                                    final boolean placeholder, @NonNull final Map<ObjKey, ObjValue> objects) {
         if (json == null) {
@@ -543,117 +1017,407 @@ public final class JsonApiConverter {
         if (type == null || !expectedType.isAssignableFrom(type)) {
             return null;
         }
+        final ResourceInfo resource = mResources.get(type);
 
         // look for the referenced object first
         final String rawId = json.optString(JSON_DATA_ID);
         final ObjKey key = rawId != null && rawType != null ? new ObjKey(rawType, rawId) : null;
-        ObjValue<E> value = null;
-        if (key != null) {
-            //noinspection unchecked
-            value = objects.get(key);
-        }
-        // no object found, create a new instance
+        final ObjValue<E> value = findOrCreateResource(resource, key, objects);
         if (value == null) {
-            try {
-                //noinspection unchecked
-                value = new ObjValue<>((E) type.newInstance());
-                if (key != null) {
-                    objects.put(key, value);
-                }
-
-                // mark the new object as a placeholder
-                final FieldInfo placeholderField = mPlaceholderField.get(type);
-                if (placeholderField != null) {
-                    placeholderField.mField.set(value.mObject, true);
-                }
-            } catch (final Exception e) {
-                return null;
-            }
+            return null;
         }
         final E instance = value.mObject;
 
         // populate fields
-        final JSONObject attributes = json.optJSONObject(JSON_DATA_ATTRIBUTES);
-        final JSONObject relationships = json.optJSONObject(JSON_DATA_RELATIONSHIPS);
-        for (final FieldInfo field : mFields.get(type)) {
-            // skip fields that shouldn't be deserialized
-            if (!field.deserialize()) {
-                continue;
+        valuesFromJson(json, instance, resource);
+        relationshipsFromJson(json, instance, resource, objects);
+
+        // was the full object just instantiated
+        if (!placeholder) {
+            markComplete(resource, value);
+
+            // trigger post create method if there wasn't a key for this object
+            if (key == null) {
+                triggerPostCreate(value);
             }
+        }
 
-            final String attrName = field.getAttrName();
-            final Class<?> fieldType = field.getType();
-            final Class<?> fieldArrayType = field.getArrayType();
-            final Class<?> fieldCollectionType = field.getCollectionType();
+        // return the object
+        return instance;
+    }
 
+    /**
+     * Populate the id & attributes of a resource. This doesn't touch any shared state so it is safe to run
+     * concurrently for different resources.
+     */
+    private void valuesFromJson(@NonNull final JSONObject json, @NonNull final Object instance,
+                                @NonNull final ResourceInfo resource) {
+        // populate the id
+        final FieldInfo idField = resource.mIdField;
+        if (idField != null && idField.deserialize()) {
             try {
-                // handle id fields
-                if (field.isId()) {
-                    field.mField.set(instance, convertFromJSONObject(json, JSON_DATA_ID, field));
+                idField.mBinding.bind(idField.mField, instance, json, JSON_DATA_ID);
+            } catch (final JSONException | IllegalAccessException ignored) {
+            }
+        }
+
+        // populate attributes
+        final JSONObject attributes = json.optJSONObject(JSON_DATA_ATTRIBUTES);
+        if (attributes != null) {
+            for (final FieldInfo field : resource.mAttributes) {
+                try {
+                    field.mBinding.bind(field.mField, instance, attributes, field.getAttrName());
+                } catch (final JSONException | IllegalAccessException ignored) {
                 }
-                // handle relationships
-                else if (supports(fieldType)) {
-                    if (relationships != null) {
-                        final JSONObject related = relationships.optJSONObject(attrName);
-                        if (related != null) {
-                            field.mField.set(instance,
-                                             resourceFromJson(related.optJSONObject(JSON_DATA), fieldType, true,
-                                                              objects));
-                        }
+            }
+        }
+    }
+
+    private void relationshipsFromJson(@NonNull final JSONObject json, @NonNull final Object instance,
+                                       @NonNull final ResourceInfo resource,
+                                       @NonNull final Map<ObjKey, ObjValue> objects) {
+        final JSONObject relationships = json.optJSONObject(JSON_DATA_RELATIONSHIPS);
+        if (relationships != null) {
+            for (final FieldInfo field : resource.mRelationships) {
+                final JSONObject related = relationships.optJSONObject(field.getAttrName());
+                if (related != null) {
+                    try {
+                        field.mField.set(instance, relationshipFromJson(related, field, objects));
+                    } catch (final IllegalAccessException ignored) {
                     }
                 }
-                // handle arrays of relationships
-                else if (fieldType.isArray() && supports(fieldArrayType)) {
-                    if (relationships != null) {
-                        final JSONObject related = relationships.optJSONObject(attrName);
-                        if (related != null) {
-                            field.mField.set(instance,
-                                             resourcesFromJson(related.optJSONArray(JSON_DATA), fieldArrayType, true,
-                                                               objects));
-                        }
-                    }
+            }
+        }
+    }
+
+    private void includedFromJson(@NonNull final JSONArray included, @NonNull final Map<ObjKey, ObjValue> objects) {
+        final Executor executor = mParallelExecutor;
+        final int length = included.length();
+        if (executor == null || length < mParallelThreshold) {
+            resourcesFromJson(included, Object.class, false, objects, new ArrayList<>());
+            return;
+        }
+
+        // instantiate resources and populate their id & attributes in parallel
+        final ObjKey[] keys = new ObjKey[length];
+        final ObjValue[] values = new ObjValue[length];
+        ParallelChunks.execute(executor, length, Runtime.getRuntime().availableProcessors(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                final JSONObject json = included.optJSONObject(i);
+                if (json == null) {
+                    continue;
                 }
-                // handle collections of relationships
-                else if (supports(fieldCollectionType)) {
-                    if (relationships != null) {
-                        final JSONObject related = relationships.optJSONObject(attrName);
-                        if (related != null) {
-                            field.mField.set(instance,
-                                             resourcesFromJson(related.optJSONArray(JSON_DATA), fieldCollectionType,
-                                                               (Class<? extends Collection>) fieldType, true, objects));
-                        }
-                    }
+                final String rawType = json.optString(JSON_DATA_TYPE);
+                final Class<?> type = mTypes.get(rawType);
+                if (type == null) {
+                    continue;
                 }
-                // anything else is an attribute
-                else {
-                    if (attributes != null) {
-                        field.mField.set(instance, convertFromJSONObject(attributes, attrName, field));
-                    }
+                final ResourceInfo resource = mResources.get(type);
+                final ObjValue<?> value = newResource(resource);
+                if (value != null) {
+                    valuesFromJson(json, value.mObject, resource);
+                    keys[i] = new ObjKey(rawType, json.optString(JSON_DATA_ID));
+                    values[i] = value;
                 }
-            } catch (final JSONException | IllegalAccessException ignored) {
+            }
+        });
+
+        // register the materialized resources, repeated resources are processed sequentially when linking
+        final boolean[] registered = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            if (values[i] != null && !objects.containsKey(keys[i])) {
+                objects.put(keys[i], values[i]);
+                registered[i] = true;
+            }
+        }
+
+        // link relationships in document order
+        for (int i = 0; i < length; i++) {
+            if (registered[i]) {
+                final ObjValue<?> value = values[i];
+                final ResourceInfo resource = mResources.get(value.mObject.getClass());
+                relationshipsFromJson(included.optJSONObject(i), value.mObject, resource, objects);
+                markComplete(resource, value);
+            } else {
+                resourceFromJson(included.optJSONObject(i), Object.class, false, objects);
+            }
+        }
+    }
+
+    @Nullable
+    private Object relationshipFromJson(@NonNull final JSONObject json, @NonNull final FieldInfo field,
+                                        @NonNull final Map<ObjKey, ObjValue> objects) {
+        final Class<?> type = field.mRelatedType;
+        switch (field.mRelationship) {
+            case FieldInfo.RELATIONSHIP_ARRAY:
+                final List<Object> array = new ArrayList<>();
+                resourcesFromJson(json.optJSONArray(JSON_DATA), type, true, objects, array);
+                return array.toArray((Object[]) Array.newInstance(type, array.size()));
+            case FieldInfo.RELATIONSHIP_COLLECTION:
+                final Collection<Object> collection = field.mCollectionFactory.newCollection();
+                resourcesFromJson(json.optJSONArray(JSON_DATA), type, true, objects, collection);
+                return collection;
+            case FieldInfo.RELATIONSHIP_SINGLE:
+            default:
+                return resourceFromJson(json.optJSONObject(JSON_DATA), type, true, objects);
+        }
+    }
+
+    @NonNull
+    private <E> List<E> resourcesFromJson(@NonNull final JsonReader reader, @NonNull final Class<E> type,
+                                          final boolean placeholder, @NonNull final Map<ObjKey, ObjValue> objects)
+            throws IOException {
+        final List<E> resources = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            resources.add(resourceFromJson(reader, type, placeholder, objects));
+        }
+        reader.endArray();
+        return resources;
+    }
+
+    @Nullable
+    private <E> E resourceFromJson(@NonNull final JsonReader reader, @NonNull final Class<E> expectedType,
+                                   final boolean placeholder, @NonNull final Map<ObjKey, ObjValue> objects)
+            throws IOException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        // determine the type & id, these aren't guaranteed to be the first members of the resource so we peek ahead
+        String rawType = "";
+        String rawId = "";
+        boolean typeFound = false;
+        boolean idFound = false;
+        final JsonReader peek = reader.peekJson();
+        peek.beginObject();
+        while ((!typeFound || !idFound) && peek.hasNext()) {
+            switch (peek.selectName(NAMES_RESOURCE)) {
+                case NAME_RESOURCE_TYPE:
+                    rawType = nextStringOrEmpty(peek);
+                    typeFound = true;
+                    break;
+                case NAME_RESOURCE_ID:
+                    rawId = nextStringOrEmpty(peek);
+                    idFound = true;
+                    break;
+                default:
+                    peek.skipName();
+                    peek.skipValue();
+            }
+        }
+
+        final Class<?> type = mTypes.get(rawType);
+        if (type == null || !expectedType.isAssignableFrom(type)) {
+            reader.skipValue();
+            return null;
+        }
+        final ResourceInfo resource = mResources.get(type);
+
+        // look for the referenced object first
+        final ObjValue<E> value = findOrCreateResource(resource, new ObjKey(rawType, rawId), objects);
+        if (value == null) {
+            reader.skipValue();
+            return null;
+        }
+        final E instance = value.mObject;
+
+        // populate fields as they are streamed in
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(NAMES_RESOURCE)) {
+                case NAME_RESOURCE_ID:
+                    final FieldInfo idField = resource.mIdField;
+                    if (idField != null && idField.deserialize()) {
+                        bindFromJson(reader, instance, idField);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case NAME_RESOURCE_ATTRIBUTES:
+                    attributesFromJson(reader, instance, resource);
+                    break;
+                case NAME_RESOURCE_RELATIONSHIPS:
+                    relationshipsFromJson(reader, instance, resource, objects);
+                    break;
+                case NAME_RESOURCE_TYPE:
+                    reader.skipValue();
+                    break;
+                default:
+                    reader.skipName();
+                    reader.skipValue();
             }
         }
+        reader.endObject();
 
         // was the full object just instantiated
         if (!placeholder) {
-            // clear placeholder state
-            value.mPlaceholder = false;
-            final FieldInfo placeholderField = mPlaceholderField.get(type);
-            if (placeholderField != null) {
+            markComplete(resource, value);
+        }
+
+        // return the object
+        return instance;
+    }
+
+    private void attributesFromJson(@NonNull final JsonReader reader, @NonNull final Object instance,
+                                    @NonNull final ResourceInfo resource) throws IOException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        final List<FieldInfo> attributes = resource.mAttributes;
+        final boolean[] found = new boolean[attributes.size()];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final Integer i = resource.mAttributeIndex.get(reader.nextName());
+            if (i != null) {
+                found[i] = true;
+                bindFromJson(reader, instance, attributes.get(i));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // attributes missing from the attributes object are treated the same as null attributes
+        for (int i = 0; i < found.length; i++) {
+            final FieldInfo field = attributes.get(i);
+            if (!found[i]) {
                 try {
-                    placeholderField.mField.set(instance, false);
-                } catch (final IllegalAccessException ignored) {
+                    field.mBinding.bindNull(field.mField, instance);
+                } catch (final JSONException | IllegalAccessException ignored) {
                 }
             }
+        }
+    }
 
-            // trigger post create method if there wasn't a key for this object
-            if (key == null) {
-                triggerPostCreate(value);
+    private void relationshipsFromJson(@NonNull final JsonReader reader, @NonNull final Object instance,
+                                       @NonNull final ResourceInfo resource,
+                                       @NonNull final Map<ObjKey, ObjValue> objects) throws IOException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final FieldInfo field = resource.mRelationshipIndex.get(reader.nextName());
+            if (field == null || reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            Object related = null;
+            boolean hasData = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.selectName(NAMES_RELATIONSHIP) == NAME_RELATIONSHIP_DATA) {
+                    related = relationshipFromJson(reader, field, objects);
+                    hasData = true;
+                } else {
+                    reader.skipName();
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            try {
+                field.mField.set(instance, hasData ? related : emptyRelationship(field));
+            } catch (final IllegalAccessException ignored) {
             }
         }
+        reader.endObject();
+    }
 
-        // return the object
-        return instance;
+    @Nullable
+    private Object relationshipFromJson(@NonNull final JsonReader reader, @NonNull final FieldInfo field,
+                                        @NonNull final Map<ObjKey, ObjValue> objects) throws IOException {
+        final Class<?> type = field.mRelatedType;
+        if (field.mRelationship == FieldInfo.RELATIONSHIP_SINGLE) {
+            return resourceFromJson(reader, type, true, objects);
+        }
+        if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return emptyRelationship(field);
+        }
+
+        final List<?> resources = resourcesFromJson(reader, type, true, objects);
+        if (field.mRelationship == FieldInfo.RELATIONSHIP_ARRAY) {
+            return resources.toArray((Object[]) Array.newInstance(type, resources.size()));
+        } else {
+            final Collection<Object> collection = field.mCollectionFactory.newCollection();
+            collection.addAll(resources);
+            return collection;
+        }
+    }
+
+    @Nullable
+    private Object emptyRelationship(@NonNull final FieldInfo field) {
+        switch (field.mRelationship) {
+            case FieldInfo.RELATIONSHIP_ARRAY:
+                return Array.newInstance(field.mRelatedType, 0);
+            case FieldInfo.RELATIONSHIP_COLLECTION:
+                return field.mCollectionFactory.newCollection();
+            case FieldInfo.RELATIONSHIP_SINGLE:
+            default:
+                return null;
+        }
+    }
+
+    private void bindFromJson(@NonNull final JsonReader reader, @NonNull final Object instance,
+                              @NonNull final FieldInfo field) throws IOException {
+        try {
+            field.mBinding.bind(field.mField, instance, reader);
+        } catch (final JSONException | IllegalAccessException ignored) {
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <E> ObjValue<E> findOrCreateResource(@NonNull final ResourceInfo resource, @Nullable final ObjKey key,
+                                                 @NonNull final Map<ObjKey, ObjValue> objects) {
+        ObjValue<E> value = key != null ? objects.get(key) : null;
+
+        // no object found, create a new instance
+        if (value == null) {
+            value = newResource(resource);
+            if (value != null && key != null) {
+                objects.put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <E> ObjValue<E> newResource(@NonNull final ResourceInfo resource) {
+        try {
+            final ObjValue<E> value = new ObjValue<>((E) resource.mClass.newInstance());
+
+            // mark the new object as a placeholder
+            final FieldInfo placeholderField = resource.mPlaceholderField;
+            if (placeholderField != null) {
+                placeholderField.mField.set(value.mObject, true);
+            }
+            return value;
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private void markComplete(@NonNull final ResourceInfo resource, @NonNull final ObjValue<?> value) {
+        // clear placeholder state
+        value.mPlaceholder = false;
+        final FieldInfo placeholderField = resource.mPlaceholderField;
+        if (placeholderField != null) {
+            try {
+                placeholderField.mField.set(value.mObject, false);
+            } catch (final IllegalAccessException ignored) {
+            }
+        }
     }
 
     @Nullable
@@ -745,10 +1509,8 @@ public final class JsonApiConverter {
         }
 
         // check configured TypeConverters
-        for (final TypeConverter<?> converter : mConverters) {
-            if (converter.supports(type)) {
-                return true;
-            }
+        if (getConverter(type) != null) {
+            return true;
         }
 
         // is it a native type?
@@ -760,14 +1522,26 @@ public final class JsonApiConverter {
     }
 
     @Nullable
+    @SuppressWarnings("unchecked")
     private Object convertToJsonValue(@NonNull final Object resource, @NonNull final FieldInfo field)
             throws JSONException {
         // get the value from the field
+        final Object raw;
         try {
-            return convertToJsonValue(field.mField.get(resource));
+            raw = field.mField.get(resource);
         } catch (IllegalAccessException e) {
             return null;
         }
+
+        // use the pre-resolved conversion when the value is exactly the declared type
+        if (raw != null && raw.getClass() == field.mValueType) {
+            if (field.mValueConverter != null) {
+                return ((TypeConverter<Object>) field.mValueConverter).toString(raw);
+            } else if (field.mValueIsNative) {
+                return raw;
+            }
+        }
+        return convertToJsonValue(raw);
     }
 
     @Nullable
@@ -818,145 +1592,10 @@ public final class JsonApiConverter {
         return array;
     }
 
-    @Nullable
-    private Object convertFromJSONObject(@NonNull final JSONObject json, @NonNull final String name,
-                                         @NonNull FieldInfo info) throws JSONException {
-        // utilize configured TypeConverters first
-        final Class<?> type = info.getType();
-        for (final TypeConverter<?> converter : mConverters) {
-            if (converter.supports(type)) {
-                final String value = !json.isNull(name) ? json.optString(name, null) : null;
-                return converter.fromString(value);
-            }
-        }
-
-        // handle array types
-        final Class<?> arrayElementType = info.getArrayType();
-        if (type.isArray() && arrayElementType != null) {
-            return convertArrayFromJSONArray(json.getJSONArray(name), arrayElementType);
-        }
-
-        // handle collection types
-        final Class<?> collectionElementType = info.getCollectionType();
-        if (Collection.class.isAssignableFrom(type) && collectionElementType != null) {
-            return convertCollectionFromJSONArray(json.getJSONArray(name), (Class<? extends Collection>) type,
-                                                  collectionElementType);
-        }
-
-        // handle native types
-        if (type.isAssignableFrom(double.class)) {
-            return json.getDouble(name);
-        } else if (type.isAssignableFrom(float.class)) {
-            return (float) json.getDouble(name);
-        } else if (type.isAssignableFrom(int.class)) {
-            return json.getInt(name);
-        } else if (type.isAssignableFrom(long.class)) {
-            return json.getLong(name);
-        } else if (type.isAssignableFrom(boolean.class)) {
-            return json.getBoolean(name);
-        } else if (json.isNull(name)) {
-            return null;
-        } else if (type.isAssignableFrom(JSONObject.class)) {
-            return json.getJSONObject(name);
-        } else if (type.isAssignableFrom(JSONArray.class)) {
-            return json.getJSONArray(name);
-        } else if (type.isAssignableFrom(Boolean.class)) {
-            return json.getBoolean(name);
-        } else if (type.isAssignableFrom(Double.class)) {
-            return json.getDouble(name);
-        } else if (type.isAssignableFrom(Float.class)) {
-            return (float) json.getDouble(name);
-        } else if (type.isAssignableFrom(Integer.class)) {
-            return json.getInt(name);
-        } else if (type.isAssignableFrom(Long.class)) {
-            return json.getLong(name);
-        } else if (type.isAssignableFrom(String.class)) {
-            return json.getString(name);
-        }
-
-        // default to null
-        return null;
-    }
-
     @NonNull
-    private Object convertArrayFromJSONArray(@NonNull final JSONArray json, @NonNull final Class<?> arrayType)
-            throws JSONException {
-        final Object array = Array.newInstance(arrayType, json.length());
-        for (int i = 0; i < json.length(); i++) {
-            Array.set(array, i, convertFromJSONArray(json, i, arrayType));
-        }
-        return array;
-    }
-
-    @SuppressWarnings("unchecked")
-    private <T extends Collection> T convertCollectionFromJSONArray(
-            @NonNull final JSONArray json, @NonNull final Class<T> collectionType, @NonNull final Class<?> elementType)
-            throws JSONException {
-        final T collection = newCollection(collectionType);
-        if (collection == null) {
-            throw new IllegalArgumentException("Invalid Collection Type: " + collectionType);
-        }
-
-        for (int i = 0; i < json.length(); i++) {
-            collection.add(convertFromJSONArray(json, i, elementType));
-        }
-
-        return collection;
-    }
-
-    @Nullable
-    private Object convertFromJSONArray(@NonNull final JSONArray json, final int index, @NonNull final Class<?> type)
-            throws JSONException {
-        // utilize configured TypeConverters first
-        for (final TypeConverter<?> converter : mConverters) {
-            if (converter.supports(type)) {
-                final String value = !json.isNull(index) ? json.optString(index, null) : null;
-                return converter.fromString(value);
-            }
-        }
-
-        // handle native types
-        if (type.isAssignableFrom(double.class)) {
-            return json.getDouble(index);
-        } else if (type.isAssignableFrom(float.class)) {
-            return (float) json.getDouble(index);
-        } else if (type.isAssignableFrom(int.class)) {
-            return json.getInt(index);
-        } else if (type.isAssignableFrom(long.class)) {
-            return json.getLong(index);
-        } else if (type.isAssignableFrom(boolean.class)) {
-            return json.getBoolean(index);
-        } else if (type.isAssignableFrom(JSONObject.class)) {
-            return json.getJSONObject(index);
-        } else if (type.isAssignableFrom(JSONArray.class)) {
-            return json.getJSONArray(index);
-        } else if (type.isAssignableFrom(Boolean.class) || type.isAssignableFrom(Double.class) ||
-                type.isAssignableFrom(Float.class) || type.isAssignableFrom(Integer.class) ||
-                type.isAssignableFrom(Long.class) || type.isAssignableFrom(String.class)) {
-            final String value = !json.isNull(index) ? json.optString(index, null) : null;
-            if (value == null) {
-                return null;
-            }
-            try {
-                if (type.isAssignableFrom(Boolean.class)) {
-                    return Boolean.valueOf(value);
-                } else if (type.isAssignableFrom(Double.class)) {
-                    return Double.valueOf(value);
-                } else if (type.isAssignableFrom(Float.class)) {
-                    return Float.valueOf(value);
-                } else if (type.isAssignableFrom(Integer.class)) {
-                    return Integer.valueOf(value);
-                } else if (type.isAssignableFrom(Long.class)) {
-                    return Long.valueOf(value);
-                } else if (type.isAssignableFrom(String.class)) {
-                    return value;
-                }
-            } catch (final Exception e) {
-                return null;
-            }
-        }
-
-        return null;
+    private static String nextStringOrEmpty(@NonNull final JsonReader reader) throws IOException {
+        final String value = nextLiteral(reader);
+        return value != null ? value : "";
     }
 
     private void triggerPostCreate(@NonNull final ObjValue object) {
@@ -966,14 +1605,13 @@ public final class JsonApiConverter {
         }
 
         // short-circuit if there isn't a post-create method
-        final Class<?> type = object.mObject.getClass();
-        final List<MethodInfo> methods = mPostCreateMethod.get(type);
-        if (methods == null || methods.isEmpty()) {
+        final ResourceInfo resource = mResources.get(object.mObject.getClass());
+        if (resource == null || resource.mPostCreateMethods.isEmpty()) {
             return;
         }
 
         // invoke the Post-Create methods
-        for (final MethodInfo method : methods) {
+        for (final MethodInfo method : resource.mPostCreateMethods) {
             try {
                 method.mMethod.invoke(object.mObject);
             } catch (IllegalAccessException e) {
@@ -993,6 +1631,11 @@ public final class JsonApiConverter {
     }
 
     static final class FieldInfo {
+        static final int RELATIONSHIP_NONE = 0;
+        static final int RELATIONSHIP_SINGLE = 1;
+        static final int RELATIONSHIP_ARRAY = 2;
+        static final int RELATIONSHIP_COLLECTION = 3;
+
         @NonNull
         final Field mField;
         @Nullable
@@ -1010,6 +1653,18 @@ public final class JsonApiConverter {
         @Nullable
         private String mAttrName;
 
+        // resolved once by the JsonApiConverter for relationship fields
+        int mRelationship = RELATIONSHIP_NONE;
+        Class<?> mRelatedType;
+        CollectionFactory mCollectionFactory;
+
+        // resolved once by the JsonApiConverter for id & attribute fields
+        ValueBinding mBinding;
+        Class<?> mValueType;
+        @Nullable
+        TypeConverter<?> mValueConverter;
+        boolean mValueIsNative;
+
         FieldInfo(@NonNull final Field field) {
             mField = field;
             mAttribute = mField.getAnnotation(JsonApiAttribute.class);
@@ -1080,6 +1735,54 @@ public final class JsonApiConverter {
         }
     }
 
+    static final class ResourceInfo {
+        @NonNull
+        final Class<?> mClass;
+        @NonNull
+        final String mType;
+
+        @Nullable
+        FieldInfo mIdField;
+        @Nullable
+        FieldInfo mPlaceholderField;
+        final List<FieldInfo> mFields = new ArrayList<>();
+        final List<MethodInfo> mPostCreateMethods = new ArrayList<>();
+
+        // deserialization plan
+        final List<FieldInfo> mAttributes = new ArrayList<>();
+        final Map<String, Integer> mAttributeIndex = new HashMap<>();
+        final List<FieldInfo> mRelationships = new ArrayList<>();
+        final Map<String, FieldInfo> mRelationshipIndex = new HashMap<>();
+
+        ResourceInfo(@NonNull final Class<?> clazz, @NonNull final String type) {
+            mClass = clazz;
+            mType = type;
+        }
+
+        void addField(@NonNull final FieldInfo field) {
+            mFields.add(field);
+
+            // skip fields that shouldn't be deserialized
+            if (field.isId() || !field.deserialize()) {
+                return;
+            }
+
+            // the first field for a specific name is used when streaming
+            final String name = field.getAttrName();
+            if (field.mRelationship != FieldInfo.RELATIONSHIP_NONE) {
+                mRelationships.add(field);
+                if (!mRelationshipIndex.containsKey(name)) {
+                    mRelationshipIndex.put(name, field);
+                }
+            } else {
+                if (!mAttributeIndex.containsKey(name)) {
+                    mAttributeIndex.put(name, mAttributes.size());
+                }
+                mAttributes.add(field);
+            }
+        }
+    }
+
     static final class MethodInfo {
         @NonNull
         private final Class<?> mClass;
@@ -1343,3 +2046,4 @@ public final class JsonApiConverter {
         }
     }
 }
+
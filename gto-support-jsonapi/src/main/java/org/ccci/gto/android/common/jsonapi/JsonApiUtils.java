@@ -1,13 +1,25 @@
 package org.ccci.gto.android.common.jsonapi;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.util.Iterator;
 
 import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
@@ -51,4 +63,153 @@ public class JsonApiUtils {
                 "Expected a Class, ParameterizedType, or GenericArrayType, but <" + type + "> is of type " +
                         type.getClass().getName());
     }
+
+    /**
+     * Read the next value from the provided {@link JsonReader} as a {@link JSONObject}.
+     * The next token is required to be the beginning of an object.
+     */
+    @NonNull
+    public static JSONObject readJSONObject(@NonNull final JsonReader reader) throws IOException {
+        final JSONObject json = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            try {
+                json.put(name, readJSONValue(reader));
+            } catch (final JSONException e) {
+                throw new JsonDataException(e);
+            }
+        }
+        reader.endObject();
+        return json;
+    }
+
+    /**
+     * Read the next value from the provided {@link JsonReader} as a {@link JSONArray}.
+     * The next token is required to be the beginning of an array.
+     */
+    @NonNull
+    public static JSONArray readJSONArray(@NonNull final JsonReader reader) throws IOException {
+        final JSONArray json = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            json.put(readJSONValue(reader));
+        }
+        reader.endArray();
+        return json;
+    }
+
+    /**
+     * Read the next value from the provided {@link JsonReader} using the same value types org.json would produce.
+     * JSON null values are returned as {@link JSONObject#NULL}.
+     */
+    @NonNull
+    public static Object readJSONValue(@NonNull final JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readJSONObject(reader);
+            case BEGIN_ARRAY:
+                return readJSONArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                return parseJSONNumber(reader.nextString());
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            case STRING:
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Write a value as produced by org.json ({@link JSONObject}, {@link JSONArray}, {@link JSONObject#NULL} or a
+     * native value) to the provided {@link JsonWriter}.
+     */
+    public static void writeJSONValue(@NonNull final JsonWriter writer, @Nullable final Object value)
+            throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            writer.nullValue();
+        } else if (value instanceof JSONObject) {
+            final JSONObject json = (JSONObject) value;
+            writer.beginObject();
+            for (final Iterator<String> keys = json.keys(); keys.hasNext();) {
+                final String key = keys.next();
+                writer.name(key);
+                writeJSONValue(writer, json.opt(key));
+            }
+            writer.endObject();
+        } else if (value instanceof JSONArray) {
+            final JSONArray json = (JSONArray) value;
+            writer.beginArray();
+            for (int i = 0; i < json.length(); i++) {
+                writeJSONValue(writer, json.opt(i));
+            }
+            writer.endArray();
+        } else if (value instanceof Boolean) {
+            writer.value((boolean) (Boolean) value);
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    /**
+     * Consume the next value and return it as a string the same way JSONObject.optString() would.
+     */
+    @Nullable
+    public static String nextLiteral(@NonNull final JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                return readJSONValue(reader).toString();
+            case STRING:
+            case NUMBER:
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Consume the next value as either a {@link JSONObject} or {@link JSONArray} depending on the requested type.
+     * A JSONException is thrown if the next value is not compatible with the requested type.
+     */
+    @NonNull
+    public static Object nextJSONValue(@NonNull final JsonReader reader, @NonNull final Class<?> type)
+            throws IOException, JSONException {
+        final JsonReader.Token token = reader.peek();
+        if (token == JsonReader.Token.BEGIN_OBJECT && type.isAssignableFrom(JSONObject.class)) {
+            return readJSONObject(reader);
+        } else if (token == JsonReader.Token.BEGIN_ARRAY && type.isAssignableFrom(JSONArray.class)) {
+            return readJSONArray(reader);
+        }
+
+        reader.skipValue();
+        throw new JSONException("Unable to convert " + token + " to " + type);
+    }
+
+    @NonNull
+    private static Object parseJSONNumber(@NonNull final String value) {
+        try {
+            final long number = Long.parseLong(value);
+            if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                return (int) number;
+            }
+            return number;
+        } catch (final NumberFormatException ignored) {
+        }
+
+        try {
+            return Double.valueOf(value);
+        } catch (final NumberFormatException ignored) {
+            return value;
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Splits a range of indexes into chunks that are processed concurrently on an Executor.
+ *
+ * The calling thread participates in processing chunks and only waits on chunks that are already being processed by
+ * another thread, so this is safe to use even when the Executor is saturated or is running the calling thread.
+ */
+final class ParallelChunks {
+    interface Task {
+        void run(int start, int end);
+    }
+
+    private ParallelChunks() {}
+
+    static void execute(@NonNull final Executor executor, final int size, final int parallelism,
+                        @NonNull final Task task) {
+        final int chunks = Math.max(1, Math.min(parallelism, size));
+        final int chunkSize = (size + chunks - 1) / chunks;
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(chunks);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        final Runnable worker = () -> {
+            for (int chunk = next.getAndIncrement(); chunk < chunks; chunk = next.getAndIncrement()) {
+                try {
+                    task.run(chunk * chunkSize, Math.min(size, (chunk + 1) * chunkSize));
+                } catch (final Throwable t) {
+                    error.compareAndSet(null, t);
+                } finally {
+                    completed.countDown();
+                }
+            }
+        };
+
+        // fork workers, the current thread will pick up any chunks that don't get started
+        for (int i = 1; i < chunks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (final RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+
+        // join
+        boolean interrupted = false;
+        while (true) {
+            try {
+                completed.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // propagate any failure to the calling thread
+        final Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import com.squareup.moshi.JsonReader;
+
+import org.ccci.gto.android.common.jsonapi.converter.TypeConverter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.ccci.gto.android.common.jsonapi.JsonApiUtils.nextJSONValue;
+import static org.ccci.gto.android.common.jsonapi.JsonApiUtils.nextLiteral;
+
+/**
+ * A pre-compiled reader for a single attribute type. A ValueBinding is resolved once for every attribute when the
+ * JsonApiConverter is built so that deserializing a resource doesn't need to sniff types or search the configured
+ * TypeConverters.
+ *
+ * The bind methods populate a field following attribute semantics, the from methods read a single array element.
+ * Any JSONException thrown indicates the value could not be converted and the field should be left untouched.
+ */
+interface ValueBinding {
+    void bind(@NonNull Field field, @NonNull Object instance, @NonNull JSONObject json, @NonNull String name)
+            throws JSONException, IllegalAccessException;
+
+    void bind(@NonNull Field field, @NonNull Object instance, @NonNull JsonReader reader)
+            throws IOException, JSONException, IllegalAccessException;
+
+    void bindNull(@NonNull Field field, @NonNull Object instance) throws JSONException, IllegalAccessException;
+
+    @Nullable
+    Object fromJSONArray(@NonNull JSONArray json, int index) throws JSONException;
+
+    @Nullable
+    Object fromJsonReader(@NonNull JsonReader reader) throws IOException, JSONException;
+
+    final class Converted implements ValueBinding {
+        @NonNull
+        private final TypeConverter<?> mConverter;
+
+        Converted(@NonNull final TypeConverter<?> converter) {
+            mConverter = converter;
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JSONObject json,
+                         @NonNull final String name) throws IllegalAccessException {
+            field.set(instance, mConverter.fromString(!json.isNull(name) ? json.optString(name, null) : null));
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JsonReader reader)
+                throws IOException, IllegalAccessException {
+            field.set(instance, mConverter.fromString(nextLiteral(reader)));
+        }
+
+        @Override
+        public void bindNull(@NonNull final Field field, @NonNull final Object instance)
+                throws IllegalAccessException {
+            field.set(instance, mConverter.fromString(null));
+        }
+
+        @Nullable
+        @Override
+        public Object fromJSONArray(@NonNull final JSONArray json, final int index) {
+            return mConverter.fromString(!json.isNull(index) ? json.optString(index, null) : null);
+        }
+
+        @Nullable
+        @Override
+        public Object fromJsonReader(@NonNull final JsonReader reader) throws IOException {
+            return mConverter.fromString(nextLiteral(reader));
+        }
+    }
+
+    final class ArrayOf implements ValueBinding {
+        @NonNull
+        private final Class<?> mElementType;
+        @NonNull
+        private final ValueBinding mElement;
+
+        ArrayOf(@NonNull final Class<?> elementType, @NonNull final ValueBinding element) {
+            mElementType = elementType;
+            mElement = element;
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JSONObject json,
+                         @NonNull final String name) throws JSONException, IllegalAccessException {
+            final JSONArray values = json.getJSONArray(name);
+            final Object array = Array.newInstance(mElementType, values.length());
+            for (int i = 0; i < values.length(); i++) {
+                Array.set(array, i, mElement.fromJSONArray(values, i));
+            }
+            field.set(instance, array);
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JsonReader reader)
+                throws IOException, JSONException, IllegalAccessException {
+            final List<Object> values = readElements(reader, mElement);
+            final Object array = Array.newInstance(mElementType, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            field.set(instance, array);
+        }
+
+        @Override
+        public void bindNull(@NonNull final Field field, @NonNull final Object instance) throws JSONException {
+            throw new JSONException("Unable to convert null to an array");
+        }
+
+        @Nullable
+        @Override
+        public Object fromJSONArray(@NonNull final JSONArray json, final int index) {
+            // nested arrays are not supported
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Object fromJsonReader(@NonNull final JsonReader reader) throws IOException {
+            // nested arrays are not supported
+            reader.skipValue();
+            return null;
+        }
+    }
+
+    final class CollectionOf implements ValueBinding {
+        @NonNull
+        private final CollectionFactory mFactory;
+        @NonNull
+        private final ValueBinding mElement;
+
+        CollectionOf(@NonNull final CollectionFactory factory, @NonNull final ValueBinding element) {
+            mFactory = factory;
+            mElement = element;
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JSONObject json,
+                         @NonNull final String name) throws JSONException, IllegalAccessException {
+            final JSONArray values = json.getJSONArray(name);
+            final Collection<Object> collection = mFactory.newCollection();
+            for (int i = 0; i < values.length(); i++) {
+                collection.add(mElement.fromJSONArray(values, i));
+            }
+            field.set(instance, collection);
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JsonReader reader)
+                throws IOException, JSONException, IllegalAccessException {
+            final List<Object> values = readElements(reader, mElement);
+            final Collection<Object> collection = mFactory.newCollection();
+            collection.addAll(values);
+            field.set(instance, collection);
+        }
+
+        @Override
+        public void bindNull(@NonNull final Field field, @NonNull final Object instance) throws JSONException {
+            throw new JSONException("Unable to convert null to a collection");
+        }
+
+        @Nullable
+        @Override
+        public Object fromJSONArray(@NonNull final JSONArray json, final int index) {
+            // nested collections are not supported
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Object fromJsonReader(@NonNull final JsonReader reader) throws IOException {
+            // nested collections are not supported
+            reader.skipValue();
+            return null;
+        }
+    }
+
+    enum Native implements ValueBinding {
+        DOUBLE(double.class) {
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JSONObject json, @NonNull final String name)
+                    throws JSONException, IllegalAccessException {
+                field.setDouble(instance, json.getDouble(name));
+            }
+
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JsonReader reader)
+                    throws IOException, JSONException, IllegalAccessException {
+                field.setDouble(instance, toDouble(nextRequiredLiteral(reader)));
+            }
+
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.getDouble(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getDouble(index);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toDouble(value);
+            }
+        },
+        FLOAT(float.class) {
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JSONObject json, @NonNull final String name)
+                    throws JSONException, IllegalAccessException {
+                field.setFloat(instance, (float) json.getDouble(name));
+            }
+
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JsonReader reader)
+                    throws IOException, JSONException, IllegalAccessException {
+                field.setFloat(instance, (float) toDouble(nextRequiredLiteral(reader)));
+            }
+
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return (float) json.getDouble(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return (float) json.getDouble(index);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return (float) toDouble(value);
+            }
+        },
+        INT(int.class) {
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JSONObject json, @NonNull final String name)
+                    throws JSONException, IllegalAccessException {
+                field.setInt(instance, json.getInt(name));
+            }
+
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JsonReader reader)
+                    throws IOException, JSONException, IllegalAccessException {
+                field.setInt(instance, toInt(nextRequiredLiteral(reader)));
+            }
+
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.getInt(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getInt(index);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toInt(value);
+            }
+        },
+        LONG(long.class) {
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JSONObject json, @NonNull final String name)
+                    throws JSONException, IllegalAccessException {
+                field.setLong(instance, json.getLong(name));
+            }
+
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JsonReader reader)
+                    throws IOException, JSONException, IllegalAccessException {
+                field.setLong(instance, toLong(nextRequiredLiteral(reader)));
+            }
+
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.getLong(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getLong(index);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toLong(value);
+            }
+        },
+        BOOLEAN(boolean.class) {
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JSONObject json, @NonNull final String name)
+                    throws JSONException, IllegalAccessException {
+                field.setBoolean(instance, json.getBoolean(name));
+            }
+
+            @Override
+            public void bind(@NonNull final Field field, @NonNull final Object instance,
+                             @NonNull final JsonReader reader)
+                    throws IOException, JSONException, IllegalAccessException {
+                field.setBoolean(instance, toBoolean(nextRequiredLiteral(reader)));
+            }
+
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.getBoolean(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getBoolean(index);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toBoolean(value);
+            }
+        },
+        JSON_OBJECT(JSONObject.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getJSONObject(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getJSONObject(index);
+            }
+        },
+        JSON_ARRAY(JSONArray.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getJSONArray(name);
+            }
+
+            @Override
+            public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+                return json.getJSONArray(index);
+            }
+        },
+        BOOLEAN_BOXED(Boolean.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getBoolean(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toBoolean(value);
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return Boolean.valueOf(value);
+            }
+        },
+        DOUBLE_BOXED(Double.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getDouble(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toDouble(value);
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return Double.valueOf(value);
+            }
+        },
+        FLOAT_BOXED(Float.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : (float) json.getDouble(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return (float) toDouble(value);
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return Float.valueOf(value);
+            }
+        },
+        INTEGER_BOXED(Integer.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getInt(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toInt(value);
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return Integer.valueOf(value);
+            }
+        },
+        LONG_BOXED(Long.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getLong(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) throws JSONException {
+                return toLong(value);
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return Long.valueOf(value);
+            }
+        },
+        STRING(String.class) {
+            @Override
+            Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+                return json.isNull(name) ? null : json.getString(name);
+            }
+
+            @Override
+            Object parse(@NonNull final String value) {
+                return value;
+            }
+
+            @Override
+            Object parseLenient(@NonNull final String value) {
+                return value;
+            }
+        },
+        UNSUPPORTED(Void.class);
+
+        @NonNull
+        private final Class<?> mType;
+        private final boolean mJson;
+
+        Native(@NonNull final Class<?> type) {
+            mType = type;
+            mJson = JSONObject.class.equals(type) || JSONArray.class.equals(type);
+        }
+
+        @NonNull
+        static Native of(@NonNull final Class<?> type) {
+            for (final Native binding : values()) {
+                if (binding.mType.equals(type)) {
+                    return binding;
+                }
+            }
+            return UNSUPPORTED;
+        }
+
+        /**
+         * Read the named attribute from the provided JSONObject, null attributes resolve to null for non-primitives.
+         */
+        @Nullable
+        Object fromJSONObject(@NonNull final JSONObject json, @NonNull final String name) throws JSONException {
+            return null;
+        }
+
+        /**
+         * Parse a non-null literal using attribute semantics.
+         */
+        @Nullable
+        Object parse(@NonNull final String value) throws JSONException {
+            return null;
+        }
+
+        /**
+         * Parse a non-null literal using the more lenient array element semantics for boxed types.
+         */
+        @Nullable
+        Object parseLenient(@NonNull final String value) throws Exception {
+            return parse(value);
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JSONObject json,
+                         @NonNull final String name) throws JSONException, IllegalAccessException {
+            field.set(instance, fromJSONObject(json, name));
+        }
+
+        @Override
+        public void bind(@NonNull final Field field, @NonNull final Object instance, @NonNull final JsonReader reader)
+                throws IOException, JSONException, IllegalAccessException {
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.nextNull();
+                bindNull(field, instance);
+            } else if (mJson) {
+                field.set(instance, nextJSONValue(reader, mType));
+            } else {
+                field.set(instance, parse(nextRequiredLiteral(reader)));
+            }
+        }
+
+        @Override
+        public void bindNull(@NonNull final Field field, @NonNull final Object instance)
+                throws JSONException, IllegalAccessException {
+            if (mType.isPrimitive()) {
+                throw new JSONException("Unable to convert null to " + mType);
+            }
+            field.set(instance, null);
+        }
+
+        @Nullable
+        @Override
+        public Object fromJSONArray(@NonNull final JSONArray json, final int index) throws JSONException {
+            final String value = !json.isNull(index) ? json.optString(index, null) : null;
+            if (value == null) {
+                return null;
+            }
+            try {
+                return parseLenient(value);
+            } catch (final Exception e) {
+                return null;
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object fromJsonReader(@NonNull final JsonReader reader) throws IOException, JSONException {
+            if (mJson) {
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.nextNull();
+                    throw new JSONException("Unable to convert null to " + mType);
+                }
+                return nextJSONValue(reader, mType);
+            }
+
+            if (mType.isPrimitive()) {
+                return parse(nextRequiredLiteral(reader));
+            }
+            final String value = nextLiteral(reader);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return parseLenient(value);
+            } catch (final Exception e) {
+                return null;
+            }
+        }
+    }
+
+    // region Parsing helpers
+
+    /**
+     * Consume the next array from the reader converting every element with the provided binding.
+     * The entire array is consumed even if an element fails to convert.
+     */
+    @NonNull
+    static List<Object> readElements(@NonNull final JsonReader reader, @NonNull final ValueBinding element)
+            throws IOException, JSONException {
+        if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            throw new JSONException("Expected a JSON array");
+        }
+
+        final List<Object> values = new ArrayList<>();
+        JSONException error = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            try {
+                values.add(element.fromJsonReader(reader));
+            } catch (final JSONException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        reader.endArray();
+
+        if (error != null) {
+            throw error;
+        }
+        return values;
+    }
+
+    @NonNull
+    static String nextRequiredLiteral(@NonNull final JsonReader reader) throws IOException, JSONException {
+        final String value = nextLiteral(reader);
+        if (value == null) {
+            throw new JSONException("Unexpected null value");
+        }
+        return value;
+    }
+
+    static double toDouble(@NonNull final String value) throws JSONException {
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            throw new JSONException("Unable to convert " + value + " to a double");
+        }
+    }
+
+    static int toInt(@NonNull final String value) throws JSONException {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            return (int) toDouble(value);
+        }
+    }
+
+    static long toLong(@NonNull final String value) throws JSONException {
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            return (long) toDouble(value);
+        }
+    }
+
+    static boolean toBoolean(@NonNull final String value) throws JSONException {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new JSONException("Unable to convert " + value + " to a boolean");
+    }
+
+    // endregion Parsing helpers
+}
@@ -13,10 +13,11 @@ class DateTypeConverter(private val format: DateFormat) : TypeConverter<Date> {
     }
 
     override fun supports(clazz: Class<*>) = Date::class.java == clazz
-    override fun toString(value: Date?) = value?.let { format.format(it) }
+    // DateFormat is not thread-safe
+    override fun toString(value: Date?) = value?.let { synchronized(format) { format.format(it) } }
     override fun fromString(value: String?) = value?.let {
         try {
-            format.parse(it)
+            synchronized(format) { format.parse(it) }
         } catch (ignored: ParseException) {
             null
         }
@@ -0,0 +1,77 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CollectionFactoryTest {
+    @Test
+    public void verifyConcreteTypes() {
+        assertThat(new CollectionFactory(ArrayList.class).newCollection(), is(instanceOf(ArrayList.class)));
+        assertThat(new CollectionFactory(LinkedList.class).newCollection(), is(instanceOf(LinkedList.class)));
+        assertThat(new CollectionFactory(Vector.class).newCollection(), is(instanceOf(Vector.class)));
+        assertThat(new CollectionFactory(TreeSet.class).newCollection(), is(instanceOf(TreeSet.class)));
+    }
+
+    @Test
+    public void verifyNewInstances() {
+        final CollectionFactory factory = new CollectionFactory(List.class);
+        assertThat(factory.newCollection(), is(not(sameInstance(factory.newCollection()))));
+    }
+
+    @Test
+    public void verifyInterfaceTypes() {
+        assertThat(new CollectionFactory(Collection.class).newCollection(), is(instanceOf(ArrayList.class)));
+        assertThat(new CollectionFactory(List.class).newCollection(), is(instanceOf(ArrayList.class)));
+        assertThat(new CollectionFactory(Set.class).newCollection(), is(instanceOf(HashSet.class)));
+    }
+
+    @Test
+    public void verifyAbstractTypes() {
+        assertThat(new CollectionFactory(AbstractList.class).newCollection(), is(instanceOf(ArrayList.class)));
+        assertThat(new CollectionFactory(AbstractSet.class).newCollection(), is(instanceOf(HashSet.class)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyUnsupportedInterface() {
+        new CollectionFactory(SortedSet.class).newCollection();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyUnsupportedNoDefaultConstructor() {
+        new CollectionFactory(NoDefaultConstructorList.class).newCollection();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyUnsupportedFailingConstructor() {
+        new CollectionFactory(FailingList.class).newCollection();
+    }
+
+    public static class NoDefaultConstructorList extends ArrayList<Object> {
+        public NoDefaultConstructorList(final int size) {
+            super(size);
+        }
+    }
+
+    public static class FailingList extends ArrayList<Object> {
+        public FailingList() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
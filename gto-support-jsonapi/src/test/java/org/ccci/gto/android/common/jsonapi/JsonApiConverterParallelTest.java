@@ -0,0 +1,103 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import org.ccci.gto.android.common.jsonapi.JsonApiConverterRelatedTest.ModelChild;
+import org.ccci.gto.android.common.jsonapi.JsonApiConverterRelatedTest.ModelParent;
+import org.ccci.gto.android.common.jsonapi.model.JsonApiObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class JsonApiConverterParallelTest {
+    private static final int PARENTS = 50;
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+    private final JsonApiConverter mSequential = new JsonApiConverter.Builder()
+            .addClasses(ModelParent.class, ModelChild.class)
+            .build();
+    private final JsonApiConverter mParallel = new JsonApiConverter.Builder()
+            .addClasses(ModelParent.class, ModelChild.class)
+            .parallelizeIncluded(mExecutor, 1)
+            .build();
+
+    @After
+    public void shutdownExecutor() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void verifyParallelMatchesSequential() throws Exception {
+        final String json = buildDocument();
+
+        final List<ModelParent> expected = mSequential.fromJson(json, ModelParent.class).getData();
+        final List<ModelParent> actual = mParallel.fromJson(json, ModelParent.class).getData();
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            final ModelParent e = expected.get(i);
+            final ModelParent a = actual.get(i);
+            assertThat(a.mId, is(e.mId));
+            assertThat(a.placeholder, is(e.placeholder));
+            assertThat(a.mPostCreateCalled, is(e.mPostCreateCalled));
+            assertThat(a.favorite, is(not(nullValue())));
+            assertThat(a.favorite.mId, is(e.favorite.mId));
+            assertThat(a.favorite.name, is(e.favorite.name));
+            assertThat(a.favorite.placeholder, is(e.favorite.placeholder));
+            assertThat(a.favorite.mPostCreateCalled, is(e.favorite.mPostCreateCalled));
+            assertThat(a.children.size(), is(e.children.size()));
+            for (int j = 0; j < e.children.size(); j++) {
+                assertThat(a.children.get(j).mId, is(e.children.get(j).mId));
+                assertThat(a.children.get(j).name, is(e.children.get(j).name));
+                assertThat(a.children.get(j).placeholder, is(e.children.get(j).placeholder));
+            }
+            assertThat(a.children.get(0), is(sameInstance(a.favorite)));
+        }
+    }
+
+    @Test
+    public void verifyParallelBelowThreshold() throws Exception {
+        final JsonApiConverter converter = new JsonApiConverter.Builder()
+                .addClasses(ModelParent.class, ModelChild.class)
+                .parallelizeIncluded(mExecutor, Integer.MAX_VALUE)
+                .build();
+
+        final JsonApiObject<ModelParent> output = converter.fromJson(buildDocument(), ModelParent.class);
+        assertThat(output.getData().size(), is(PARENTS));
+        assertThat(output.getData().get(0).favorite.name, is("Child 0"));
+    }
+
+    private static String buildDocument() {
+        final StringBuilder data = new StringBuilder();
+        final StringBuilder included = new StringBuilder();
+        for (int i = 0; i < PARENTS; i++) {
+            if (i > 0) {
+                data.append(',');
+                included.append(',');
+            }
+            data.append("{type:'parent',id:").append(i).append("}");
+
+            // included parents reference children that are included later in the document
+            included.append("{type:'parent',id:").append(i).append(",relationships:{")
+                    .append("favorite:{data:{type:'child',id:").append(i).append("}},")
+                    .append("children:{data:[{type:'child',id:").append(i).append("},{type:'child',id:")
+                    .append(i + 1000).append("}]}}}");
+        }
+        for (int i = 0; i < PARENTS; i++) {
+            included.append(",{type:'child',id:").append(i).append(",attributes:{name:'Child ").append(i).append("'}}");
+
+            // repeat some children with updated attributes
+            if (i % 10 == 0) {
+                included.append(",{type:'child',id:").append(i).append(",attributes:{name:'Child ").append(i)
+                        .append("'}}");
+            }
+        }
+        return "{data:[" + data + "],included:[" + included + "]}";
+    }
+}
@@ -0,0 +1,186 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import org.ccci.gto.android.common.jsonapi.JsonApiConverter.Options;
+import org.ccci.gto.android.common.jsonapi.JsonApiConverterRelatedTest.ModelChild;
+import org.ccci.gto.android.common.jsonapi.JsonApiConverterRelatedTest.ModelParent;
+import org.ccci.gto.android.common.jsonapi.JsonApiConverterTest.ModelAttributes;
+import org.ccci.gto.android.common.jsonapi.model.JsonApiError;
+import org.ccci.gto.android.common.jsonapi.model.JsonApiObject;
+import org.junit.Test;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static net.javacrumbs.jsonunit.JsonMatchers.jsonEquals;
+import static net.javacrumbs.jsonunit.JsonMatchers.jsonNodeAbsent;
+import static net.javacrumbs.jsonunit.core.Option.IGNORING_ARRAY_ORDER;
+import static net.javacrumbs.jsonunit.fluent.JsonFluentAssert.assertThatJson;
+import static org.ccci.gto.android.common.jsonapi.JsonApiConverter.Options.include;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class JsonApiConverterStreamingTest {
+    private static final float DELTA = 0.000001f;
+
+    private final JsonApiConverter mConverter = new JsonApiConverter.Builder()
+            .addClasses(ModelParent.class, ModelChild.class, ModelAttributes.class)
+            .build();
+
+    @Test
+    public void verifyFromJsonIncludedAfterData() throws Exception {
+        final String raw = "{data:{type:'parent',id:1,relationships:{" +
+                "favorite:{data:{type:'child',id:11}}," +
+                "children:{data:[{type:'child',id:11},{type:'child',id:20}]}}}," +
+                "included:[{attributes:{name:'Daniel'},id:11,type:'child'}]}";
+
+        final JsonApiObject<ModelParent> output = mConverter.fromJson(source(raw), ModelParent.class);
+        assertThat(output.isSingle(), is(true));
+        final ModelParent target = output.getDataSingle();
+        assertThat(target, is(not(nullValue())));
+        assertThat(target.mId, is(1));
+        assertThat(target.placeholder, is(false));
+        assertThat(target.mPostCreateCalled, is(true));
+        assertThat(target.orphans, is(nullValue()));
+        assertThat(target.favorite, is(not(nullValue())));
+        assertThat(target.favorite.mId, is(11));
+        assertThat(target.favorite.name, is("Daniel"));
+        assertThat(target.favorite.placeholder, is(false));
+        assertThat(target.favorite.mPostCreateCalled, is(true));
+        assertThat(target.children.size(), is(2));
+        assertThat(target.children.get(0), is(sameInstance(target.favorite)));
+        assertThat(target.children.get(1).mId, is(20));
+        assertThat(target.children.get(1).placeholder, is(true));
+        assertThat(target.children.get(1).mPostCreateCalled, is(false));
+    }
+
+    @Test
+    public void verifyFromJsonMatchesString() throws Exception {
+        final ModelParent parent = new ModelParent();
+        parent.mId = 1;
+        parent.favorite = new ModelChild("Daniel");
+        parent.favorite.mId = 11;
+        parent.children.add(parent.favorite);
+        final ModelChild child2 = new ModelChild("Hey You");
+        child2.mId = 20;
+        parent.children.add(child2);
+        parent.orphans = new ModelChild[] {child2};
+        final String json = mConverter.toJson(JsonApiObject.single(parent), include("favorite"));
+
+        final ModelParent expected = mConverter.fromJson(json, ModelParent.class).getDataSingle();
+        final ModelParent actual = mConverter.fromJson(source(json), ModelParent.class).getDataSingle();
+        assertThat(actual, is(not(nullValue())));
+        assertThat(actual.mId, is(expected.mId));
+        assertThat(actual.placeholder, is(expected.placeholder));
+        assertThat(actual.favorite.name, is(expected.favorite.name));
+        assertThat(actual.favorite.placeholder, is(expected.favorite.placeholder));
+        assertThat(actual.children, is(expected.children));
+        assertThat(actual.children.get(1).placeholder, is(expected.children.get(1).placeholder));
+        assertThat(actual.orphans.length, is(expected.orphans.length));
+        assertThat(actual.orphans[0], is(sameInstance(actual.children.get(1))));
+    }
+
+    @Test
+    public void verifyFromJsonAttributes() throws Exception {
+        final String raw = "{data:{id:5,type:'attrs',attributes:" +
+                "{attrIntegerBoxed:2.0,attrFloatBoxed:null,attrInt1:'7',attrBool1:false,attrDeserializeOnly:'b'}}}";
+
+        final ModelAttributes expected = mConverter.fromJson(raw, ModelAttributes.class).getDataSingle();
+        final ModelAttributes target = mConverter.fromJson(source(raw), ModelAttributes.class).getDataSingle();
+        assertThat(target, is(not(nullValue())));
+        assertThat(target.mId, is(5));
+        assertEquals((Integer) 2, target.attrIntegerBoxed);
+        assertThat(target.attrFloatBoxed, is(nullValue()));
+        assertEquals(1.5f, target.attrFloat, DELTA);
+        assertThat(target.attrInt1, is(7));
+        assertThat(target.attrBool1, is(false));
+        assertThat(target.attrDeserializeOnly, is("b"));
+        assertThat(target.attrSerializeOnly, is("serialize"));
+        assertThat(target.attrAnn1, is(expected.attrAnn1));
+        assertThat(target.transientAttr, is("transient"));
+    }
+
+    @Test
+    public void verifyFromJsonErrors() throws Exception {
+        final String raw = "{errors:[{status:'401',title:'Unauthorized'},'invalid'],meta:{attr:'value'}}";
+
+        final JsonApiObject<ModelParent> output = mConverter.fromJson(source(raw), ModelParent.class);
+        assertThat(output.hasErrors(), is(true));
+        assertThat(output.getErrors().size(), is(1));
+        final JsonApiError error = output.getErrors().get(0);
+        assertThat(error.getStatus(), is(401));
+        assertThat(error.getTitle(), is("Unauthorized"));
+        assertThat(output.getRawMeta().optString("attr"), is("value"));
+    }
+
+    @Test
+    public void verifyFromJsonUnknownTypes() throws Exception {
+        final String raw =
+                "{data:[{type:'child',id:1},{type:'unknown',id:2,attributes:{name:'a'}},{type:'child',id:3}]}";
+
+        final JsonApiObject<ModelChild> output = mConverter.fromJson(source(raw), ModelChild.class);
+        assertThat(output.isSingle(), is(false));
+        assertThat(output.getData().size(), is(3));
+        assertThat(output.getData().get(0).mId, is(1));
+        assertThat(output.getData().get(1), is(nullValue()));
+        assertThat(output.getData().get(2).mId, is(3));
+    }
+
+    @Test
+    public void verifyToJsonMatchesString() throws Exception {
+        final ModelParent parent = new ModelParent();
+        parent.mId = 1;
+        parent.favorite = new ModelChild("Daniel");
+        parent.favorite.mId = 11;
+        parent.children.add(parent.favorite);
+        final ModelChild child2 = new ModelChild("Hey You");
+        child2.mId = 20;
+        parent.children.add(child2);
+        parent.children.add(new ModelChild("Child with no name"));
+        parent.orphans = new ModelChild[] {parent.favorite, child2};
+        final JsonApiObject<ModelParent> obj = JsonApiObject.single(parent);
+        final Options options = Options.builder().includeAll().includeObjectsWithNoId(true).build();
+
+        final String json = sink(obj, options);
+        assertThat(json, jsonEquals(mConverter.toJson(obj, options)).when(IGNORING_ARRAY_ORDER));
+        assertThatJson(json).node("included").isArray().ofLength(3);
+    }
+
+    @Test
+    public void verifyToJsonAttributes() throws Exception {
+        final ModelAttributes attrs = new ModelAttributes();
+        attrs.mId = 5;
+        attrs.attrFloatBoxed = null;
+        final JsonApiObject<ModelAttributes> obj = JsonApiObject.of(attrs);
+        final Options options = Options.builder().serializeNullAttributes(ModelAttributes.TYPE).build();
+
+        final String json = sink(obj, options);
+        assertThat(json, jsonEquals(mConverter.toJson(obj, options)));
+        assertThat(json, jsonNodeAbsent("included"));
+    }
+
+    @Test
+    public void verifyToJsonErrors() throws Exception {
+        final JsonApiObject<ModelParent> obj = JsonApiObject.error();
+        final JsonApiError error = new JsonApiError();
+        error.setStatus(404);
+        error.setTitle("Not Found");
+        obj.addError(error);
+        final Options options = Options.builder().build();
+
+        assertThat(sink(obj, options), jsonEquals(mConverter.toJson(obj, options)));
+    }
+
+    private String sink(final JsonApiObject<?> obj, final Options options) throws Exception {
+        final Buffer buffer = new Buffer();
+        mConverter.toJson(obj, options, buffer);
+        return buffer.readUtf8();
+    }
+
+    private static BufferedSource source(final String json) {
+        return new Buffer().writeUtf8(json);
+    }
+}
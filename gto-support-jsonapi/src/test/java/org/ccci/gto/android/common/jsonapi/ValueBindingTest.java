@@ -0,0 +1,315 @@
+package org.ccci.gto.android.common.jsonapi;
+
+import com.squareup.moshi.JsonReader;
+
+import org.ccci.gto.android.common.jsonapi.converter.TypeConverter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okio.Buffer;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ValueBindingTest {
+    private final Holder mHolder = new Holder();
+
+    // region Converted
+    @Test
+    public void verifyConvertedBind() throws Exception {
+        final ValueBinding binding = new ValueBinding.Converted(new UpperCaseConverter());
+
+        binding.bind(field("mString"), mHolder, new JSONObject("{value:'abc'}"), "value");
+        assertThat(mHolder.mString, is("ABC"));
+        binding.bind(field("mString"), mHolder, reader("'def'"));
+        assertThat(mHolder.mString, is("DEF"));
+    }
+
+    @Test
+    public void verifyConvertedBindNull() throws Exception {
+        final ValueBinding binding = new ValueBinding.Converted(new UpperCaseConverter());
+
+        mHolder.mString = "abc";
+        binding.bind(field("mString"), mHolder, new JSONObject("{value:null}"), "value");
+        assertThat(mHolder.mString, is(UpperCaseConverter.NULL));
+
+        mHolder.mString = "abc";
+        binding.bind(field("mString"), mHolder, reader("null"));
+        assertThat(mHolder.mString, is(UpperCaseConverter.NULL));
+
+        mHolder.mString = "abc";
+        binding.bindNull(field("mString"), mHolder);
+        assertThat(mHolder.mString, is(UpperCaseConverter.NULL));
+    }
+
+    @Test
+    public void verifyConvertedElements() throws Exception {
+        final ValueBinding binding = new ValueBinding.Converted(new UpperCaseConverter());
+
+        final JSONArray json = new JSONArray("['a',null]");
+        assertThat(binding.fromJSONArray(json, 0), is((Object) "A"));
+        assertThat(binding.fromJSONArray(json, 1), is((Object) UpperCaseConverter.NULL));
+        final JsonReader reader = reader("['b',null]");
+        reader.beginArray();
+        assertThat(binding.fromJsonReader(reader), is((Object) "B"));
+        assertThat(binding.fromJsonReader(reader), is((Object) UpperCaseConverter.NULL));
+        reader.endArray();
+    }
+    // endregion Converted
+
+    // region ArrayOf
+    @Test
+    public void verifyArrayOfPrimitives() throws Exception {
+        final ValueBinding binding = new ValueBinding.ArrayOf(int.class, ValueBinding.Native.INT);
+
+        binding.bind(field("mInts"), mHolder, new JSONObject("{value:[1,'2',3.0]}"), "value");
+        assertThat(mHolder.mInts.length, is(3));
+        assertThat(mHolder.mInts[0], is(1));
+        assertThat(mHolder.mInts[1], is(2));
+        assertThat(mHolder.mInts[2], is(3));
+
+        binding.bind(field("mInts"), mHolder, reader("[4,5]"));
+        assertThat(mHolder.mInts.length, is(2));
+        assertThat(mHolder.mInts[0], is(4));
+        assertThat(mHolder.mInts[1], is(5));
+    }
+
+    @Test
+    public void verifyArrayOfBoxed() throws Exception {
+        final ValueBinding binding = new ValueBinding.ArrayOf(Long.class, ValueBinding.Native.LONG_BOXED);
+
+        binding.bind(field("mLongs"), mHolder, new JSONObject("{value:[1,null,'x']}"), "value");
+        assertThat(mHolder.mLongs, arrayContaining(1L, null, null));
+
+        binding.bind(field("mLongs"), mHolder, reader("[2,null,'y']"));
+        assertThat(mHolder.mLongs, arrayContaining(2L, null, null));
+    }
+
+    @Test
+    public void verifyArrayOfInvalid() throws Exception {
+        final ValueBinding binding = new ValueBinding.ArrayOf(int.class, ValueBinding.Native.INT);
+        mHolder.mInts = new int[] {1};
+
+        // an element that can't be converted leaves the field untouched, but still consumes the whole array
+        final JsonReader reader = reader("[[1,'x',2],3]");
+        reader.beginArray();
+        try {
+            binding.bind(field("mInts"), mHolder, reader);
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        assertThat(reader.nextInt(), is(3));
+        assertThat(mHolder.mInts.length, is(1));
+
+        try {
+            binding.bind(field("mInts"), mHolder, new JSONObject("{value:'x'}"), "value");
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        try {
+            binding.bindNull(field("mInts"), mHolder);
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        assertThat(mHolder.mInts.length, is(1));
+    }
+    // endregion ArrayOf
+
+    // region CollectionOf
+    @Test
+    public void verifyCollectionOf() throws Exception {
+        final ValueBinding binding =
+                new ValueBinding.CollectionOf(new CollectionFactory(List.class), ValueBinding.Native.STRING);
+
+        binding.bind(field("mStrings"), mHolder, new JSONObject("{value:['a',1,null]}"), "value");
+        assertThat(mHolder.mStrings, is(instanceOf(ArrayList.class)));
+        assertThat(mHolder.mStrings, contains("a", "1", null));
+
+        binding.bind(field("mStrings"), mHolder, reader("['b',true]"));
+        assertThat(mHolder.mStrings, is(instanceOf(ArrayList.class)));
+        assertThat(mHolder.mStrings, contains("b", "true"));
+    }
+
+    @Test
+    public void verifyCollectionOfConverted() throws Exception {
+        final ValueBinding element = new ValueBinding.Converted(new UpperCaseConverter());
+        final ValueBinding binding = new ValueBinding.CollectionOf(new CollectionFactory(Set.class), element);
+
+        binding.bind(field("mStringSet"), mHolder, reader("['a','b','a']"));
+        assertThat(mHolder.mStringSet, containsInAnyOrder("A", "B"));
+    }
+
+    @Test
+    public void verifyCollectionOfInvalid() throws Exception {
+        final ValueBinding binding =
+                new ValueBinding.CollectionOf(new CollectionFactory(List.class), ValueBinding.Native.STRING);
+        mHolder.mStrings = Arrays.asList("a");
+
+        try {
+            binding.bind(field("mStrings"), mHolder, reader("{}"));
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        try {
+            binding.bindNull(field("mStrings"), mHolder);
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        assertThat(mHolder.mStrings, contains("a"));
+    }
+    // endregion CollectionOf
+
+    // region Native
+    @Test
+    public void verifyNativeOf() {
+        assertThat(ValueBinding.Native.of(int.class), is(ValueBinding.Native.INT));
+        assertThat(ValueBinding.Native.of(Integer.class), is(ValueBinding.Native.INTEGER_BOXED));
+        assertThat(ValueBinding.Native.of(String.class), is(ValueBinding.Native.STRING));
+        assertThat(ValueBinding.Native.of(JSONObject.class), is(ValueBinding.Native.JSON_OBJECT));
+        assertThat(ValueBinding.Native.of(Object.class), is(ValueBinding.Native.UNSUPPORTED));
+    }
+
+    @Test
+    public void verifyNativePrimitives() throws Exception {
+        ValueBinding.Native.INT.bind(field("mInt"), mHolder, new JSONObject("{value:'12'}"), "value");
+        assertThat(mHolder.mInt, is(12));
+        ValueBinding.Native.INT.bind(field("mInt"), mHolder, reader("13.0"));
+        assertThat(mHolder.mInt, is(13));
+        ValueBinding.Native.DOUBLE.bind(field("mDouble"), mHolder, reader("1.5"));
+        assertThat(mHolder.mDouble, is(1.5));
+        ValueBinding.Native.BOOLEAN.bind(field("mBoolean"), mHolder, reader("'true'"));
+        assertThat(mHolder.mBoolean, is(true));
+    }
+
+    @Test
+    public void verifyNativePrimitivesNull() throws Exception {
+        mHolder.mInt = 5;
+        try {
+            ValueBinding.Native.INT.bind(field("mInt"), mHolder, reader("null"));
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        try {
+            ValueBinding.Native.INT.bindNull(field("mInt"), mHolder);
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+        assertThat(mHolder.mInt, is(5));
+    }
+
+    @Test
+    public void verifyNativeBoxed() throws Exception {
+        ValueBinding.Native.LONG_BOXED.bind(field("mLong"), mHolder, new JSONObject("{value:7}"), "value");
+        assertThat(mHolder.mLong, is(7L));
+        ValueBinding.Native.LONG_BOXED.bind(field("mLong"), mHolder, new JSONObject("{value:null}"), "value");
+        assertThat(mHolder.mLong, is(nullValue()));
+        ValueBinding.Native.LONG_BOXED.bind(field("mLong"), mHolder, reader("8"));
+        assertThat(mHolder.mLong, is(8L));
+        ValueBinding.Native.LONG_BOXED.bind(field("mLong"), mHolder, reader("null"));
+        assertThat(mHolder.mLong, is(nullValue()));
+    }
+
+    @Test
+    public void verifyNativeJson() throws Exception {
+        ValueBinding.Native.JSON_OBJECT.bind(field("mJsonObject"), mHolder, reader("{a:{b:1}}"));
+        assertThat(mHolder.mJsonObject.getJSONObject("a").getInt("b"), is(1));
+        ValueBinding.Native.JSON_ARRAY.bind(field("mJsonArray"), mHolder, new JSONObject("{value:[1,2]}"), "value");
+        assertThat(mHolder.mJsonArray.length(), is(2));
+
+        try {
+            ValueBinding.Native.JSON_OBJECT.bind(field("mJsonObject"), mHolder, reader("[]"));
+            fail("JSONException expected");
+        } catch (final JSONException expected) {
+        }
+    }
+
+    @Test
+    public void verifyNativeElementsLenient() throws Exception {
+        // boxed array elements that can't be parsed resolve to null
+        final JSONArray json = new JSONArray("['1','x',null]");
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJSONArray(json, 0), is((Object) 1));
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJSONArray(json, 1), is(nullValue()));
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJSONArray(json, 2), is(nullValue()));
+
+        final JsonReader reader = reader("['1','x',null]");
+        reader.beginArray();
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJsonReader(reader), is((Object) 1));
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJsonReader(reader), is(nullValue()));
+        assertThat(ValueBinding.Native.INTEGER_BOXED.fromJsonReader(reader), is(nullValue()));
+        reader.endArray();
+    }
+
+    @Test
+    public void verifyNativeUnsupported() throws Exception {
+        mHolder.mObject = new Object();
+        ValueBinding.Native.UNSUPPORTED.bind(field("mObject"), mHolder, reader("'abc'"));
+        assertThat(mHolder.mObject, is(nullValue()));
+    }
+    // endregion Native
+
+    @NonNull
+    private static Field field(@NonNull final String name) throws NoSuchFieldException {
+        final Field field = Holder.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @NonNull
+    private static JsonReader reader(@NonNull final String json) {
+        final JsonReader reader = JsonReader.of(new Buffer().writeUtf8(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    static class Holder {
+        String mString;
+        int mInt;
+        double mDouble;
+        boolean mBoolean;
+        Long mLong;
+        Object mObject;
+        int[] mInts;
+        Long[] mLongs;
+        List<String> mStrings;
+        Set<String> mStringSet;
+        JSONObject mJsonObject;
+        JSONArray mJsonArray;
+    }
+
+    static class UpperCaseConverter implements TypeConverter<String> {
+        static final String NULL = "<null>";
+
+        @Override
+        public boolean supports(@NonNull final Class<?> clazz) {
+            return String.class.equals(clazz);
+        }
+
+        @Nullable
+        @Override
+        public String toString(@Nullable final String value) {
+            return value != null ? value.toLowerCase() : null;
+        }
+
+        @Nullable
+        @Override
+        public String fromString(@Nullable final String value) {
+            return value != null ? value.toUpperCase() : NULL;
+        }
+    }
+}
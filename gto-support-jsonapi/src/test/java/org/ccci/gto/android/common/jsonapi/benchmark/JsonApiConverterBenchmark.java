@@ -0,0 +1,127 @@
+package org.ccci.gto.android.common.jsonapi.benchmark;
+
+import org.ccci.gto.android.common.jsonapi.JsonApiConverter;
+import org.ccci.gto.android.common.jsonapi.annotation.JsonApiId;
+import org.ccci.gto.android.common.jsonapi.annotation.JsonApiType;
+import org.ccci.gto.android.common.jsonapi.converter.LocaleTypeConverter;
+import org.ccci.gto.android.common.jsonapi.model.JsonApiObject;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * Benchmarks (de)serializing large synthetic JSON:API documents. Compare runs of this benchmark against different
+ * revisions of JsonApiConverter to measure the effect of changes to the binding code.
+ *
+ * This benchmark only uses the public JsonApiConverter API, so a baseline can be taken by copying it onto an earlier
+ * revision (e.g. the parent of the binding plan change) and running the jmh task there. Record both sets of results
+ * when proposing a change to the binding code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JsonApiConverterBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int resources;
+
+    private JsonApiConverter mConverter;
+    private JsonApiObject<Article> mArticles;
+    private String mJson;
+
+    @Setup
+    public void setup() {
+        mConverter = new JsonApiConverter.Builder()
+                .addClasses(Article.class, Author.class)
+                .addConverters(LocaleTypeConverter.INSTANCE)
+                .build();
+
+        final Author[] authors = new Author[Math.max(1, resources / 10)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = new Author();
+            authors[i].mId = "author-" + i;
+            authors[i].name = "Author " + i;
+            authors[i].locale = i % 2 == 0 ? Locale.ENGLISH : Locale.CANADA_FRENCH;
+        }
+
+        final Article[] articles = new Article[resources];
+        for (int i = 0; i < resources; i++) {
+            articles[i] = new Article();
+            articles[i].mId = i;
+            articles[i].title = "Article " + i;
+            articles[i].views = i * 31;
+            articles[i].rating = i / 7.0;
+            articles[i].published = i % 3 != 0;
+            articles[i].wordCount = i % 5 != 0 ? (long) i * 100 : null;
+            articles[i].tags = Arrays.asList("tag" + i % 7, "tag" + i % 11);
+            articles[i].locale = Locale.ENGLISH;
+            articles[i].author = authors[i % authors.length];
+        }
+        mArticles = JsonApiObject.of(articles);
+        mJson = mConverter.toJson(mArticles, JsonApiConverter.Options.include(Article.JSON_AUTHOR));
+    }
+
+    @Benchmark
+    public JsonApiObject<Article> fromJsonString() throws JSONException {
+        return mConverter.fromJson(mJson, Article.class);
+    }
+
+    @Benchmark
+    public JsonApiObject<Article> fromJsonSource() throws IOException {
+        return mConverter.fromJson(new Buffer().writeUtf8(mJson), Article.class);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return mConverter.toJson(mArticles, JsonApiConverter.Options.include(Article.JSON_AUTHOR));
+    }
+
+    @JsonApiType(Article.TYPE)
+    public static final class Article {
+        static final String TYPE = "article";
+        static final String JSON_AUTHOR = "author";
+
+        @JsonApiId
+        int mId;
+
+        String title;
+        int views;
+        double rating;
+        boolean published;
+        Long wordCount;
+        List<String> tags;
+        Locale locale;
+
+        Author author;
+    }
+
+    @JsonApiType(Author.TYPE)
+    public static final class Author {
+        static final String TYPE = "author";
+
+        @JsonApiId
+        String mId;
+
+        String name;
+        Locale locale;
+    }
+}
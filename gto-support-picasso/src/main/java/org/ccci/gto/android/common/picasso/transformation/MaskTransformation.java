@@ -1,12 +1,15 @@
 package org.ccci.gto.android.common.picasso.transformation;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.drawable.Drawable;
+import android.util.LruCache;
 
 import com.squareup.picasso.Transformation;
 
@@ -14,14 +17,39 @@ import java.lang.ref.WeakReference;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 
 public class MaskTransformation implements Transformation {
-    private static final Paint PAINT_MASK = new Paint();
+    // Paint isn't thread-safe and transformations are run concurrently on Picasso's worker threads
+    private static final ThreadLocal<Paint> PAINT_SRC_IN = new ThreadLocal<Paint>() {
+        @Override
+        protected Paint initialValue() {
+            final Paint paint = new Paint();
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
+            return paint;
+        }
+    };
+    private static final ThreadLocal<Paint> PAINT_DST_IN = new ThreadLocal<Paint>() {
+        @Override
+        protected Paint initialValue() {
+            final Paint paint = new Paint();
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+            return paint;
+        }
+    };
 
-    static {
-        PAINT_MASK.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-    }
+    // rasterized masks are shared by all MaskTransformations, they are alpha-only bitmaps so they are fairly small.
+    // masks are keyed by the Configuration & Theme they were loaded with, so configuration changes (e.g. night mode)
+    // rasterize a new mask instead of reusing a stale one.
+    private static final int MASK_CACHE_SIZE = 2 * 1024 * 1024;
+    private static final LruCache<MaskKey, Bitmap> MASKS = new LruCache<MaskKey, Bitmap>(MASK_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(final MaskKey key, final Bitmap value) {
+            return value.getByteCount();
+        }
+    };
 
     @NonNull
     private final Context mApplicationContext;
@@ -30,6 +58,11 @@ public class MaskTransformation implements Transformation {
     @DrawableRes
     private final int mMask;
 
+    @Nullable
+    private String mKey;
+    @Nullable
+    private Configuration mKeyConfig;
+
     public MaskTransformation(@NonNull final Context context, @DrawableRes final int mask) {
         mApplicationContext = context.getApplicationContext();
         mContext = new WeakReference<>(context);
@@ -47,27 +80,110 @@ public class MaskTransformation implements Transformation {
 
     @Override
     public String key() {
-        return "MaskTransformation(mask=" + getContext().getResources().getResourceEntryName(mMask) + ")";
+        final Resources res = getContext().getResources();
+        final Configuration config = res.getConfiguration();
+        if (mKey == null || !config.equals(mKeyConfig)) {
+            mKeyConfig = new Configuration(config);
+            mKey = "MaskTransformation(mask=" + res.getResourceEntryName(mMask) + ",config=" + config + ")";
+        }
+
+        return mKey;
     }
 
     @Override
     public Bitmap transform(@NonNull final Bitmap source) {
         final int w = source.getWidth();
         final int h = source.getHeight();
+        final Bitmap mask = getMask(w, h);
 
-        final Drawable mask = ContextCompat.getDrawable(getContext(), mMask);
-        if (mask == null) {
-            throw new IllegalArgumentException("Unable to load mask");
+        // mask the source in place when possible to avoid allocating another full size bitmap
+        if (source.isMutable() && source.getConfig() == Bitmap.Config.ARGB_8888) {
+            source.setHasAlpha(true);
+            new Canvas(source).drawBitmap(mask, 0, 0, PAINT_DST_IN.get());
+            return source;
         }
 
         final Bitmap result = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
         final Canvas canvas = new Canvas(result);
-        mask.setBounds(0, 0, w, h);
-        mask.draw(canvas);
-        canvas.drawBitmap(source, 0, 0, PAINT_MASK);
+        canvas.drawBitmap(mask, 0, 0, null);
+        canvas.drawBitmap(source, 0, 0, PAINT_SRC_IN.get());
 
         source.recycle();
 
         return result;
     }
+
+    @NonNull
+    @VisibleForTesting
+    Bitmap getMask(final int w, final int h) {
+        final Context context = getContext();
+        final MaskKey key = new MaskKey(mMask, w, h, context.getResources().getConfiguration(), context.getTheme());
+        Bitmap bitmap = MASKS.get(key);
+        if (bitmap == null) {
+            final Drawable mask = ContextCompat.getDrawable(context, mMask);
+            if (mask == null) {
+                throw new IllegalArgumentException("Unable to load mask");
+            }
+
+            // rasterize the mask, we only need the alpha channel of the mask
+            bitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ALPHA_8);
+            mask.setBounds(0, 0, w, h);
+            mask.draw(new Canvas(bitmap));
+            MASKS.put(key.snapshot(), bitmap);
+        }
+        return bitmap;
+    }
+
+    private static final class MaskKey {
+        @DrawableRes
+        private final int mMask;
+        private final int mWidth;
+        private final int mHeight;
+        @NonNull
+        private final Configuration mConfig;
+        // held weakly so that cached masks don't leak an Activity's Theme
+        @NonNull
+        private final WeakReference<Resources.Theme> mTheme;
+
+        MaskKey(@DrawableRes final int mask, final int width, final int height, @NonNull final Configuration config,
+                @Nullable final Resources.Theme theme) {
+            this(mask, width, height, config, new WeakReference<>(theme));
+        }
+
+        private MaskKey(@DrawableRes final int mask, final int width, final int height,
+                        @NonNull final Configuration config, @NonNull final WeakReference<Resources.Theme> theme) {
+            mMask = mask;
+            mWidth = width;
+            mHeight = height;
+            mConfig = config;
+            mTheme = theme;
+        }
+
+        /**
+         * @return a copy of this key that is safe to store, Resources updates its Configuration in place.
+         */
+        @NonNull
+        MaskKey snapshot() {
+            return new MaskKey(mMask, mWidth, mHeight, new Configuration(mConfig), mTheme);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MaskKey)) {
+                return false;
+            }
+            final MaskKey key = (MaskKey) o;
+            final Resources.Theme theme = mTheme.get();
+            return mMask == key.mMask && mWidth == key.mWidth && mHeight == key.mHeight &&
+                    mConfig.equals(key.mConfig) && theme != null && theme == key.mTheme.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * mMask + mWidth) + mHeight) + mConfig.hashCode();
+        }
+    }
 }
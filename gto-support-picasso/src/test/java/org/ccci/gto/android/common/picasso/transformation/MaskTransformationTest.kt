@@ -0,0 +1,66 @@
+package org.ccci.gto.android.common.picasso.transformation
+
+import android.content.Context
+import android.graphics.Bitmap
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RuntimeEnvironment
+
+@RunWith(AndroidJUnit4::class)
+class MaskTransformationTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val transformation = MaskTransformation(context, android.R.drawable.ic_delete)
+
+    @Test
+    fun verifyTransformMasksMutableSourceInPlace() {
+        val source = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888)
+
+        val result = transformation.transform(source)
+        assertSame(source, result)
+        assertFalse(source.isRecycled)
+        assertTrue(result.hasAlpha())
+    }
+
+    @Test
+    fun verifyTransformCopiesImmutableSource() {
+        val source = Bitmap.createBitmap(IntArray(100), 10, 10, Bitmap.Config.ARGB_8888)
+        assertFalse(source.isMutable)
+
+        val result = transformation.transform(source)
+        assertNotSame(source, result)
+        assertTrue(source.isRecycled)
+        assertEquals(Bitmap.Config.ARGB_8888, result.config)
+        assertEquals(10, result.width)
+        assertEquals(10, result.height)
+    }
+
+    @Test
+    fun verifyTransformCopiesNonArgbSource() {
+        val source = Bitmap.createBitmap(10, 10, Bitmap.Config.RGB_565)
+
+        val result = transformation.transform(source)
+        assertNotSame(source, result)
+        assertTrue(source.isRecycled)
+        assertEquals(Bitmap.Config.ARGB_8888, result.config)
+    }
+
+    @Test
+    fun verifyMaskCacheRespectsConfiguration() {
+        val mask = transformation.getMask(12, 12)
+        val key = transformation.key()
+        assertSame(mask, transformation.getMask(12, 12))
+        assertSame(mask, MaskTransformation(context, android.R.drawable.ic_delete).getMask(12, 12))
+
+        RuntimeEnvironment.setQualifiers("+night")
+        assertNotSame("configuration changes rasterize a new mask", mask, transformation.getMask(12, 12))
+        assertNotEquals(key, transformation.key())
+    }
+}
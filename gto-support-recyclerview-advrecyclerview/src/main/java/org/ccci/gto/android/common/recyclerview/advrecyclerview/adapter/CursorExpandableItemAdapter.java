@@ -9,9 +9,6 @@ import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 
 import com.h6ah4i.android.widget.advrecyclerview.utils.AbstractExpandableItemAdapter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static androidx.recyclerview.widget.RecyclerView.NO_ID;
 
 public abstract class CursorExpandableItemAdapter<GVH extends ViewHolder, CVH extends ViewHolder>
@@ -51,8 +48,13 @@ public abstract class CursorExpandableItemAdapter<GVH extends ViewHolder, CVH ex
             idColumnIndex = cursor.getColumnIndexOrThrow(mIdColumn);
         }
 
-        // store the new index and cursor
-        mGroupIndex = buildGroupIndex(cursor, groupIdColumnIndex, idColumnIndex);
+        // store the new index and cursor, using the precomputed index if the cursor has one
+        if (cursor instanceof GroupIndexedCursor &&
+                mGroupIdColumn.equals(((GroupIndexedCursor) cursor).getGroupIdColumn())) {
+            mGroupIndex = ((GroupIndexedCursor) cursor).getGroupIndex();
+        } else {
+            mGroupIndex = buildGroupIndex(cursor, groupIdColumnIndex, idColumnIndex);
+        }
         mCursor = cursor;
         mIdColumnIndex = idColumnIndex;
 
@@ -63,43 +65,14 @@ public abstract class CursorExpandableItemAdapter<GVH extends ViewHolder, CVH ex
         return oldCursor;
     }
 
+    /**
+     * Build the group index for a Cursor on the UI thread. This walks the entire Cursor, so prefer wrapping the Cursor
+     * in a {@link GroupIndexedCursor} on the thread that loads it.
+     */
     @NonNull
     protected Group[] buildGroupIndex(@Nullable final Cursor cursor, final int groupIdColumnIndex,
                                       final int idColumnIndex) {
-        // short-circuit if we don't have a Cursor
-        if (cursor == null) {
-            return new Group[0];
-        }
-
-        // extract an index of groups
-        final List<Group> groups = new ArrayList<>();
-        cursor.moveToPosition(-1);
-        Group group = null;
-        for (int i = 0; cursor.moveToNext(); i++) {
-            // get the id of the current group
-            final long groupId = groupIdColumnIndex != -1 ? cursor.getLong(groupIdColumnIndex) : groups.size() + 1;
-
-            // create a new group object if necessary
-            if (group == null || group.id != groupId) {
-                if (group != null) {
-                    groups.add(group);
-                }
-
-                group = new Group();
-                group.id = groupId;
-                group.beginIndex = i;
-            }
-
-            // increase the size of this group
-            group.size++;
-        }
-
-        // make sure we include the final group
-        if (group != null) {
-            groups.add(group);
-        }
-
-        return groups.toArray(new Group[groups.size()]);
+        return GroupIndexedCursor.buildGroupIndex(cursor, groupIdColumnIndex);
     }
 
     @Override
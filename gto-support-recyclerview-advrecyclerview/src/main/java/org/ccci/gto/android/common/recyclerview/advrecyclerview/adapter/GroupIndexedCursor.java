@@ -0,0 +1,86 @@
+package org.ccci.gto.android.common.recyclerview.advrecyclerview.adapter;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.ccci.gto.android.common.recyclerview.advrecyclerview.adapter.CursorExpandableItemAdapter.Group;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Cursor with a precomputed group index for {@link CursorExpandableItemAdapter}.
+ *
+ * Building the group index walks the entire Cursor (which also forces a SQLiteCursor to fill its window), so this
+ * should be created on the same worker thread that loads the Cursor, e.g. in a Loader's loadInBackground(). When
+ * swapped into a CursorExpandableItemAdapter using the same group id column the adapter uses this index instead of
+ * building its own on the UI thread.
+ */
+public class GroupIndexedCursor extends CursorWrapper {
+    @NonNull
+    private final String mGroupIdColumn;
+    @NonNull
+    private final Group[] mGroupIndex;
+
+    @WorkerThread
+    public GroupIndexedCursor(@NonNull final Cursor cursor, @NonNull final String groupIdColumn) {
+        super(cursor);
+        mGroupIdColumn = groupIdColumn;
+        mGroupIndex = buildGroupIndex(cursor, cursor.getColumnIndexOrThrow(groupIdColumn));
+    }
+
+    @NonNull
+    public String getGroupIdColumn() {
+        return mGroupIdColumn;
+    }
+
+    @NonNull
+    Group[] getGroupIndex() {
+        return mGroupIndex;
+    }
+
+    /**
+     * Build the index of groups in the specified Cursor. Every row is read, so rows of a group that aren't contiguous
+     * are indexed as separate groups instead of being silently merged into another group.
+     */
+    @NonNull
+    static Group[] buildGroupIndex(@Nullable final Cursor cursor, final int groupIdColumnIndex) {
+        // short-circuit if we don't have a Cursor
+        if (cursor == null) {
+            return new Group[0];
+        }
+
+        // extract an index of groups
+        final List<Group> groups = new ArrayList<>();
+        cursor.moveToPosition(-1);
+        Group group = null;
+        for (int i = 0; cursor.moveToNext(); i++) {
+            // get the id of the current group
+            final long groupId = groupIdColumnIndex != -1 ? cursor.getLong(groupIdColumnIndex) : groups.size() + 1;
+
+            // create a new group object if necessary
+            if (group == null || group.id != groupId) {
+                if (group != null) {
+                    groups.add(group);
+                }
+
+                group = new Group();
+                group.id = groupId;
+                group.beginIndex = i;
+            }
+
+            // increase the size of this group
+            group.size++;
+        }
+
+        // make sure we include the final group
+        if (group != null) {
+            groups.add(group);
+        }
+
+        return groups.toArray(new Group[groups.size()]);
+    }
+}
@@ -0,0 +1,57 @@
+package org.ccci.gto.android.common.recyclerview.advrecyclerview.adapter
+
+import android.database.MatrixCursor
+import android.provider.BaseColumns
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.ccci.gto.android.common.recyclerview.advrecyclerview.adapter.CursorExpandableItemAdapter.Group
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val COLUMN_GROUP = "group_id"
+
+@RunWith(AndroidJUnit4::class)
+class GroupIndexedCursorTest {
+    @Test
+    fun verifyGroupIndex() {
+        val cursor = GroupIndexedCursor(cursor(1, 1, 1, 2, 3, 3), COLUMN_GROUP)
+
+        assertThat(
+            cursor.groupIndex.map { it.toTriple() },
+            contains(Triple(1L, 0, 3), Triple(2L, 3, 1), Triple(3L, 4, 2))
+        )
+    }
+
+    @Test
+    fun verifyGroupIndexNonContiguousGroups() {
+        val cursor = GroupIndexedCursor(cursor(1, 1, 2, 1, 2), COLUMN_GROUP)
+
+        assertThat(
+            cursor.groupIndex.map { it.toTriple() },
+            contains(Triple(1L, 0, 2), Triple(2L, 2, 1), Triple(1L, 3, 1), Triple(2L, 4, 1))
+        )
+    }
+
+    @Test
+    fun verifyGroupIndexEmptyCursor() {
+        assertEquals(0, GroupIndexedCursor(cursor(), COLUMN_GROUP).groupIndex.size)
+    }
+
+    @Test
+    fun verifyBuildGroupIndexNullCursor() {
+        assertEquals(0, GroupIndexedCursor.buildGroupIndex(null, 1).size)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyMissingGroupIdColumn() {
+        GroupIndexedCursor(cursor(1), "missing")
+    }
+
+    private fun cursor(vararg groups: Long) = MatrixCursor(arrayOf(BaseColumns._ID, COLUMN_GROUP)).apply {
+        groups.forEachIndexed { i, group -> addRow(arrayOf(i.toLong(), group)) }
+    }
+
+    private fun Group.toTriple() = Triple(id, beginIndex, size)
+}
@@ -1,30 +1,64 @@
 package org.ccci.gto.android.common.recyclerview.adapter;
 
 import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.BaseColumns;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.concurrent.Executor;
+
 public abstract class CursorAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
     @Nullable
     protected Cursor mCursor;
     private int mIdColumn = -1;
 
+    @NonNull
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private Executor mDiffExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    @Nullable
+    private String[] mContentHashColumns;
+    @Nullable
+    private CursorSnapshot mSnapshot;
+    @Nullable
+    private AsyncSwap mPendingSwap;
+
     public CursorAdapter() {
         // default to stable ids for CursorAdapters
         setHasStableIds(true);
     }
 
+    /**
+     * Set the columns used to detect changed rows when diffing cursors in {@link #swapCursorAsync(Cursor)}. By
+     * default all columns are compared.
+     */
+    @UiThread
+    public void setContentHashColumns(@Nullable final String... columns) {
+        mContentHashColumns = columns;
+    }
+
+    @UiThread
+    public void setDiffExecutor(@NonNull final Executor executor) {
+        mDiffExecutor = executor;
+    }
+
     @UiThread
     @Nullable
     public Cursor swapCursor(@Nullable final Cursor cursor) {
+        cancelPendingSwap(cursor);
         final Cursor old = mCursor;
 
         // update Cursor
         mCursor = cursor;
         mIdColumn = mCursor != null ? mCursor.getColumnIndex(BaseColumns._ID) : -1;
+        mSnapshot = null;
 
         // notify that data has changed
         notifyDataSetChanged();
@@ -33,6 +67,114 @@ public abstract class CursorAdapter<VH extends RecyclerView.ViewHolder> extends
         return old;
     }
 
+    /**
+     * Swap in a new Cursor after diffing it against the current Cursor on a background executor. Rows are matched by
+     * their {@link BaseColumns#_ID} and compared using the content hash columns, and only the changed ranges are
+     * dispatched to the RecyclerView.
+     *
+     * The current Cursor keeps backing the adapter until the diff is dispatched. If it is closed before then (e.g. by
+     * a CursorLoader, which closes the previous Cursor as soon as onLoadFinished() returns) the adapter can no longer
+     * wait for the background diff, so the new Cursor is diffed on the calling thread instead. The first async swap
+     * after a {@link #swapCursor(Cursor)} is always a full refresh, because there is no snapshot of the current Cursor
+     * to diff against.
+     */
+    @UiThread
+    public void swapCursorAsync(@Nullable final Cursor cursor) {
+        swapCursorAsync(cursor, false);
+    }
+
+    /**
+     * Same as {@link #swapCursorAsync(Cursor)}, but the replaced Cursor is closed once it is no longer used. A Cursor
+     * that is superseded by a later swap before it is ever displayed is closed as well.
+     */
+    @UiThread
+    public void changeCursorAsync(@Nullable final Cursor cursor) {
+        swapCursorAsync(cursor, true);
+    }
+
+    @UiThread
+    private void swapCursorAsync(@Nullable final Cursor cursor, final boolean closeOld) {
+        cancelPendingSwap(cursor);
+        if (cursor == mCursor) {
+            return;
+        }
+
+        final AsyncSwap swap = new AsyncSwap(mCursor, cursor, mSnapshot, mContentHashColumns, closeOld);
+        mPendingSwap = swap;
+        if (swap.mOld != null) {
+            swap.mOld.registerDataSetObserver(swap.mOldObserver);
+        }
+        mDiffExecutor.execute(swap);
+    }
+
+    /**
+     * @param next the Cursor replacing the pending swap, it is never closed even if the pending swap was going to
+     *             swap it in.
+     */
+    @UiThread
+    private void cancelPendingSwap(@Nullable final Cursor next) {
+        final AsyncSwap swap = mPendingSwap;
+        if (swap != null) {
+            mPendingSwap = null;
+            swap.cancel();
+            if (swap.mCloseOld && swap.mNew != null && swap.mNew != mCursor && swap.mNew != next) {
+                swap.mNew.close();
+            }
+        }
+    }
+
+    @UiThread
+    void onAsyncSwapOldClosed(@NonNull final AsyncSwap swap) {
+        if (mPendingSwap != swap) {
+            return;
+        }
+
+        // the old cursor can no longer back the adapter, so finish the diff on this thread instead of falling back to
+        // a full refresh. cancel() guarantees the background snapshot is no longer reading the new cursor.
+        swap.cancel();
+        CursorSnapshot snapshot = null;
+        DiffUtil.DiffResult diff = null;
+        if (swap.mNew != null) {
+            try {
+                snapshot = CursorSnapshot.of(swap.mNew, BaseColumns._ID, swap.mHashColumns, swap, () -> false);
+            } catch (final RuntimeException e) {
+                // the new cursor is unreadable, fall back to a full refresh
+                snapshot = null;
+            }
+        }
+        if (snapshot != null && swap.mOldSnapshot != null) {
+            diff = DiffUtil.calculateDiff(new CursorSnapshot.DiffCallback(swap.mOldSnapshot, snapshot));
+        }
+        onAsyncSwapComplete(swap, snapshot, diff);
+    }
+
+    @UiThread
+    void onAsyncSwapComplete(@NonNull final AsyncSwap swap, @Nullable final CursorSnapshot snapshot,
+                             @Nullable final DiffUtil.DiffResult diff) {
+        // ignore swaps that have been superseded
+        if (mPendingSwap != swap) {
+            return;
+        }
+        mPendingSwap = null;
+        swap.cancel();
+
+        // update Cursor
+        mCursor = swap.mNew;
+        mIdColumn = mCursor != null ? mCursor.getColumnIndex(BaseColumns._ID) : -1;
+        mSnapshot = snapshot;
+
+        // notify that data has changed
+        if (diff != null) {
+            diff.dispatchUpdatesTo(this);
+        } else {
+            notifyDataSetChanged();
+        }
+
+        if (swap.mCloseOld && swap.mOld != null && !swap.mOld.isClosed()) {
+            swap.mOld.close();
+        }
+    }
+
     @UiThread
     protected Cursor scrollCursor(@Nullable final Cursor cursor, final int position) {
         if (cursor != null) {
@@ -70,4 +212,86 @@ public abstract class CursorAdapter<VH extends RecyclerView.ViewHolder> extends
 
     @UiThread
     protected abstract void onBindViewHolder(@NonNull VH holder, @Nullable Cursor cursor, int position);
+
+    private final class AsyncSwap implements Runnable, CursorSnapshot.Cancellation {
+        @Nullable
+        final Cursor mOld;
+        @Nullable
+        final Cursor mNew;
+        @Nullable
+        final CursorSnapshot mOldSnapshot;
+        @Nullable
+        final String[] mHashColumns;
+        final boolean mCloseOld;
+        private volatile boolean mCancelled = false;
+
+        final DataSetObserver mOldObserver = new DataSetObserver() {
+            @Override
+            public void onInvalidated() {
+                // the old cursor was closed, switch to the new cursor without waiting for the background diff
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    onAsyncSwapOldClosed(AsyncSwap.this);
+                } else {
+                    mMainHandler.post(() -> onAsyncSwapOldClosed(AsyncSwap.this));
+                }
+            }
+        };
+
+        AsyncSwap(@Nullable final Cursor oldCursor, @Nullable final Cursor newCursor,
+                  @Nullable final CursorSnapshot oldSnapshot, @Nullable final String[] hashColumns,
+                  final boolean closeOld) {
+            mOld = oldCursor;
+            mNew = newCursor;
+            mOldSnapshot = oldSnapshot;
+            mHashColumns = hashColumns;
+            mCloseOld = closeOld;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Stop reading the new Cursor. Once this returns the background snapshot no longer touches the new Cursor,
+         * so it is safe to use it on the UI thread.
+         */
+        @UiThread
+        void cancel() {
+            mCancelled = true;
+            synchronized (this) {
+                if (mOld != null) {
+                    try {
+                        mOld.unregisterDataSetObserver(mOldObserver);
+                    } catch (final IllegalStateException ignored) {
+                        // the observer was already unregistered
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            CursorSnapshot snapshot = null;
+            DiffUtil.DiffResult diff = null;
+            if (mNew != null && !mCancelled) {
+                try {
+                    snapshot = CursorSnapshot.of(mNew, BaseColumns._ID, mHashColumns, this, this);
+                } catch (final RuntimeException e) {
+                    // the new cursor was closed or is otherwise unreadable, fall back to a full refresh
+                    snapshot = null;
+                }
+            }
+            if (mCancelled) {
+                return;
+            }
+            if (snapshot != null && mOldSnapshot != null) {
+                diff = DiffUtil.calculateDiff(new CursorSnapshot.DiffCallback(mOldSnapshot, snapshot));
+            }
+
+            final CursorSnapshot result = snapshot;
+            final DiffUtil.DiffResult resultDiff = diff;
+            mMainHandler.post(() -> onAsyncSwapComplete(this, result, resultDiff));
+        }
+    }
 }
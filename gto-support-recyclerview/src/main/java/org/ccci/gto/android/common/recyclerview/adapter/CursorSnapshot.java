@@ -0,0 +1,134 @@
+package org.ccci.gto.android.common.recyclerview.adapter;
+
+import android.database.Cursor;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Arrays;
+
+/**
+ * The row ids & content hashes of a Cursor, used to diff two Cursors without needing either of them to stay open.
+ */
+final class CursorSnapshot {
+    interface Cancellation {
+        boolean isCancelled();
+    }
+
+    @NonNull
+    final long[] mIds;
+    @NonNull
+    final int[] mHashes;
+
+    private CursorSnapshot(@NonNull final long[] ids, @NonNull final int[] hashes) {
+        mIds = ids;
+        mHashes = hashes;
+    }
+
+    /**
+     * Read a snapshot of the specified cursor. Each row is read while holding the lock so that another thread can
+     * safely take over the Cursor after cancelling the snapshot and acquiring the lock.
+     *
+     * @param hashColumns the columns used for the content hash of each row, or null to use all columns.
+     * @return the snapshot, or null if the Cursor doesn't have the id column or the snapshot was cancelled.
+     */
+    @Nullable
+    @WorkerThread
+    static CursorSnapshot of(@NonNull final Cursor cursor, @NonNull final String idColumn,
+                             @Nullable final String[] hashColumns, @NonNull final Object lock,
+                             @NonNull final Cancellation cancellation) {
+        final int idIndex = cursor.getColumnIndex(idColumn);
+        if (idIndex < 0) {
+            return null;
+        }
+        final int[] hashIndexes = resolveColumns(cursor, hashColumns);
+
+        final int count = cursor.getCount();
+        final long[] ids = new long[count];
+        final int[] hashes = new int[count];
+        for (int i = 0; i < count; i++) {
+            synchronized (lock) {
+                if (cancellation.isCancelled() || !cursor.moveToPosition(i)) {
+                    return null;
+                }
+                ids[i] = cursor.getLong(idIndex);
+                hashes[i] = hashRow(cursor, hashIndexes);
+            }
+        }
+        return new CursorSnapshot(ids, hashes);
+    }
+
+    @NonNull
+    private static int[] resolveColumns(@NonNull final Cursor cursor, @Nullable final String[] columns) {
+        if (columns == null) {
+            final int[] indexes = new int[cursor.getColumnCount()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = i;
+            }
+            return indexes;
+        }
+
+        final int[] indexes = new int[columns.length];
+        int size = 0;
+        for (final String column : columns) {
+            final int index = cursor.getColumnIndex(column);
+            if (index >= 0) {
+                indexes[size++] = index;
+            }
+        }
+        return Arrays.copyOf(indexes, size);
+    }
+
+    private static int hashRow(@NonNull final Cursor cursor, @NonNull final int[] columns) {
+        int hash = 1;
+        for (final int column : columns) {
+            final int value;
+            switch (cursor.getType(column)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    value = 0;
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    value = Arrays.hashCode(cursor.getBlob(column));
+                    break;
+                default:
+                    final String string = cursor.getString(column);
+                    value = string != null ? string.hashCode() : 0;
+            }
+            hash = 31 * hash + value;
+        }
+        return hash;
+    }
+
+    static final class DiffCallback extends DiffUtil.Callback {
+        @NonNull
+        private final CursorSnapshot mOld;
+        @NonNull
+        private final CursorSnapshot mNew;
+
+        DiffCallback(@NonNull final CursorSnapshot oldSnapshot, @NonNull final CursorSnapshot newSnapshot) {
+            mOld = oldSnapshot;
+            mNew = newSnapshot;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOld.mIds.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.mIds.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(final int oldItemPosition, final int newItemPosition) {
+            return mOld.mIds[oldItemPosition] == mNew.mIds[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(final int oldItemPosition, final int newItemPosition) {
+            return mOld.mHashes[oldItemPosition] == mNew.mHashes[newItemPosition];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.ccci.gto.android.common.recyclerview.adapter
+
+import androidx.databinding.ViewDataBinding
+import androidx.lifecycle.LifecycleOwner
+import androidx.paging.AsyncPagedListDiffer
+import androidx.paging.PagedList
+import androidx.recyclerview.widget.DiffUtil
+
+/**
+ * A [SimpleDataBindingAdapter] backed by a [PagedList]. Items are diffed on a background thread when a new list is
+ * submitted, and binding an item lets the [PagedList] load pages around it. Items that haven't been loaded yet are
+ * bound as null placeholders.
+ */
+abstract class PagedListDataBindingAdapter<T : Any, B : ViewDataBinding>(
+    diffCallback: DiffUtil.ItemCallback<T>,
+    lifecycleOwner: LifecycleOwner? = null
+) : SimpleDataBindingAdapter<B>(lifecycleOwner) {
+    private val differ = AsyncPagedListDiffer(this, diffCallback)
+
+    val currentList get() = differ.currentList
+
+    fun submitList(list: PagedList<T>?) = differ.submitList(list)
+
+    protected fun getItem(position: Int) = differ.getItem(position)
+    override fun getItemCount() = differ.itemCount
+
+    final override fun onBindViewDataBinding(binding: B, position: Int) =
+        onBindViewDataBinding(binding, getItem(position), position)
+    protected abstract fun onBindViewDataBinding(binding: B, item: T?, position: Int)
+}
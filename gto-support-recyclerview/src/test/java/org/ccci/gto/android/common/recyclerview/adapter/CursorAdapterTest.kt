@@ -0,0 +1,202 @@
+package org.ccci.gto.android.common.recyclerview.adapter
+
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.os.Looper
+import android.provider.BaseColumns
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.hamcrest.Matchers.empty
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Shadows.shadowOf
+
+private const val COLUMN_NAME = "name"
+
+@RunWith(AndroidJUnit4::class)
+class CursorAdapterTest {
+    private val adapter = TestAdapter()
+    private val events = mutableListOf<String>()
+
+    @Before
+    fun setupAdapter() {
+        adapter.setDiffExecutor { it.run() }
+        adapter.registerAdapterDataObserver(object : RecyclerView.AdapterDataObserver() {
+            override fun onChanged() {
+                events += "changed"
+            }
+
+            override fun onItemRangeChanged(positionStart: Int, itemCount: Int) {
+                events += "changed($positionStart,$itemCount)"
+            }
+
+            override fun onItemRangeInserted(positionStart: Int, itemCount: Int) {
+                events += "inserted($positionStart,$itemCount)"
+            }
+
+            override fun onItemRangeRemoved(positionStart: Int, itemCount: Int) {
+                events += "removed($positionStart,$itemCount)"
+            }
+
+            override fun onItemRangeMoved(fromPosition: Int, toPosition: Int, itemCount: Int) {
+                events += "moved($fromPosition,$toPosition,$itemCount)"
+            }
+        })
+    }
+
+    @Test
+    fun verifySwapCursorAsyncDispatchesDiff() {
+        adapter.swapCursorAsync(cursor(1L to "a", 2L to "b", 3L to "c"))
+        idleMainLooper()
+        assertThat("no snapshot of the initial cursor to diff against", events, contains("changed"))
+
+        events.clear()
+        adapter.swapCursorAsync(cursor(1L to "a", 2L to "b", 3L to "c", 4L to "d"))
+        assertThat("the diff is dispatched on the main thread", events, empty())
+        idleMainLooper()
+        assertThat(events, contains("inserted(3,1)"))
+        assertEquals(4, adapter.itemCount)
+        assertEquals(4, adapter.getItemId(3))
+
+        events.clear()
+        adapter.swapCursorAsync(cursor(1L to "a", 2L to "B", 3L to "c", 4L to "d"))
+        idleMainLooper()
+        assertThat(events, contains("changed(1,1)"))
+
+        events.clear()
+        adapter.swapCursorAsync(cursor(1L to "a", 3L to "c", 4L to "d"))
+        idleMainLooper()
+        assertThat(events, contains("removed(1,1)"))
+        assertEquals(3, adapter.getItemId(1))
+    }
+
+    @Test
+    fun verifySwapCursorAsyncOldCursorClosedMidDiff() {
+        val old = cursor(1L to "a", 2L to "b")
+        adapter.swapCursorAsync(old)
+        idleMainLooper()
+        events.clear()
+
+        // close the old cursor while the diff is running
+        val new = cursor(1L to "a", 2L to "b", 3L to "c")
+        adapter.setDiffExecutor {
+            old.close()
+            it.run()
+        }
+        adapter.swapCursorAsync(new)
+        assertThat("closing the old cursor diffs on the calling thread", events, contains("inserted(2,1)"))
+        assertEquals(3, adapter.itemCount)
+
+        idleMainLooper()
+        assertThat("the background diff is ignored", events, contains("inserted(2,1)"))
+        assertFalse(new.isClosed)
+    }
+
+    @Test
+    fun verifySwapCursorAsyncCursorLoaderClosesOldCursor() {
+        val old = cursor(1L to "a", 2L to "b")
+        adapter.swapCursorAsync(old)
+        idleMainLooper()
+        events.clear()
+
+        // CursorLoader closes the previous cursor as soon as onLoadFinished() returns
+        val pending = mutableListOf<Runnable>()
+        adapter.setDiffExecutor { pending += it }
+        val new = cursor(1L to "a", 3L to "c")
+        adapter.swapCursorAsync(new)
+        old.close()
+        assertThat(events, contains("removed(1,1)", "inserted(1,1)"))
+        assertEquals(3, adapter.getItemId(1))
+
+        // the next swap can still be diffed against the cursor that was swapped in
+        events.clear()
+        pending.forEach { it.run() }
+        adapter.swapCursorAsync(cursor(1L to "a", 3L to "c", 4L to "d"))
+        new.close()
+        assertThat(events, contains("inserted(2,1)"))
+        idleMainLooper()
+        assertThat(events, contains("inserted(2,1)"))
+    }
+
+    @Test
+    fun verifyChangeCursorAsyncClosesOldCursor() {
+        val old = cursor(1L to "a")
+        adapter.changeCursorAsync(old)
+        idleMainLooper()
+
+        val new = cursor(1L to "a", 2L to "b")
+        adapter.changeCursorAsync(new)
+        assertFalse("the old cursor is used until the diff is dispatched", old.isClosed)
+        idleMainLooper()
+        assertTrue(old.isClosed)
+        assertFalse(new.isClosed)
+        assertEquals(2, adapter.itemCount)
+    }
+
+    @Test
+    fun verifyChangeCursorAsyncClosesSupersededCursor() {
+        val superseded = cursor(1L to "a")
+        val new = cursor(1L to "a", 2L to "b")
+        adapter.changeCursorAsync(superseded)
+        adapter.changeCursorAsync(new)
+        assertTrue("the superseded cursor was never displayed", superseded.isClosed)
+
+        idleMainLooper()
+        assertThat(events, contains("changed"))
+        assertFalse(new.isClosed)
+        assertEquals(2, adapter.itemCount)
+    }
+
+    @Test
+    fun verifyChangeCursorAsyncSameCursorTwice() {
+        val new = cursor(1L to "a")
+        adapter.changeCursorAsync(new)
+        adapter.changeCursorAsync(new)
+        assertFalse("the pending cursor is being swapped in again", new.isClosed)
+
+        idleMainLooper()
+        assertFalse(new.isClosed)
+        assertEquals(1, adapter.itemCount)
+    }
+
+    @Test
+    fun verifySwapCursorAfterChangeCursorAsync() {
+        val new = cursor(1L to "a", 2L to "b")
+        adapter.changeCursorAsync(new)
+        assertNull(adapter.swapCursor(new))
+        assertFalse("the pending cursor is being swapped in", new.isClosed)
+        assertEquals(2, adapter.itemCount)
+    }
+
+    @Test
+    fun verifySwapCursorCancelsPendingSwap() {
+        val pending = cursor(1L to "a")
+        adapter.swapCursorAsync(pending)
+        val current = cursor(1L to "a", 2L to "b", 3L to "c")
+        assertNull(adapter.swapCursor(current))
+
+        idleMainLooper()
+        assertThat(events, contains("changed"))
+        assertEquals(3, adapter.itemCount)
+        assertFalse(pending.isClosed)
+    }
+
+    private fun idleMainLooper() = shadowOf(Looper.getMainLooper()).idle()
+
+    private fun cursor(vararg rows: Pair<Long, String>) = MatrixCursor(arrayOf(BaseColumns._ID, COLUMN_NAME)).apply {
+        rows.forEach { addRow(arrayOf(it.first, it.second)) }
+    }
+
+    private class TestAdapter : CursorAdapter<RecyclerView.ViewHolder>() {
+        override fun onCreateViewHolder(parent: ViewGroup, viewType: Int) = throw UnsupportedOperationException()
+        override fun onBindViewHolder(holder: RecyclerView.ViewHolder, cursor: Cursor?, position: Int) = Unit
+    }
+}
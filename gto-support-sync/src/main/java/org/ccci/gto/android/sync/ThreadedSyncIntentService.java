@@ -37,6 +37,14 @@ public abstract class ThreadedSyncIntentService extends ThreadedIntentService {
         }
     }
 
+    @Override
+    protected final void onDeadlineExpired(@NonNull final Intent intent) {
+        // the sync was skipped, but it still needs to be marked as finished
+        final int syncId = intent.getIntExtra(EXTRA_SYNCID, 0);
+        SyncRegistry.INSTANCE.finishSync(syncId);
+        finishSync(syncId);
+    }
+
     @WorkerThread
     protected abstract void onHandleSyncIntent(@NonNull Intent intent);
 
@@ -0,0 +1,21 @@
+package org.ccci.gto.android.common.util.database
+
+import android.database.Cursor
+import android.database.CursorWrapper
+
+/**
+ * A [CursorWrapper] that resolves each column index once and reuses it for every subsequent lookup. This is useful
+ * when mapping every row of a large Cursor by column name.
+ */
+class ColumnIndexCachingCursor(cursor: Cursor) : CursorWrapper(cursor) {
+    private val columnIndexes = HashMap<String, Int>()
+
+    override fun getColumnIndex(columnName: String) =
+        columnIndexes[columnName] ?: super.getColumnIndex(columnName).also { columnIndexes[columnName] = it }
+
+    override fun getColumnIndexOrThrow(columnName: String) = getColumnIndex(columnName).also {
+        require(it != -1) { "column '$columnName' does not exist" }
+    }
+}
+
+fun Cursor.cacheColumnIndexes() = this as? ColumnIndexCachingCursor ?: ColumnIndexCachingCursor(this)
@@ -16,7 +16,13 @@ import java.util.Locale
  */
 @JvmOverloads
 @Contract("_, _, !null -> !null")
-fun Cursor.getDouble(columnName: String, defValue: Double? = null) = getString(columnName)?.toDoubleOrNull() ?: defValue
+fun Cursor.getDouble(columnName: String, defValue: Double? = null) = getColumnIndex(columnName).let { index ->
+    when {
+        index == -1 -> defValue
+        isNumeric(index) -> getDouble(index)
+        else -> getString(index)?.toDoubleOrNull() ?: defValue
+    }
+}
 
 /**
  * @receiver The Cursor we are fetching the value from
@@ -37,7 +43,13 @@ fun Cursor.getDouble(columnName: String, defValue: Double) = getDouble(columnNam
  */
 @JvmOverloads
 @Contract("_, _, !null -> !null")
-fun Cursor.getInt(columnName: String, defValue: Int? = null) = getString(columnName)?.toIntOrNull() ?: defValue
+fun Cursor.getInt(columnName: String, defValue: Int? = null) = getColumnIndex(columnName).let { index ->
+    when {
+        index == -1 -> defValue
+        isInteger(index) -> getLong(index).takeIf { it in Int.MIN_VALUE..Int.MAX_VALUE }?.toInt() ?: defValue
+        else -> getString(index)?.toIntOrNull() ?: defValue
+    }
+}
 
 /**
  * @receiver The Cursor we are fetching the value from
@@ -58,7 +70,13 @@ fun Cursor.getInt(columnName: String, defValue: Int) = getInt(columnName) ?: def
  */
 @JvmOverloads
 @Contract("_, _, !null -> !null")
-fun Cursor.getLong(columnName: String, defValue: Long? = null) = getString(columnName)?.toLongOrNull() ?: defValue
+fun Cursor.getLong(columnName: String, defValue: Long? = null) = getColumnIndex(columnName).let { index ->
+    when {
+        index == -1 -> defValue
+        isInteger(index) -> getLong(index)
+        else -> getString(index)?.toLongOrNull() ?: defValue
+    }
+}
 
 /**
  * @receiver The Cursor we are fetching the value from
@@ -113,6 +131,12 @@ fun Cursor.getLocale(columnName: String, defValue: Locale? = null) = getString(c
 @JvmName("getNonNullLocale")
 fun Cursor.getLocale(columnName: String, defValue: Locale) = getLocale(columnName) ?: defValue
 
+// Numeric columns are read natively, anything else (including NULL) falls back to parsing the String value
+private fun Cursor.isInteger(index: Int) = getType(index) == Cursor.FIELD_TYPE_INTEGER
+private fun Cursor.isNumeric(index: Int) = getType(index).let {
+    it == Cursor.FIELD_TYPE_INTEGER || it == Cursor.FIELD_TYPE_FLOAT
+}
+
 inline fun <R> Cursor.map(transform: (Cursor) -> R): List<R> = mapTo(ArrayList(count), transform)
 
 inline fun <R, C : MutableCollection<in R>> Cursor.mapTo(destination: C, transform: (Cursor) -> R): C {
@@ -0,0 +1,50 @@
+package org.ccci.gto.android.common.util.database
+
+import android.database.Cursor
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val VALID = "valid"
+private const val INVALID = "invalid"
+
+@RunWith(AndroidJUnit4::class)
+class ColumnIndexCachingCursorTest {
+    private lateinit var cursor: Cursor
+
+    @Before
+    fun setup() {
+        cursor = mock()
+        whenever(cursor.getColumnIndex(VALID)).thenReturn(2)
+        whenever(cursor.getColumnIndex(INVALID)).thenReturn(-1)
+    }
+
+    @Test
+    fun verifyColumnIndexIsCached() {
+        val wrapped = cursor.cacheColumnIndexes()
+        repeat(3) {
+            assertEquals(2, wrapped.getColumnIndex(VALID))
+            assertEquals(-1, wrapped.getColumnIndex(INVALID))
+        }
+        verify(cursor, times(1)).getColumnIndex(VALID)
+        verify(cursor, times(1)).getColumnIndex(INVALID)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun verifyGetColumnIndexOrThrowInvalid() {
+        cursor.cacheColumnIndexes().getColumnIndexOrThrow(INVALID)
+    }
+
+    @Test
+    fun verifyCacheColumnIndexesDoesntDoubleWrap() {
+        val wrapped = cursor.cacheColumnIndexes()
+        assertSame(wrapped, wrapped.cacheColumnIndexes())
+    }
+}
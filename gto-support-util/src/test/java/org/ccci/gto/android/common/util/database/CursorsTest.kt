@@ -49,6 +49,14 @@ class CursorsTest {
         assertNull(cursor.getLong(VALID, null))
     }
 
+    @Test
+    fun testGetLongNative() {
+        whenever(cursor.getType(0)).thenReturn(Cursor.FIELD_TYPE_INTEGER)
+        whenever(cursor.getLong(0)).thenReturn(1L)
+        assertEquals(1L, cursor.getLong(VALID))
+        verify(cursor, never()).getString(anyInt())
+    }
+
     @Test
     fun testGetLongDefaultWhenNonExistentField() {
         assertNull(cursor.getLong(INVALID))
@@ -58,6 +66,40 @@ class CursorsTest {
     }
     // endregion getLong()
 
+    // region getInt()
+    @Test
+    fun testGetIntNative() {
+        whenever(cursor.getType(0)).thenReturn(Cursor.FIELD_TYPE_INTEGER)
+        whenever(cursor.getLong(0)).thenReturn(1L)
+        assertEquals(1, cursor.getInt(VALID))
+        verify(cursor, never()).getString(anyInt())
+    }
+
+    @Test
+    fun testGetIntNativeDefaultWhenOverflow() {
+        whenever(cursor.getType(0)).thenReturn(Cursor.FIELD_TYPE_INTEGER)
+        whenever(cursor.getLong(0)).thenReturn(Long.MAX_VALUE)
+        assertNull(cursor.getInt(VALID))
+        assertEquals(1, cursor.getInt(VALID, 1))
+    }
+    // endregion getInt()
+
+    // region getDouble()
+    @Test
+    fun testGetDoubleNative() {
+        whenever(cursor.getType(0)).thenReturn(Cursor.FIELD_TYPE_FLOAT)
+        whenever(cursor.getDouble(0)).thenReturn(1.5)
+        assertEquals(1.5, cursor.getDouble(VALID)!!, 0.0)
+        verify(cursor, never()).getString(anyInt())
+    }
+
+    @Test
+    fun testGetDoubleFromString() {
+        wheneverGetValid().thenReturn("1.5")
+        assertEquals(1.5, cursor.getDouble(VALID)!!, 0.0)
+    }
+    // endregion getDouble()
+
     // region getString()
     @Test
     fun testGetString() {